@@ -1,14 +1,25 @@
 package de.hu.berlin.wbi.objects;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
- * Convenience class for database communication
+ * Convenience class for database communication.
+ * Besides the connection used by {@link #query(String)} and {@link #getConn()}, the class keeps a pool of
+ * connections for concurrent lookups (see {@link #lease()}), each with its own prepared statements.
  * @author Philippe Thomas
  *
  */
@@ -23,6 +34,67 @@ public class DatabaseConnection {
 	protected Connection conn;
     protected Statement stmt;
 
+    /** Maximal number of pooled connections */
+    private int poolSize = 8;
+
+    /** Number of pooled connections, idle or leased */
+    private int pooled = 0;
+
+    /** Idle pooled connections */
+    private final LinkedList<Lease> idle = new LinkedList<Lease>();
+
+    /** Set by {@link #disconnect()}, so that leased connections are closed when released */
+    private boolean closed = false;
+
+    /**
+     * A pooled connection, which is used by one thread until it is released
+     */
+    public final class Lease {
+
+        private final Connection connection;
+
+        /** Prepared statements of this connection by SQL */
+        private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+
+        private Lease(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Prepares a statement once per pooled connection
+         * @param sql SQL statement
+         * @return the prepared statement for this connection
+         * @throws SQLException SQL-Exception preparing the statement
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        /**
+         * Creates an array of integers as parameter for queries like {@code WHERE locus_id = ANY(?)}
+         * @param values integers, e.g. Entrez-Gene identifiers
+         * @return the array for this connection
+         * @throws SQLFeatureNotSupportedException if the database does not support array parameters
+         * @throws SQLException SQL-Exception creating the array
+         */
+        public Array createIntegerArray(Collection<Integer> values) throws SQLException {
+            return connection.createArrayOf("integer", values.toArray());
+        }
+
+        /**
+         * Returns the connection to the pool.
+         * Closed connections (e.g. after a network failure) are dropped and replaced on demand.
+         */
+        public void release() {
+            giveBack(this);
+        }
+    }
+
     /**
      * Set up a database connection by providing all relevant connection information
      * @param user Username
@@ -47,8 +119,118 @@ public class DatabaseConnection {
 		this.password = property.getProperty("database.password");
 		this.database = property.getProperty("database.name");
 		this.host = property.getProperty("database.host");
+		if (property.getProperty("database.poolSize") != null)
+			setPoolSize(Integer.parseInt(property.getProperty("database.poolSize")));
 	}
 
+    /**
+     * Sets the maximal number of pooled connections (default 8), i.e. the number of threads which can query the database concurrently
+     * @param poolSize maximal number of pooled connections
+     */
+    public synchronized void setPoolSize(int poolSize) {
+        if (poolSize < 1)
+            throw new IllegalArgumentException("Pool size has to be positive");
+        this.poolSize = poolSize;
+        notifyAll();
+    }
+
+    /**
+     * @return maximal number of pooled connections
+     */
+    public synchronized int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Leases a pooled connection, which has to be released after use:
+     * <pre>
+     * Lease lease = connection.lease();
+     * try {
+     *     PreparedStatement statement = lease.prepare(sql);
+     *     ...
+     * } finally {
+     *     lease.release();
+     * }
+     * </pre>
+     * Connections are opened on demand; if all connections are leased, the method waits for a release.
+     *
+     * @return pooled connection
+     * @throws SQLException SQL-Exception opening a connection
+     */
+    public Lease lease() throws SQLException {
+        synchronized (this) {
+            while (idle.isEmpty() && pooled >= poolSize) {
+                if (closed)
+                    throw new IllegalStateException("Disconnected");
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a connection", e);
+                }
+            }
+            if (closed)
+                throw new IllegalStateException("Disconnected");
+            if (!idle.isEmpty())
+                return idle.removeFirst();
+            pooled++;
+        }
+
+        // Opens the connection outside of the lock, so that other threads can release theirs meanwhile
+        boolean opened = false;
+        try {
+            Lease lease = new Lease(newConnection());
+            opened = true;
+            return lease;
+        } finally {
+            if (!opened) {
+                synchronized (this) {
+                    pooled--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private void giveBack(Lease lease) {
+        boolean close;
+        synchronized (this) {
+            close = closed || isClosed(lease.connection);
+            if (close)
+                pooled--;
+            else
+                idle.addFirst(lease);
+            notifyAll();
+        }
+        if (close)
+            close(lease.connection);
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Opens a new connection to the database
+     * @return new connection
+     * @throws SQLException SQL-Exception connecting to the database
+     */
+    protected Connection newConnection() throws SQLException {
+        return DriverManager.getConnection(host + database, user, password);
+    }
+
     /**
 	 * Wrapper for querying the database
 	 * @param query      Query String
@@ -100,22 +282,38 @@ public class DatabaseConnection {
         }
 		 */
 
-        String connectionString = host +database;
         //if(driver.contains("mysql"))
         //    connectionString+="?connectTimeout=30000&amp;useUnicode=true&amp;characterEncoding=UTF-8&amp;autoReconnect=true&amp;failOverReadOnly=false&amp;maxReconnects=10";
         //connectionString+="?characterEncoding=UTF8";
 
         try {
-            conn = DriverManager.getConnection(connectionString, user, password);
+            conn = newConnection();
         } catch (SQLException e) {
             throw new IllegalStateException(e);
         }
+        synchronized (this) {
+            closed = false;
+        }
     }
 
 	/**
-	 * Disconnects from database
+	 * Disconnects from database, including the idle pooled connections.
+	 * Leased connections are closed when they are released.
 	 */
 	public void disconnect() {
+        final List<Lease> leases;
+        synchronized (this) {
+            closed = true;
+            leases = new ArrayList<Lease>(idle);
+            pooled -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        for (Lease lease : leases)
+            close(lease.connection);
+
+        if (conn == null)
+            return;
         try {
             conn.close();
         } catch (SQLException e) {
@@ -142,6 +340,7 @@ public class DatabaseConnection {
                 ", password='" + password + '\'' +
                 ", database='" + database + '\'' +
                 ", host='" + host + '\'' +
+                ", poolSize=" + poolSize +
                 '}';
     }
 }
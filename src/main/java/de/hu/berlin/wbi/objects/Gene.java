@@ -3,10 +3,16 @@ package de.hu.berlin.wbi.objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Array;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -19,11 +25,20 @@ public class Gene {
 
 	private final static Logger logger = LoggerFactory.getLogger(Gene.class);
 
+	/** Database connection, whose pooled connections are used by concurrent lookups */
+	private static volatile DatabaseConnection conn = null;
+
 	/** Retrieves GNAT results for a PubMed ID  */
-	private static PreparedStatement geneQuery;
+	private static volatile String geneQuery;
 	
 	/** Retrieves gene2pubmed entries for a PubMed ID*/
-	private static PreparedStatement gene2pubmedQuery;
+	private static volatile String gene2pubmedQuery;
+
+	/** Retrieves GNAT results for several PubMed IDs, see {@link #queryGenesForArticles(Collection)} */
+	private static volatile String geneBatchQuery;
+
+	/** Retrieves gene2pubmed entries for several PubMed IDs, see {@link #queryGenesForArticles(Collection)} */
+	private static volatile String gene2pubmedBatchQuery;
 
 	/** Article ID. */
     private int pmid;
@@ -188,30 +203,48 @@ public class Gene {
 	}
 
 	/**
-	 * Initializes the prepared statements  for retrieving
-     * gene information for one PubMed article
+	 * Initializes the queries for retrieving
+     * gene information for one PubMed article. Replaces a previous initialization.
 	 * 
 	 * @param connection   Database connection
 	 * @param geneTable   Table name for GNAT results
      * @param gene2Pubmed Table name for gene2PubMed results
 	 * @throws SQLException SQL-Exception accessing the database
 	 */
-	public static void init(DatabaseConnection connection, String geneTable, String gene2Pubmed)
+	public static synchronized void init(DatabaseConnection connection, String geneTable, String gene2Pubmed)
 			throws SQLException {
+		final String geneQuery;
 		if (geneTable != null && !geneTable.equals(""))                                                                                      {
-			Gene.geneQuery = connection.getConn().prepareStatement("SELECT * " + "FROM " + geneTable + " WHERE pmid = ? AND species = 9606");
+			geneQuery = "SELECT * " + "FROM " + geneTable + " WHERE pmid = ? AND species = 9606";
 //            checkDatabase();
         }
 		else
-			Gene.geneQuery =  null;			
+			geneQuery =  null;			
 		
+		final String gene2pubmedQuery;
 		if(gene2Pubmed != null && !gene2Pubmed.equals(""))
-			Gene.gene2pubmedQuery = connection.getConn().prepareStatement("SELECT geneId, pmid FROM " +gene2Pubmed +" WHERE pmid = ? AND taxId = 9606");
+			gene2pubmedQuery = "SELECT geneId, pmid FROM " +gene2Pubmed +" WHERE pmid = ? AND taxId = 9606";
 		else
-			Gene.gene2pubmedQuery = null;
+			gene2pubmedQuery = null;
 		
-		if(Gene.geneQuery == null && Gene.gene2pubmedQuery == null)
+		if(geneQuery == null && gene2pubmedQuery == null)
 			throw new IllegalStateException("At least one gene Source has to be specified");
+
+		final DatabaseConnection.Lease lease = connection.lease();
+		try {
+			if (geneQuery != null)
+				lease.prepare(geneQuery);
+			if (gene2pubmedQuery != null)
+				lease.prepare(gene2pubmedQuery);
+		} finally {
+			lease.release();
+		}
+
+		Gene.geneQuery = geneQuery;
+		Gene.gene2pubmedQuery = gene2pubmedQuery;
+		Gene.geneBatchQuery = geneQuery == null ? null : geneQuery.replace("pmid = ?", "pmid = ANY(?)");
+		Gene.gene2pubmedBatchQuery = gene2pubmedQuery == null ? null : gene2pubmedQuery.replace("pmid = ?", "pmid = ANY(?)");
+		Gene.conn = connection;
 	}
 
 	/**
@@ -221,53 +254,63 @@ public class Gene {
 	 * @return all genes contained in a specific article
 	 */
 	public static Set<Gene> queryGenesForArticle(int pmid) {
+		return queryGenesForArticles(Collections.singleton(pmid)).get(pmid);
+	}
 
-		final Set<Integer> entrezs = new HashSet<Integer>();		// Set contains a list of previously seen entrez-ID's 
-		final Set<Gene> genes = new HashSet<Gene>();
+	/**
+	 * Search for all genes contained in several Articles using their PubMed IDs,
+	 * with one query per gene source instead of one query per article.
+	 * Databases without array parameters (e.g. Derby) are queried article by article.
+	 * 
+	 * @param pmids PubMed-IDs
+	 * @return mapping from each article to the genes contained in it
+	 */
+	public static Map<Integer, Set<Gene>> queryGenesForArticles(Collection<Integer> pmids) {
+		final DatabaseConnection conn = Gene.conn;
+		if (conn == null)
+			throw new IllegalStateException("NOT YET INITIALIZED");
+
+		final Map<Integer, Set<Integer>> entrezs = new HashMap<Integer, Set<Integer>>();		// Sets contain a list of previously seen entrez-ID's per article
+		final Map<Integer, Set<Gene>> genes = new HashMap<Integer, Set<Gene>>();
+		for (int pmid : pmids) {
+			entrezs.put(pmid, new HashSet<Integer>());
+			genes.put(pmid, new HashSet<Gene>());
+		}
 				
 		try {
-
-			//If NER results are available we extract genes from this table
-			if(geneQuery != null){
-				geneQuery.setInt(1, pmid);
-				geneQuery.execute();
-				final ResultSet rs = geneQuery.getResultSet();
-
-				while (rs.next()) {
-					final Gene tmp = new Gene(
-							pmid, rs.getInt("id"),
-//							rs.getInt("confidence"), 
-							rs.getInt("species")
-//							new EntityOffset(rs.getInt(beginColumnName), rs.getInt(endColumnName)),
-//							rs.getString("entity")
-							);
-
-					if (entrezs.add(tmp.getGeneID())) {
-						genes.add(tmp);
+			final DatabaseConnection.Lease lease = conn.lease();
+			try {
+				Array articles = null;
+				if (genes.size() > 1) {
+					try {
+						articles = lease.createIntegerArray(genes.keySet());
+					} catch (SQLFeatureNotSupportedException e) {
+						articles = null;
 					}
 				}
-				rs.close();
-			}
-						
-			
-			//If gene2pubmed is available we extract genes mentioned by this table
-			if(gene2pubmedQuery != null){
-				gene2pubmedQuery.setInt(1, pmid);
-				gene2pubmedQuery.execute();
-				final ResultSet rs2 = gene2pubmedQuery.getResultSet();
-				while (rs2.next()) {
-					final Gene tmp = new Gene(pmid, rs2.getInt("geneId"),
-//							1,
-							9606
-//							null,
-//							null
-							);
-
-					if (entrezs.add(tmp.getGeneID())) {
-						genes.add(tmp);
+
+				//If NER results are available we extract genes from this table;
+				//if gene2pubmed is available we extract genes mentioned by this table
+				final String[] queries = articles != null
+						? new String[]{geneBatchQuery, gene2pubmedBatchQuery}
+						: new String[]{geneQuery, gene2pubmedQuery};
+				for (int i = 0; i < queries.length; i++) {
+					if (queries[i] == null)
+						continue;
+
+					final PreparedStatement statement = lease.prepare(queries[i]);
+					if (articles != null) {
+						statement.setArray(1, articles);
+						queryGenes(statement, i == 0, entrezs, genes);
+					} else {
+						for (int pmid : genes.keySet()) {
+							statement.setInt(1, pmid);
+							queryGenes(statement, i == 0, entrezs, genes);
+						}
 					}
 				}
-				rs2.close();	
+			} finally {
+				lease.release();
 			}
 			
 		} catch (SQLException e) {
@@ -278,6 +321,46 @@ public class Gene {
 		return genes;
 	}
 
+	/**
+	 * Adds the genes selected by a statement of one pooled connection to their articles.
+	 * Genes are added once per article, preferring GNAT results over gene2pubmed entries.
+	 * 
+	 * @param statement query for GNAT results or gene2pubmed entries
+	 * @param gnat      true for GNAT results, false for gene2pubmed entries
+	 * @param entrezs   mapping from each article to the previously seen entrez-ID's
+	 * @param genes     mapping from each article to the genes contained in it
+	 * @throws SQLException SQL-Exception accessing the database
+	 */
+	private static void queryGenes(PreparedStatement statement, boolean gnat, Map<Integer, Set<Integer>> entrezs, Map<Integer, Set<Gene>> genes) throws SQLException {
+		if (!statement.execute())
+			return;
+		final ResultSet rs = statement.getResultSet();
+
+		while (rs.next()) {
+			final Gene tmp;
+			if (gnat)
+				tmp = new Gene(
+						rs.getInt("pmid"), rs.getInt("id"),
+//						rs.getInt("confidence"), 
+						rs.getInt("species")
+//						new EntityOffset(rs.getInt(beginColumnName), rs.getInt(endColumnName)),
+//						rs.getString("entity")
+						);
+			else
+				tmp = new Gene(rs.getInt("pmid"), rs.getInt("geneId"),
+//						1,
+						9606
+//						null,
+//						null
+						);
+
+			if (entrezs.get(tmp.getPmid()).add(tmp.getGeneID())) {
+				genes.get(tmp.getPmid()).add(tmp);
+			}
+		}
+		rs.close();
+	}
+
 
 	//    private static void checkDatabase() throws SQLException {
 //
@@ -0,0 +1,149 @@
+package de.hu.berlin.wbi.objects;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache of per-gene lookups, e.g. {@link dbSNP#getSNP(int)}, which evicts the least recently used genes.
+ * The size of the cache is the sum of the weights of its values (e.g., the number of dbSNP entries of a gene),
+ * so that a few large genes cannot occupy an unbounded amount of memory.
+ * All methods are synchronized; a value is loaded outside of the cache, so two threads may load the same gene concurrently.
+ *
+ * @param <V> cached value
+ */
+public final class GeneCache<V> {
+
+    /**
+     * Computes the weight of a value
+     * @param <V> cached value
+     */
+    public interface Weigher<V> {
+        long weigh(V value);
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** Entries in access order */
+    private final LinkedHashMap<Integer, Entry<V>> entries = new LinkedHashMap<Integer, Entry<V>>(16, 0.75f, true);
+
+    private final long maxWeight;
+    private final Weigher<V> weigher;
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxWeight maximal sum of the weights of the cached values
+     * @param weigher   computes the weight of a value
+     */
+    public GeneCache(long maxWeight, Weigher<V> weigher) {
+        if (maxWeight < 1)
+            throw new IllegalArgumentException("Maximal weight has to be positive");
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @param geneID Entrez-Gene Identifier
+     * @return the cached value, null if the gene is not cached
+     */
+    public synchronized V get(int geneID) {
+        Entry<V> entry = entries.get(geneID);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Caches a value and evicts the least recently used values exceeding the maximal weight.
+     * Values which are heavier than the maximal weight are not cached.
+     *
+     * @param geneID Entrez-Gene Identifier
+     * @param value  value for the gene
+     */
+    public synchronized void put(int geneID, V value) {
+        long valueWeight = weigher.weigh(value);
+        if (valueWeight > maxWeight)
+            return;
+
+        Entry<V> previous = entries.put(geneID, new Entry<V>(value, valueWeight));
+        if (previous != null)
+            weight -= previous.weight;
+        weight += valueWeight;
+
+        Iterator<Map.Entry<Integer, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight) {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all values; the statistics are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return number of cached genes
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return sum of the weights of the cached values
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return number of lookups which found a cached value
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups which did not find a cached value
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of values evicted to respect the maximal weight
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "GeneCache{" +
+                "genes=" + entries.size() +
+                ", weight=" + weight + "/" + maxWeight +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
@@ -106,6 +106,31 @@ public class HGVS {
         }//This can be thrown for SNP's like rs9281649 where the HGVS string from dbSNP is erroneous (NG_000013.2:g.34513)
     }
 
+    /**
+     * Construct a HGVS object from already parsed fields (see {@link dbSNPStore})
+     *
+     * @param type      Type (c., p., g., m.)
+     * @param location  Location of the mutation
+     * @param wildtype  Wild-type allele
+     * @param mutation  Mutated allele
+     * @param insdeldup Flag indicating deletion, insertion, etc
+     */
+    HGVS(char type, String location, String wildtype, String mutation, boolean insdeldup) {
+        super();
+        this.type = type;
+        this.location = location;
+        this.wildtype = wildtype;
+        this.mutation = mutation;
+        this.insdeldup = insdeldup;
+    }
+
+    /**
+     * @return true for deletions, insertions, and duplications
+     */
+    boolean isInsdeldup() {
+        return insdeldup;
+    }
+
     /**
      * (non-Javadoc)
      * @see java.lang.Object#hashCode()
@@ -183,90 +183,126 @@ public class MutationMention implements Serializable {
             return;
 
         //Iterate over all possible Candidates and try to normalize this specific mention
-        for (dbSNP candidate : candidates) {
+        for (dbSNP candidate : candidates)
+            normalizeCandidate(candidate, features);
 
-            //Normalize candidate using information in 'hgvs' table
-            if(candidate.getHgvs() != null){
+        normalized = cleanResults(normalized);
+    }
 
-                //Normalize PSM using the 'hgvs' information from dbSNP..
-                if(normalizePSMSimpleHGVS(candidate)) {
-                    EnumSet<MatchOptions> match = EnumSet.of(
-                        MatchOptions.LOC, MatchOptions.PSM
-                    );                    
-                    normalized.add(new dbSNPNormalized(candidate, match, null));
-                }
+    /**
+     * This method evaluates if some of the {@link de.hu.berlin.wbi.objects.dbSNP} entries of a gene
+     * actually equals the text-mined {@link MutationMention}. In difference to {@link #normalizeSNP(java.util.List, java.util.List, boolean)},
+     * only the entries located at the position of this mention (or at an offset) are compared, which are selected using the index.
+     * Both methods find the same dbSNP entries.
+     *
+     * @param candidates Index of the dbSNP-entries of a gene, which is built once per gene
+     * @param features List of associated uniprot features
+     * @param append Sometimes normalization has to be invoked several times (for several genes) Should we append result or not?
+     *
+     */
+    public void normalizeSNP(dbSNPIndex candidates, List<UniprotFeature> features, boolean append) {
 
-                if(normalizePSMSimpleHGVSSwap(candidate)) {
-                    EnumSet<MatchOptions> match = EnumSet.of(
-                       MatchOptions.LOC, MatchOptions.PSM, MatchOptions.SWAPPED
-                    );
-                    normalized.add(new dbSNPNormalized(candidate, match, null));
-                }
+        if(append == false || normalized == null)
+           normalized = new ArrayList<dbSNPNormalized>(1);
 
-                if(normalizePSMMethionineHGVS(candidate)) {
-                    EnumSet<MatchOptions> match = EnumSet.of(
-                        MatchOptions.METHIONE, MatchOptions.PSM);
-                    normalized.add(new dbSNPNormalized(candidate, match, null));
-                }
+        //Check if we have sufficient information to normalize the current mutation
+        if (wtResidue == null || mutResidue == null || position == null)
+            return;
 
-                if(normalizePSMMethionineSwapHGVS(candidate)) {                    
-                    EnumSet<MatchOptions> match = EnumSet.of(MatchOptions.METHIONE, MatchOptions.PSM, MatchOptions.SWAPPED);
-                    normalized.add(new dbSNPNormalized(candidate, match, null));
-                }
+        //Look up the candidates located at the position of this mention and try to normalize this specific mention
+        for (dbSNP candidate : candidates.getCandidates(position, wtResidue, mutResidue, features))
+            normalizeCandidate(candidate, features);
 
-                //Now we try to normalize to DNA using HGVS information
-                if (forwardNSMSimple(candidate)) {
-                    EnumSet<MatchOptions> match = EnumSet.of(MatchOptions.LOC);
-                    normalized.add(new dbSNPNormalized(candidate, match, null));
-                } else if (reverseNSMSimple(candidate)) {
-                    EnumSet<MatchOptions> match = EnumSet.of(
-                        MatchOptions.LOC, MatchOptions.SWAPPED
-                    );
-                    normalized.add(new dbSNPNormalized(candidate, match, null));
-                }
+        normalized = cleanResults(normalized);
+    }
+
+    /**
+     * Tries to normalize this mention to one dbSNP entry and adds the matches to the normalized SNPs
+     *
+     * @param candidate dbSNP-entry which might actually describe this SNP
+     * @param features List of associated uniprot features
+     */
+    private void normalizeCandidate(dbSNP candidate, List<UniprotFeature> features) {
+
+        //Normalize candidate using information in 'hgvs' table
+        if(candidate.getHgvs() != null){
+
+            //Normalize PSM using the 'hgvs' information from dbSNP..
+            if(normalizePSMSimpleHGVS(candidate)) {
+                EnumSet<MatchOptions> match = EnumSet.of(
+                    MatchOptions.LOC, MatchOptions.PSM
+                );                    
+                normalized.add(new dbSNPNormalized(candidate, match, null));
             }
 
-            //Normalize candidate using information in 'PSM' table
-            if(candidate.getResidues() != null){
+            if(normalizePSMSimpleHGVSSwap(candidate)) {
+                EnumSet<MatchOptions> match = EnumSet.of(
+                   MatchOptions.LOC, MatchOptions.PSM, MatchOptions.SWAPPED
+                );
+                normalized.add(new dbSNPNormalized(candidate, match, null));
+            }
 
-                boolean forward= checkPSM_WildType(candidate, true) && checkPSM_Mutated(candidate, true) ;
-                boolean reverse= checkPSM_WildType(candidate, false) && checkPSM_Mutated(candidate, false) ;
+            if(normalizePSMMethionineHGVS(candidate)) {
+                EnumSet<MatchOptions> match = EnumSet.of(
+                    MatchOptions.METHIONE, MatchOptions.PSM);
+                normalized.add(new dbSNPNormalized(candidate, match, null));
+            }
 
-                if (forward || reverse){
+            if(normalizePSMMethionineSwapHGVS(candidate)) {                    
+                EnumSet<MatchOptions> match = EnumSet.of(MatchOptions.METHIONE, MatchOptions.PSM, MatchOptions.SWAPPED);
+                normalized.add(new dbSNPNormalized(candidate, match, null));
+            }
+
+            //Now we try to normalize to DNA using HGVS information
+            if (forwardNSMSimple(candidate)) {
+                EnumSet<MatchOptions> match = EnumSet.of(MatchOptions.LOC);
+                normalized.add(new dbSNPNormalized(candidate, match, null));
+            } else if (reverseNSMSimple(candidate)) {
+                EnumSet<MatchOptions> match = EnumSet.of(
+                    MatchOptions.LOC, MatchOptions.SWAPPED
+                );
+                normalized.add(new dbSNPNormalized(candidate, match, null));
+            }
+        }
 
-                    if (normalizePSMSimple(candidate) ) { //Exact match?
-                        EnumSet<MatchOptions> match = EnumSet.of(
-                            MatchOptions.LOC, MatchOptions.PSM
-                        );
-                        if (!forward) {
-                            match.add(MatchOptions.SWAPPED);
-                        }
-                        normalized.add(new dbSNPNormalized(candidate, match, null));
+        //Normalize candidate using information in 'PSM' table
+        if(candidate.getResidues() != null){
+
+            boolean forward= checkPSM_WildType(candidate, true) && checkPSM_Mutated(candidate, true) ;
+            boolean reverse= checkPSM_WildType(candidate, false) && checkPSM_Mutated(candidate, false) ;
+
+            if (forward || reverse){
+
+                if (normalizePSMSimple(candidate) ) { //Exact match?
+                    EnumSet<MatchOptions> match = EnumSet.of(
+                        MatchOptions.LOC, MatchOptions.PSM
+                    );
+                    if (!forward) {
+                        match.add(MatchOptions.SWAPPED);
                     }
+                    normalized.add(new dbSNPNormalized(candidate, match, null));
+                }
 
-                    if(normalizePSMMethionine(candidate)) { //Methionine Offset of 1?
-                        EnumSet<MatchOptions> match = EnumSet.of(
-                            MatchOptions.METHIONE, MatchOptions.PSM
-                        );
-                        if (!forward) {
-                            match.add(MatchOptions.SWAPPED);
-                        }
-                        normalized.add(new dbSNPNormalized(candidate, match, null));
+                if(normalizePSMMethionine(candidate)) { //Methionine Offset of 1?
+                    EnumSet<MatchOptions> match = EnumSet.of(
+                        MatchOptions.METHIONE, MatchOptions.PSM
+                    );
+                    if (!forward) {
+                        match.add(MatchOptions.SWAPPED);
                     }
+                    normalized.add(new dbSNPNormalized(candidate, match, null));
+                }
 
-                    UniprotFeature feature = normalizePSMVariableOffset(candidate, features);	//match using UniProt features
-                    if(feature != null) {
-                        EnumSet<MatchOptions> match = EnumSet.of(MatchOptions.PSM);
-                        if (!forward) {
-                            match.add(MatchOptions.SWAPPED);
-                        }
-                        normalized.add(new dbSNPNormalized(candidate, match, feature));
+                UniprotFeature feature = normalizePSMVariableOffset(candidate, features);	//match using UniProt features
+                if(feature != null) {
+                    EnumSet<MatchOptions> match = EnumSet.of(MatchOptions.PSM);
+                    if (!forward) {
+                        match.add(MatchOptions.SWAPPED);
                     }
+                    normalized.add(new dbSNPNormalized(candidate, match, feature));
                 }
             }
         }
-
-        normalized = cleanResults(normalized);
     }
 
     /**
@@ -727,6 +763,32 @@ public class MutationMention implements Serializable {
         return location.getStop();
     }
 
+    /**
+     * Returns a copy of this mutation with a shifted location, e.g. if it has been found in a part of a larger text.
+     * This mutation remains unchanged.
+     *
+     * @param offset number of characters added to start and end
+     * @return shifted copy of this mutation
+     */
+    public MutationMention withOffset(int offset) {
+        MutationMention copy = new MutationMention();
+        copy.type = type;
+        copy.tool = tool;
+        copy.location = new EntityOffset(location.getStart() + offset, location.getStop() + offset);
+        copy.text = text;
+        copy.ref = ref;
+        copy.wtResidue = wtResidue;
+        copy.mutResidue = mutResidue;
+        copy.position = position;
+        copy.nsm = nsm;
+        copy.psm = psm;
+        copy.ambiguous = ambiguous;
+        copy.patternId = patternId;
+        copy.normalized = normalized == null ? null : new ArrayList<dbSNPNormalized>(normalized);
+        copy.transcripts = transcripts == null ? null : new HashSet<TranscriptNormalized>(transcripts);
+        return copy;
+    }
+
     /**
      * Sets the position of the mutation
      *
@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -21,8 +22,14 @@ public class Transcript {
 
     private final static Logger logger = LoggerFactory.getLogger(Transcript.class);
 
+    /** Database connection, whose pooled connections are used by concurrent lookups */
+    private static volatile DatabaseConnection conn = null;
+
     /** Retrieves Sequences for an Entrez-Gene Query  */
-    private static PreparedStatement sequenceQuery;
+    private static volatile String sequenceQuery;
+
+    /** Cache of {@link #getTranscripts(int)}, null if disabled */
+    private static volatile GeneCache<Set<Transcript>> cache = null;
 
     /** Gene-ID (Entrez in our case). */
     protected int entrez;
@@ -46,27 +53,96 @@ public class Transcript {
     protected String CDC_sequence;
 
     /**
-     * Initializes the prepared statements  for retrieving
-     * sequence information for one Gene
+     * Initializes the query for retrieving
+     * sequence information for one Gene. Replaces a previous initialization.
      *
      * @param connection   Database connection
      * @throws SQLException SQL-Exception accessing the database
      */
-    public static void init(DatabaseConnection connection, String table)throws SQLException {
-        Transcript.sequenceQuery = connection.getConn().prepareStatement("SELECT entrez_id, uniprot_acc, ENSG, ENST, ENSP,  protein_sequence, coding_sequence FROM " +table +" WHERE entrez_id = ?" );
+    public static synchronized void init(DatabaseConnection connection, String table)throws SQLException {
+        final String sequenceQuery = "SELECT entrez_id, uniprot_acc, ENSG, ENST, ENSP,  protein_sequence, coding_sequence FROM " +table +" WHERE entrez_id = ?";
+
+        final DatabaseConnection.Lease lease = connection.lease();
+        try {
+            lease.prepare(sequenceQuery);
+        } finally {
+            lease.release();
+        }
+
+        Transcript.sequenceQuery = sequenceQuery;
+        Transcript.conn = connection;
+    }
+
+    /**
+     * Enables a cache of {@link #getTranscripts(int)}, which keeps the transcripts of the most recently used genes
+     * @param maxWeight maximal number of sequence characters in the cache, 0 to disable the cache
+     * @return the cache (e.g. for its statistics), null if disabled
+     */
+    public static GeneCache<Set<Transcript>> setCache(long maxWeight) {
+        cache = maxWeight > 0 ? new GeneCache<Set<Transcript>>(maxWeight, new GeneCache.Weigher<Set<Transcript>>() {
+            @Override
+            public long weigh(Set<Transcript> transcripts) {
+                long weight = 1;
+                for (Transcript transcript : transcripts)
+                    weight += 1 + length(transcript.protein_sequence) + length(transcript.CDC_sequence);
+                return weight;
+            }
+        }) : null;
+        return cache;
     }
 
+    /**
+     * @return the cache of {@link #getTranscripts(int)}, null if disabled
+     */
+    public static GeneCache<Set<Transcript>> getCache() {
+        return cache;
+    }
+
+    /**
+     * Retrieves all transcripts of a gene.
+     * If the cache is enabled (see {@link #setCache(long)}), the set is shared and cannot be modified.
+     *
+     * @param entrez Entrez-Gene ID
+     * @return transcripts of the gene
+     */
     public static Set<Transcript> getTranscripts(int entrez) {
+        final GeneCache<Set<Transcript>> cache = Transcript.cache;
+        if (cache == null)
+            return loadTranscripts(entrez);
+
+        Set<Transcript> result = cache.get(entrez);
+        if (result == null) {
+            result = Collections.unmodifiableSet(loadTranscripts(entrez));
+            cache.put(entrez, result);
+        }
+        return result;
+    }
+
+    private static int length(String sequence) {
+        return sequence == null ? 0 : sequence.length();
+    }
+
+    private static Set<Transcript> loadTranscripts(int entrez) {
+        final DatabaseConnection conn = Transcript.conn;
+        if (conn == null)
+            throw new IllegalStateException("NOT YET INITIALIZED");
         Set<Transcript> sequences = new HashSet<Transcript>();
 
         try{
-            sequenceQuery.setInt(1, entrez);
-            sequenceQuery.execute();
-            final ResultSet rs = sequenceQuery.getResultSet();
-
-            while (rs.next()) {
-                Transcript sequence = new Transcript(entrez, rs.getString("uniprot_acc"), rs.getString("ENSG"), rs.getString("ENST"), rs.getString("ENSP"), rs.getString("protein_sequence"), rs.getString("coding_sequence"));
-                sequences.add(sequence);
+            final DatabaseConnection.Lease lease = conn.lease();
+            try {
+                final PreparedStatement sequenceQuery = lease.prepare(Transcript.sequenceQuery);
+                sequenceQuery.setInt(1, entrez);
+                sequenceQuery.execute();
+                final ResultSet rs = sequenceQuery.getResultSet();
+
+                while (rs.next()) {
+                    Transcript sequence = new Transcript(entrez, rs.getString("uniprot_acc"), rs.getString("ENSG"), rs.getString("ENST"), rs.getString("ENSP"), rs.getString("protein_sequence"), rs.getString("coding_sequence"));
+                    sequences.add(sequence);
+                }
+                rs.close();
+            } finally {
+                lease.release();
             }
 
         }catch (SQLException e) {
@@ -3,11 +3,19 @@ package de.hu.berlin.wbi.objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Array;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -32,11 +40,17 @@ public class UniprotFeature{
 	/** End location */
 	private final int endLoc;
 
-	/**  Database connection */
-	private static DatabaseConnection conn = null;
+	/**  Database connection, whose pooled connections are used by concurrent lookups */
+	private static volatile DatabaseConnection conn = null;
 
-	/**  Prepared statement for UniProt query*/
-	private static PreparedStatement uniprotQuery;
+	/**  UniProt query*/
+	private static volatile String uniprotQuery;
+
+	/**  UniProt query for several genes, see {@link #getFeatures(Collection)} */
+	private static volatile String uniprotBatchQuery;
+
+	/**  Cache of {@link #getFeatures(int)}, null if disabled */
+	private static volatile GeneCache<List<UniprotFeature>> cache = null;
 
 	public UniprotFeature(int geneId, String modificationType, int startLoc,
 			int endLoc) {
@@ -48,61 +62,151 @@ public class UniprotFeature{
 	}
 
 	/**
-	 * Initializes prepared statements to retrieve UniProt features,
-     * like signaling peptide information
+	 * Initializes the query to retrieve UniProt features,
+     * like signaling peptide information. Replaces a previous initialization.
 	 * @param mysql    mySQL database
 	 * @param uniProt_Table Table name
 	 * @throws SQLException SQL-Exception accessing the database
 	 */
-	public static void init(DatabaseConnection mysql, String uniProt_Table) throws SQLException {
-		if (UniprotFeature.conn != null)
-			throw new IllegalStateException("ALREADY INITIALIZED");
-		UniprotFeature.conn = mysql;
-
-		UniprotFeature.uniprotQuery = UniprotFeature.conn
-		.getConn()
-		.prepareStatement(
-				"SELECT entrez, modification, location"
+	public static synchronized void init(DatabaseConnection mysql, String uniProt_Table) throws SQLException {
+		final String uniprotQuery = "SELECT entrez, modification, location"
 				+ " FROM  " +uniProt_Table 
-				+ " WHERE entrez = ? " 
-		);
+				+ " WHERE entrez = ? ";
+
+		final DatabaseConnection.Lease lease = mysql.lease();
+		try {
+			lease.prepare(uniprotQuery);
+		} finally {
+			lease.release();
+		}
+
+		UniprotFeature.uniprotQuery = uniprotQuery;
+		UniprotFeature.uniprotBatchQuery = uniprotQuery.replace("entrez = ?", "entrez = ANY(?)");
+		UniprotFeature.conn = mysql;
 	}	 
 
 	/**
-	 * Returns all UniProt features for one specific Entrez-Gene Identifier
+	 * Enables a cache of {@link #getFeatures(int)}, which keeps the features of the most recently used genes
+	 * @param maxWeight maximal number of features in the cache, 0 to disable the cache
+	 * @return the cache (e.g. for its statistics), null if disabled
+	 */
+	public static GeneCache<List<UniprotFeature>> setCache(long maxWeight) {
+		cache = maxWeight > 0 ? new GeneCache<List<UniprotFeature>>(maxWeight, new GeneCache.Weigher<List<UniprotFeature>>() {
+			@Override
+			public long weigh(List<UniprotFeature> features) {
+				return 1 + features.size();
+			}
+		}) : null;
+		return cache;
+	}
+
+	/**
+	 * @return the cache of {@link #getFeatures(int)}, null if disabled
+	 */
+	public static GeneCache<List<UniprotFeature>> getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns all UniProt features for one specific Entrez-Gene Identifier.
+	 * If the cache is enabled (see {@link #setCache(long)}), the list is shared and cannot be modified.
 	 * @param geneID -- Entrez Gene ID
 	 * @return List of UniProt features
 	 */
 	public static List<UniprotFeature> getFeatures(int geneID){
-		if (conn == null)
-			throw new IllegalStateException("NOT YET INITIALIZED");
-		final List<UniprotFeature> result = new ArrayList<UniprotFeature>(128);
+		final GeneCache<List<UniprotFeature>> cache = UniprotFeature.cache;
+		if (cache == null)
+			return loadFeatures(geneID);
 
-		try {
-			uniprotQuery.setInt(1, geneID);
-			if (uniprotQuery.execute()) {
-				final ResultSet rs = uniprotQuery.getResultSet();
-				while (rs.next()) {
+		List<UniprotFeature> result = cache.get(geneID);
+		if (result == null) {
+			result = Collections.unmodifiableList(loadFeatures(geneID));
+			cache.put(geneID, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns all UniProt features for several Entrez-Gene Identifiers, e.g. of all genes mentioned in an article,
+	 * with one query instead of one query per gene.
+	 * Cached genes (see {@link #setCache(long)}) are not retrieved again.
+	 * @param geneIDs -- Entrez Gene IDs
+	 * @return mapping from each gene to its list of UniProt features
+	 */
+	public static Map<Integer, List<UniprotFeature>> getFeatures(Collection<Integer> geneIDs){
+		final GeneCache<List<UniprotFeature>> cache = UniprotFeature.cache;
+		final Map<Integer, List<UniprotFeature>> result = new HashMap<Integer, List<UniprotFeature>>();
+		final Set<Integer> missing = new HashSet<Integer>();
+		for (int geneID : new HashSet<Integer>(geneIDs)) {
+			final List<UniprotFeature> features = cache == null ? null : cache.get(geneID);
+			if (features != null)
+				result.put(geneID, features);
+			else
+				missing.add(geneID);
+		}
+		if (missing.isEmpty())
+			return result;
+
+		for (Map.Entry<Integer, List<UniprotFeature>> entry : loadFeatures(missing).entrySet()) {
+			List<UniprotFeature> features = entry.getValue();
+			if (cache != null) {
+				features = Collections.unmodifiableList(features);
+				cache.put(entry.getKey(), features);
+			}
+			result.put(entry.getKey(), features);
+		}
+		return result;
+	}
 
-					String tmp [] = rs.getString("location").split("-");
+	/**
+	 * Loads all UniProt features for one specific Entrez-Gene Identifier from the database
+	 * @param geneID -- Entrez Gene ID
+	 * @return List of UniProt features
+	 */
+	private static List<UniprotFeature> loadFeatures(int geneID){
+		return loadFeatures(Collections.singleton(geneID)).get(geneID);
+	}
 
-					if(tmp.length > 2)//Ignore complicated UniProt features with large span
-						continue;
+	/**
+	 * Loads all UniProt features for several Entrez-Gene Identifiers from the database.
+	 * Databases without array parameters (e.g. Derby) are queried gene by gene.
+	 * @param geneIDs -- Entrez Gene IDs
+	 * @return mapping from each gene to its list of UniProt features
+	 */
+	private static Map<Integer, List<UniprotFeature>> loadFeatures(Collection<Integer> geneIDs){
+		final DatabaseConnection conn = UniprotFeature.conn;
+		if (conn == null)
+			throw new IllegalStateException("NOT YET INITIALIZED");
+		final Map<Integer, List<UniprotFeature>> result = new HashMap<Integer, List<UniprotFeature>>();
+		for (int geneID : geneIDs)
+			result.put(geneID, new ArrayList<UniprotFeature>(geneIDs.size() == 1 ? 128 : 16));
 
-					String mod =  rs.getString("modification"); //Not part of SQL query, because derby has problems with the original IN query
-					if(mod.equals("signal peptide") || mod.equals("splice variant") || mod.equals("transit peptide") || mod.equals("peptide") || mod.equals("propeptide")){
+		try {
+			final DatabaseConnection.Lease lease = conn.lease();
+			try {
+				Array genes = null;
+				if (geneIDs.size() > 1) {
+					try {
+						genes = lease.createIntegerArray(geneIDs);
+					} catch (SQLFeatureNotSupportedException e) {
+						genes = null;
+					}
+				}
 
-						UniprotFeature feature;
-						if(tmp.length == 2)
-							feature = new UniprotFeature(rs.getInt("entrez"), rs.getString("modification"), Integer.parseInt(tmp[0]), Integer.parseInt(tmp[1]));
-						else						
-							feature = new UniprotFeature(rs.getInt("entrez"), rs.getString("modification"), Integer.parseInt(tmp[0]), Integer.parseInt(tmp[0]));					
-						result.add(feature);
+				if (genes != null) {
+					final PreparedStatement uniprotQuery = lease.prepare(uniprotBatchQuery);
+					uniprotQuery.setArray(1, genes);
+					loadFeatures(uniprotQuery, result);
+				} else {
+					final PreparedStatement uniprotQuery = lease.prepare(UniprotFeature.uniprotQuery);
+					for (int geneID : geneIDs) {
+						uniprotQuery.setInt(1, geneID);
+						loadFeatures(uniprotQuery, result);
 					}
 				}
-				rs.close();				
+			} finally {
+				lease.release();
 			}
-
 		}catch (SQLException e) {
 			logger.error("Problem accessing database", e);
 			throw new RuntimeException(e);
@@ -111,6 +215,37 @@ public class UniprotFeature{
 		return result;
 	}
 
+	/**
+	 * Loads the UniProt features selected by a statement of one pooled connection
+	 * @param uniprotQuery prepared UniProt query
+	 * @param result mapping from each gene to its list of UniProt features
+	 * @throws SQLException SQL-Exception accessing the database
+	 */
+	private static void loadFeatures(PreparedStatement uniprotQuery, Map<Integer, List<UniprotFeature>> result) throws SQLException {
+		if (uniprotQuery.execute()) {
+			final ResultSet rs = uniprotQuery.getResultSet();
+			while (rs.next()) {
+
+				String tmp [] = rs.getString("location").split("-");
+
+				if(tmp.length > 2)//Ignore complicated UniProt features with large span
+					continue;
+
+				String mod =  rs.getString("modification"); //Not part of SQL query, because derby has problems with the original IN query
+				if(mod.equals("signal peptide") || mod.equals("splice variant") || mod.equals("transit peptide") || mod.equals("peptide") || mod.equals("propeptide")){
+
+					UniprotFeature feature;
+					if(tmp.length == 2)
+						feature = new UniprotFeature(rs.getInt("entrez"), rs.getString("modification"), Integer.parseInt(tmp[0]), Integer.parseInt(tmp[1]));
+					else						
+						feature = new UniprotFeature(rs.getInt("entrez"), rs.getString("modification"), Integer.parseInt(tmp[0]), Integer.parseInt(tmp[0]));					
+					result.get(feature.getGeneId()).add(feature);
+				}
+			}
+			rs.close();				
+		}
+	}
+
 	/**
 	 * (non-Javadoc)
 	 * 
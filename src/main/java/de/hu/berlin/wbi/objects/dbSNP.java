@@ -1,10 +1,14 @@
 package de.hu.berlin.wbi.objects;
 
+import java.sql.Array;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -43,126 +47,326 @@ public class dbSNP {
 	/** Used to split residues  */
 	private static final Pattern pattern = Pattern.compile("\\|");
 
-    /** Database connection */
-    private static DatabaseConnection conn = null;
+    /** Database connection, whose pooled connections are used by concurrent lookups */
+    private static volatile DatabaseConnection conn = null;
 
-    /** Prepared statement for HGVS entries*/
-    private static PreparedStatement hgvsQuery;
+    /** Query for HGVS entries*/
+    private static volatile String hgvsQuery;
 
-    /** Prepared statement for PSM entries*/
-	private static PreparedStatement snpQuery;
+    /** Query for PSM entries*/
+	private static volatile String snpQuery;
+
+    /** Query for HGVS entries of several genes, see {@link #getSNPs(Collection)} */
+    private static volatile String hgvsBatchQuery;
+
+    /** Query for PSM entries of several genes, see {@link #getSNPs(Collection)} */
+    private static volatile String snpBatchQuery;
+
+    /** Read-only store used instead of the database, see {@link #init(dbSNPStore)} */
+    private static volatile dbSNPStore store = null;
+
+    /** Cache of {@link #getSNP(int)}, null if disabled */
+    private static volatile GeneCache<List<dbSNP>> cache = null;
 
 	/**
-	 * Initializes prepared statements for retrieving SNP information
+	 * Initializes the queries for retrieving SNP information.
+	 * Replaces a previous initialization, e.g. a store set by {@link #init(dbSNPStore)}.
 	 * @param mysql     database connection
 	 * @param psmTable  PSM Table name
 	 * @param hgvs_view HGVS Table name
 	 * @throws SQLException SQL-Exception accessing the database
 	 */
-	public static void init(DatabaseConnection mysql,
+	public static synchronized void init(DatabaseConnection mysql,
 			String psmTable, String hgvs_view)
 	throws SQLException {
-		if (dbSNP.conn != null)
-			throw new IllegalStateException("ALREADY INITIALIZED");
+		final String snpQuery = "SELECT snp_id, locus_id, aa_Position, residue, wildtype "
+				+ "FROM "  +psmTable + " WHERE locus_id = ? ";
+		final String hgvsQuery = "SELECT snp_id, locus_id, hgvs AS hgvs_name FROM " +hgvs_view +" WHERE locus_id = ?";
+
+		//Prepares both queries once, so that misspelled tables are reported here
+		final DatabaseConnection.Lease lease = mysql.lease();
+		try {
+			lease.prepare(snpQuery);
+			lease.prepare(hgvsQuery);
+		} finally {
+			lease.release();
+		}
+
+		dbSNP.snpQuery = snpQuery;
+		dbSNP.hgvsQuery = hgvsQuery;
+		dbSNP.snpBatchQuery = snpQuery.replace("locus_id = ?", "locus_id = ANY(?)");
+		dbSNP.hgvsBatchQuery = hgvsQuery.replace("locus_id = ?", "locus_id = ANY(?)");
 		dbSNP.conn = mysql;
+		dbSNP.store = null;
+	}
 
-		dbSNP.snpQuery = dbSNP.conn
-		.getConn()
-		.prepareStatement(
-				"SELECT snp_id, locus_id, aa_Position, residue, wildtype "
-				+ "FROM "  +psmTable + " WHERE locus_id = ? "
-		);
-		dbSNP.hgvsQuery = dbSNP.conn
-		.getConn()
-		.prepareStatement(
-				"SELECT snp_id, hgvs AS hgvs_name FROM " +hgvs_view +" WHERE locus_id = ?");
+	/**
+	 * Initializes the retrieval of SNP information from a local store instead of a database.
+	 * Replaces a previous initialization, e.g. a database set by {@link #init(DatabaseConnection, String, String)}.
+	 * @param store     store built from the files PSM.tsv and hgvs.tsv, see {@link dbSNPStore}
+	 */
+	public static synchronized void init(dbSNPStore store) {
+		dbSNP.store = store;
+		dbSNP.conn = null;
+	}
 
+	/**
+	 * Enables a cache of {@link #getSNP(int)}, which keeps the entries of the most recently used genes
+	 * @param maxWeight maximal number of dbSNP and HGVS entries in the cache, 0 to disable the cache
+	 * @return the cache (e.g. for its statistics), null if disabled
+	 */
+	public static GeneCache<List<dbSNP>> setCache(long maxWeight) {
+		cache = maxWeight > 0 ? new GeneCache<List<dbSNP>>(maxWeight, new GeneCache.Weigher<List<dbSNP>>() {
+			@Override
+			public long weigh(List<dbSNP> snps) {
+				long weight = 1;
+				for (dbSNP snp : snps)
+					weight += 1 + (snp.getHgvs() == null ? 0 : snp.getHgvs().size());
+				return weight;
+			}
+		}) : null;
+		return cache;
 	}
 
 	/**
-	 * Retrieves a list of dbSNP entries associated with a specific entrez-gene ID
+	 * @return the cache of {@link #getSNP(int)}, null if disabled
+	 */
+	public static GeneCache<List<dbSNP>> getCache() {
+		return cache;
+	}
+
+	/**
+	 * Retrieves a list of dbSNP entries associated with a specific entrez-gene ID.
+	 * If the cache is enabled (see {@link #setCache(long)}), the list is shared and cannot be modified.
 	 * 
 	 * @param geneID Entrez-Gene Identifier
 	 * @return list of all snps associated with geneID
 	 */
 	public static List<dbSNP> getSNP(int geneID) {
+		final GeneCache<List<dbSNP>> cache = dbSNP.cache;
+		if (cache == null)
+			return loadSNP(geneID);
+
+		List<dbSNP> result = cache.get(geneID);
+		if (result == null) {
+			result = Collections.unmodifiableList(loadSNP(geneID));
+			cache.put(geneID, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Retrieves the dbSNP entries of several genes, e.g. of all genes mentioned in an article,
+	 * with one query for PSM and one for HGVS entries instead of two queries per gene.
+	 * Cached genes (see {@link #setCache(long)}) are not retrieved again.
+	 *
+	 * @param geneIDs Entrez-Gene Identifiers
+	 * @return mapping from each gene to the list of all snps associated with it
+	 */
+	public static Map<Integer, List<dbSNP>> getSNPs(Collection<Integer> geneIDs) {
+		final GeneCache<List<dbSNP>> cache = dbSNP.cache;
+		final Map<Integer, List<dbSNP>> result = new HashMap<Integer, List<dbSNP>>();
+		final Set<Integer> missing = new HashSet<Integer>();
+		for (int geneID : new HashSet<Integer>(geneIDs)) {
+			final List<dbSNP> snps = cache == null ? null : cache.get(geneID);
+			if (snps != null)
+				result.put(geneID, snps);
+			else
+				missing.add(geneID);
+		}
+		if (missing.isEmpty())
+			return result;
+
+		for (Map.Entry<Integer, List<dbSNP>> entry : loadSNPs(missing).entrySet()) {
+			List<dbSNP> snps = entry.getValue();
+			if (cache != null) {
+				snps = Collections.unmodifiableList(snps);
+				cache.put(entry.getKey(), snps);
+			}
+			result.put(entry.getKey(), snps);
+		}
+		return result;
+	}
+
+	/**
+	 * Retrieves a list of dbSNP entries associated with a specific entrez-gene ID from the store or the database
+	 *
+	 * @param geneID Entrez-Gene Identifier
+	 * @return list of all snps associated with geneID
+	 */
+	private static List<dbSNP> loadSNP(int geneID) {
+		final dbSNPStore store = dbSNP.store;
+		if (store != null)
+			return store.getSNP(geneID);
+		final DatabaseConnection conn = dbSNP.conn;
 		if (conn == null)
 			throw new IllegalStateException("NOT YET INITIALIZED");
-		final List<dbSNP> result = new ArrayList<dbSNP>(1000);
 
-		// Query searches for SNP's which do have an impact on the amino acid level 	
 		try {
-			snpQuery.setInt(1, geneID);
-			if (snpQuery.execute()) {
-				final ResultSet rs = snpQuery.getResultSet();
-				while (rs.next()) {
-					dbSNP dbSNP = new dbSNP(rs.getInt("snp_id"),
-							rs.getInt("locus_id"),
-							new HashSet<String>(
-									Arrays.asList(pattern.split(rs
-											.getString("residue")))),
-											rs.getInt("aa_Position"),
-											rs.getString("wildtype"));
-
-					result.add(dbSNP);
-				}
-				rs.close();
-			} else {} //Empty result (no SNP found for this gene)
+			final DatabaseConnection.Lease lease = conn.lease();
+			try {
+				final PreparedStatement snpQuery = lease.prepare(dbSNP.snpQuery);
+				final PreparedStatement hgvsQuery = lease.prepare(dbSNP.hgvsQuery);
+				snpQuery.setInt(1, geneID);
+				hgvsQuery.setInt(1, geneID);
+				return loadSNPs(Collections.singleton(geneID), snpQuery, hgvsQuery).get(geneID);
+			} finally {
+				lease.release();
+			}
 		} catch (SQLException e) {
 			throw new RuntimeException(e);
 		}
+	}
 
-		//Retrieves information about SNP's which have an impact on nucleotide level from another table (hgvs)
-		try {
-			hgvsQuery.setInt(1, geneID);
-			if (hgvsQuery.execute()) {
-				final ResultSet resultSet = hgvsQuery.getResultSet();
-				final Map<Integer, Set<HGVS>> tmp = new HashMap<Integer, Set<HGVS>>();   //Mapping from dbSNP to different HGVS representations
-				while (resultSet.next()) {		//Iterate over all HGVS-Strings for a specific gene
-					int rsId = resultSet.getInt("snp_id");
-
-					Set<HGVS> hgvss = new HashSet<HGVS>();
-					if (tmp.containsKey(rsId)) {
-						hgvss.addAll(tmp.get(rsId));
-					}
-					hgvss.add(new HGVS(resultSet.getString("hgvs_name")));
-					tmp.put(rsId, hgvss);
-
-				}
-				resultSet.close();
-
-				//Now associate all (PSM)-SNPs retrieved in Query1 with the associated HGVS information
-				for (dbSNP snp : result) {
-					snp.setHgvs(tmp.get(snp.getRsID()));	//Set the HGVS information for all dbSNP objects found in query "snpQuery"
-				}
+	/**
+	 * Retrieves the dbSNP entries of several genes from the store or the database.
+	 * Databases without array parameters (e.g. Derby) are queried gene by gene.
+	 *
+	 * @param geneIDs Entrez-Gene Identifiers
+	 * @return mapping from each gene to the list of all snps associated with it
+	 */
+	private static Map<Integer, List<dbSNP>> loadSNPs(Collection<Integer> geneIDs) {
+		final dbSNPStore store = dbSNP.store;
+		if (store != null || geneIDs.size() == 1) {
+			final Map<Integer, List<dbSNP>> result = new HashMap<Integer, List<dbSNP>>();
+			for (int geneID : geneIDs)
+				result.put(geneID, loadSNP(geneID));
+			return result;
+		}
+		final DatabaseConnection conn = dbSNP.conn;
+		if (conn == null)
+			throw new IllegalStateException("NOT YET INITIALIZED");
 
-				//Okay, the only problem we are left is, that most SNPs are not located on the protein-coding sequence..
-				//Thus we search for those HGVS entries without an associated PSM entry and generate a new dbSNP object
-				for(Integer rs: tmp.keySet()){ //Iterate over all found rs's
-					boolean contained = false;
-					loop:for (dbSNP snp : result) {
-						if(rs == snp.rsID){
-							contained = true;
-							break loop;
-						}						
-					}
-					if(!contained){	//If we did not find the corresponding dbSNP entry, we add a new one without PSM mutations
-						dbSNP tmpSNP = new dbSNP();
-						tmpSNP.setRsID(rs);
-                        tmpSNP.setGeneID(geneID);
-                        tmpSNP.setHgvs(tmp.get(rs));
-						result.add(tmpSNP);
+		try {
+			final DatabaseConnection.Lease lease = conn.lease();
+			try {
+				final Array genes;
+				try {
+					genes = lease.createIntegerArray(geneIDs);
+				} catch (SQLFeatureNotSupportedException e) {
+					final PreparedStatement snpQuery = lease.prepare(dbSNP.snpQuery);
+					final PreparedStatement hgvsQuery = lease.prepare(dbSNP.hgvsQuery);
+					final Map<Integer, List<dbSNP>> result = new HashMap<Integer, List<dbSNP>>();
+					for (int geneID : geneIDs) {
+						snpQuery.setInt(1, geneID);
+						hgvsQuery.setInt(1, geneID);
+						result.putAll(loadSNPs(Collections.singleton(geneID), snpQuery, hgvsQuery));
 					}
+					return result;
 				}
 
-			} else {}//Empty result (no SNP found for this gene)
+				final PreparedStatement snpQuery = lease.prepare(snpBatchQuery);
+				final PreparedStatement hgvsQuery = lease.prepare(hgvsBatchQuery);
+				snpQuery.setArray(1, genes);
+				hgvsQuery.setArray(1, genes);
+				return loadSNPs(geneIDs, snpQuery, hgvsQuery);
+			} finally {
+				lease.release();
+			}
 		} catch (SQLException e) {
 			throw new RuntimeException(e);
 		}
+	}
+
+	/**
+	 * Retrieves the dbSNP entries of several genes using the statements of one pooled connection
+	 *
+	 * @param geneIDs   Entrez-Gene Identifiers
+	 * @param snpQuery  prepared statement for PSM entries of these genes
+	 * @param hgvsQuery prepared statement for HGVS entries of these genes
+	 * @return mapping from each gene to the list of all snps associated with it
+	 * @throws SQLException SQL-Exception accessing the database
+	 */
+	private static Map<Integer, List<dbSNP>> loadSNPs(Collection<Integer> geneIDs, PreparedStatement snpQuery, PreparedStatement hgvsQuery) throws SQLException {
+		final Map<Integer, List<dbSNP>> result = new HashMap<Integer, List<dbSNP>>();
+		for (int geneID : geneIDs)
+			result.put(geneID, new ArrayList<dbSNP>(geneIDs.size() == 1 ? 1000 : 100));
+
+		// Query searches for SNP's which do have an impact on the amino acid level 	
+		if (snpQuery.execute()) {
+			final ResultSet rs = snpQuery.getResultSet();
+			while (rs.next()) {
+				dbSNP dbSNP = new dbSNP(rs.getInt("snp_id"),
+						rs.getInt("locus_id"),
+						splitResidues(rs.getString("residue")),
+						rs.getInt("aa_Position"),
+						rs.getString("wildtype"));
+
+				result.get(dbSNP.getGeneID()).add(dbSNP);
+			}
+			rs.close();
+		} else {} //Empty result (no SNP found for these genes)
+
+		//Retrieves information about SNP's which have an impact on nucleotide level from another table (hgvs)
+		final Map<Integer, Map<Integer, Set<HGVS>>> tmp = new HashMap<Integer, Map<Integer, Set<HGVS>>>();   //Mapping from gene to dbSNP to different HGVS representations
+		for (int geneID : geneIDs)
+			tmp.put(geneID, new HashMap<Integer, Set<HGVS>>());
+		if (hgvsQuery.execute()) {
+			final ResultSet resultSet = hgvsQuery.getResultSet();
+			while (resultSet.next()) {		//Iterate over all HGVS-Strings for these genes
+				addHgvs(tmp.get(resultSet.getInt("locus_id")), resultSet.getInt("snp_id"), new HGVS(resultSet.getString("hgvs_name")));
+			}
+			resultSet.close();
+		} else {}//Empty result (no SNP found for these genes)
+
+		for (int geneID : geneIDs)
+			associateHgvs(geneID, result.get(geneID), tmp.get(geneID));
 
 		return result;
 	}
 
+	/**
+	 * Splits the residues of a PSM entry
+	 * @param residue  residues separated by '|'
+	 * @return set of residues
+	 */
+	static Set<String> splitResidues(String residue) {
+		return new HashSet<String>(Arrays.asList(pattern.split(residue)));
+	}
+
+	/**
+	 * Adds a HGVS representation of a SNP
+	 * @param hgvs     mapping from dbSNP identifier to HGVS representations
+	 * @param rsID     dbSNP identifier
+	 * @param entry    HGVS representation
+	 */
+	static void addHgvs(Map<Integer, Set<HGVS>> hgvs, int rsID, HGVS entry) {
+		Set<HGVS> hgvss = hgvs.get(rsID);
+		if (hgvss == null) {
+			hgvss = new HashSet<HGVS>();
+			hgvs.put(rsID, hgvss);
+		}
+		hgvss.add(entry);
+	}
+
+	/**
+	 * Associates the PSM entries of a gene with their HGVS representations
+	 * and adds the SNPs having HGVS representations only
+	 * @param geneID   Entrez-Gene Identifier
+	 * @param result   PSM entries of the gene, the SNPs without PSM entry are appended
+	 * @param hgvs     mapping from dbSNP identifier to HGVS representations
+	 */
+	static void associateHgvs(int geneID, List<dbSNP> result, Map<Integer, Set<HGVS>> hgvs) {
+		//Now associate all (PSM)-SNPs with the associated HGVS information
+		Set<Integer> psm = new HashSet<Integer>();
+		for (dbSNP snp : result) {
+			snp.setHgvs(hgvs.get(snp.getRsID()));
+			psm.add(snp.getRsID());
+		}
+
+		//Okay, the only problem we are left is, that most SNPs are not located on the protein-coding sequence..
+		//Thus we search for those HGVS entries without an associated PSM entry and generate a new dbSNP object
+		for (Map.Entry<Integer, Set<HGVS>> entry : hgvs.entrySet()) {
+			if (!psm.contains(entry.getKey())) {	//If we did not find the corresponding dbSNP entry, we add a new one without PSM mutations
+				dbSNP tmpSNP = new dbSNP();
+				tmpSNP.setRsID(entry.getKey());
+				tmpSNP.setGeneID(geneID);
+				tmpSNP.setHgvs(entry.getValue());
+				result.add(tmpSNP);
+			}
+		}
+	}
+
 	/**
 	 * Simple constructor 
 	 */
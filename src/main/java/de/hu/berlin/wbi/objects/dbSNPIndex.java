@@ -0,0 +1,142 @@
+package de.hu.berlin.wbi.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Index of the {@link dbSNP} entries of a gene, which selects the few entries a {@link MutationMention}
+ * can be normalized to, instead of comparing the mention with all entries of the gene
+ * (see {@link MutationMention#normalizeSNP(dbSNPIndex, List, boolean)}).
+ * The index is built once per gene and can be shared by several threads.
+ * HGVS representations are indexed by type and location (e.g. p.123), PSM entries by amino acid position and wildtype residue.
+ */
+public class dbSNPIndex {
+
+    /** Indexed dbSNP entries */
+    private final List<dbSNP> snps;
+
+    /** Positions of the entries in {@link #snps} by HGVS type and location */
+    private final Map<String, List<Integer>> hgvs = new HashMap<String, List<Integer>>();
+
+    /** Positions of the entries in {@link #snps} by amino acid position and wildtype residue */
+    private final Map<String, List<Integer>> psm = new HashMap<String, List<Integer>>();
+
+    /**
+     * @param snps dbSNP entries of a gene, e.g. retrieved by {@link dbSNP#getSNP(int)}
+     */
+    public dbSNPIndex(List<dbSNP> snps) {
+        this.snps = snps;
+
+        for (int i = 0; i < snps.size(); i++) {
+            final dbSNP snp = snps.get(i);
+
+            if (snp.getHgvs() != null) {
+                for (HGVS entry : snp.getHgvs()) {
+                    if (entry.getMutation() == null || entry.getWildtype() == null || entry.getLocation() == null)
+                        continue;
+                    if (entry.getType() != 'p' && entry.getType() != 'c' && entry.getType() != 'g')
+                        continue;
+                    add(hgvs, entry.getType() + entry.getLocation(), i);
+                }
+            }
+
+            if (snp.getResidues() != null)
+                add(psm, snp.getAaPosition() + snp.getWildtype(), i);
+        }
+    }
+
+    private static void add(Map<String, List<Integer>> index, String key, int i) {
+        List<Integer> positions = index.get(key);
+        if (positions == null) {
+            positions = new ArrayList<Integer>(1);
+            index.put(key, positions);
+        } else if (positions.get(positions.size() - 1) == i)
+            return;     //Entry has several HGVS representations with the same location
+        positions.add(i);
+    }
+
+    private static void lookup(Map<String, List<Integer>> index, String key, SortedSet<Integer> result) {
+        final List<Integer> positions = index.get(key);
+        if (positions != null)
+            result.addAll(positions);
+    }
+
+    /**
+     * Selects the dbSNP entries which are located at the position of a mutation mention,
+     * at a +/-1 offset (leading methionine) or at an offset derived from UniProt features.
+     * The entries still have to be compared with the mention.
+     *
+     * @param position   location of the mutation mention
+     * @param wtResidue  wildtype residue of the mutation mention
+     * @param mutResidue mutated residue of the mutation mention
+     * @param features   associated UniProt features
+     * @return candidate entries in the order of the indexed list
+     */
+    List<dbSNP> getCandidates(String position, String wtResidue, String mutResidue, List<UniprotFeature> features) {
+        final SortedSet<Integer> result = new TreeSet<Integer>();
+
+        //Exact location of protein and nucleotide sequence mutations
+        lookup(hgvs, 'p' + position, result);
+        lookup(hgvs, 'c' + position, result);
+        lookup(hgvs, 'g' + position, result);
+
+        final int loc;
+        try {
+            loc = Integer.parseInt(position);
+        } catch (NumberFormatException nfe) {
+            return select(result);
+        }
+
+        //Protein sequence mutations with an offset of one
+        lookup(hgvs, "p" + (loc - 1), result);
+        lookup(hgvs, "p" + (loc + 1), result);
+
+        //PSM entries match only positions written as plain numbers
+        if (!Integer.toString(loc).equals(position) || psm.isEmpty())
+            return select(result);
+
+        final List<Integer> aaPositions = new ArrayList<Integer>(3 + features.size());
+        aaPositions.add(loc);
+        aaPositions.add(loc - 1);
+        aaPositions.add(loc + 1);
+        for (UniprotFeature feature : features)
+            aaPositions.add(loc + feature.getEndLoc() - feature.getStartLoc() + 1);
+
+        //The wildtype of swapped entries is the mutated residue of the mention
+        for (int aaPosition : aaPositions) {
+            lookup(psm, aaPosition + wtResidue, result);
+            lookup(psm, aaPosition + mutResidue, result);
+        }
+
+        return select(result);
+    }
+
+    private List<dbSNP> select(SortedSet<Integer> positions) {
+        if (positions.isEmpty())
+            return Collections.emptyList();
+
+        final List<dbSNP> result = new ArrayList<dbSNP>(positions.size());
+        for (int i : positions)
+            result.add(snps.get(i));
+        return result;
+    }
+
+    /**
+     * @return indexed dbSNP entries
+     */
+    public List<dbSNP> getSNPs() {
+        return snps;
+    }
+
+    /**
+     * @return number of indexed dbSNP entries
+     */
+    public int size() {
+        return snps.size();
+    }
+}
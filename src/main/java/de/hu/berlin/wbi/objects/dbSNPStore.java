@@ -0,0 +1,387 @@
+package de.hu.berlin.wbi.objects;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Read-only store of the dbSNP entries required for normalization, which replaces the database tables PSM and hgvs.
+ * The store is built once from the files PSM.tsv and hgvs.tsv written by
+ * {@link de.hu.berlin.wbi.stuff.dbSNPParser.json.ParseJSONToFile} (see {@link #build(File, File, File)}).
+ * It contains one record per Entrez gene with the PSM entries and the already parsed {@link HGVS} entries of the gene,
+ * and an index of the records sorted by gene. The file is memory-mapped by {@link #open(File)};
+ * thus, {@link #getSNP(int)} neither needs a database server nor parses HGVS strings.
+ * A store can be shared by several threads.
+ */
+public final class dbSNPStore {
+
+    /** Identifies store files */
+    private static final int MAGIC = 0x53455448;
+
+    /** Version of the file format */
+    private static final int VERSION = 1;
+
+    /** Size of the header (magic number and version) */
+    private static final int HEADER = 8;
+
+    /** Size of the footer (number of genes, offset of the index and magic number) */
+    private static final int FOOTER = 16;
+
+    /** Size of an index entry (gene, offset and length of the record) */
+    private static final int INDEX_ENTRY = 16;
+
+    /** The records are mapped in segments of 2^SEGMENT_SHIFT bytes (plus the longest record) */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /** Number of bytes of the input files per temporary bucket of {@link #build(File, File, File)} */
+    private static final long BUCKET_SIZE = 64L << 20;
+
+    /** Maximal number of temporary buckets */
+    private static final int MAX_BUCKETS = 512;
+
+    /** Entry types in the temporary buckets */
+    private static final byte PSM_ENTRY = 0;
+    private static final byte HGVS_ENTRY = 1;
+
+    /** Genes in ascending order */
+    private final int[] genes;
+
+    /** Offsets of the records of the genes */
+    private final long[] offsets;
+
+    /** Mapped records */
+    private final MappedByteBuffer[] segments;
+
+    private final int segmentShift;
+
+    private dbSNPStore(int[] genes, long[] offsets, MappedByteBuffer[] segments, int segmentShift) {
+        this.genes = genes;
+        this.offsets = offsets;
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+    }
+
+    /**
+     * Opens a store
+     *
+     * @param file store built by {@link #build(File, File, File)}
+     * @return the store
+     * @throws IOException if the file cannot be read or is no store
+     */
+    public static dbSNPStore open(File file) throws IOException {
+        return open(file, SEGMENT_SHIFT);
+    }
+
+    static dbSNPStore open(File file, int segmentShift) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER + FOOTER)
+                throw new IOException("'" + file + "' is no dbSNP store");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER, FOOTER);
+            if (header.getInt(0) != MAGIC || footer.getInt(12) != MAGIC)
+                throw new IOException("'" + file + "' is no dbSNP store");
+            if (header.getInt(4) != VERSION)
+                throw new IOException("Unsupported version " + header.getInt(4) + " of dbSNP store '" + file + "'");
+
+            int count = footer.getInt(0);
+            long indexOffset = footer.getLong(4);
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) count * INDEX_ENTRY);
+            int[] genes = new int[count];
+            long[] offsets = new long[count];
+            int longest = 0;
+            for (int i = 0; i < count; i++) {
+                genes[i] = index.getInt();
+                offsets[i] = index.getLong();
+                longest = Math.max(longest, index.getInt());
+            }
+
+            //Every record is contained in the segment of its offset
+            long segmentSize = 1L << segmentShift;
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((indexOffset + segmentSize - 1) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(indexOffset, start + segmentSize + longest) - start);
+            }
+            return new dbSNPStore(genes, offsets, segments, segmentShift);
+        } finally {
+            raf.close();    //The mappings remain valid
+        }
+    }
+
+    /**
+     * Retrieves the dbSNP entries associated with a specific entrez-gene ID, like {@link dbSNP#getSNP(int)}
+     *
+     * @param geneID Entrez-Gene Identifier
+     * @return list of all snps associated with geneID
+     */
+    public List<dbSNP> getSNP(int geneID) {
+        List<dbSNP> result = new ArrayList<dbSNP>();
+        int i = Arrays.binarySearch(genes, geneID);
+        if (i < 0)
+            return result;
+
+        ByteBuffer record = segments[(int) (offsets[i] >>> segmentShift)].duplicate();
+        record.position((int) (offsets[i] & ((1L << segmentShift) - 1)));
+
+        int psm = record.getInt();
+        for (int j = 0; j < psm; j++) {
+            int rsID = record.getInt();
+            int aaPosition = record.getInt();
+            String residue = readString(record);
+            String wildtype = readString(record);
+            result.add(new dbSNP(rsID, geneID, dbSNP.splitResidues(residue), aaPosition, wildtype));
+        }
+
+        int snps = record.getInt();
+        Map<Integer, Set<HGVS>> hgvs = new HashMap<Integer, Set<HGVS>>();
+        for (int j = 0; j < snps; j++) {
+            int rsID = record.getInt();
+            int entries = record.getInt();
+            for (int k = 0; k < entries; k++) {
+                char type = record.getChar();
+                boolean insdeldup = record.get() != 0;
+                String location = readString(record);
+                String wildtype = readString(record);
+                String mutation = readString(record);
+                dbSNP.addHgvs(hgvs, rsID, new HGVS(type, location, wildtype, mutation, insdeldup));
+            }
+        }
+        dbSNP.associateHgvs(geneID, result, hgvs);
+
+        return result;
+    }
+
+    /**
+     * @return number of genes in the store
+     */
+    public int size() {
+        return genes.length;
+    }
+
+    /**
+     * Builds a store from the files written by {@link de.hu.berlin.wbi.stuff.dbSNPParser.json.ParseJSONToFile}.
+     * The entries are first distributed by gene to temporary files next to the store, so that the input files
+     * do not have to fit into memory.
+     *
+     * @param psmFile   PSM.tsv (snp_id, locus_id, aa_Position, residue, wildtype separated by tabs)
+     * @param hgvsFile  hgvs.tsv (locus_id, snp_id, hgvs, refseq separated by tabs)
+     * @param storeFile the store to be written
+     * @throws IOException if a file cannot be read or written or an input file is malformed
+     */
+    public static void build(File psmFile, File hgvsFile, File storeFile) throws IOException {
+        int count = (int) Math.min(MAX_BUCKETS, (psmFile.length() + hgvsFile.length()) / BUCKET_SIZE + 1);
+        File directory = storeFile.getAbsoluteFile().getParentFile();
+        File[] buckets = new File[count];
+        try {
+            DataOutputStream[] writers = new DataOutputStream[count];
+            try {
+                for (int i = 0; i < count; i++) {
+                    buckets[i] = File.createTempFile("dbSNPStore", ".tmp", directory);
+                    writers[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(buckets[i])));
+                }
+                distribute(psmFile, writers, 5, PSM_ENTRY);
+                distribute(hgvsFile, writers, 4, HGVS_ENTRY);
+            } finally {
+                for (DataOutputStream writer : writers) {
+                    if (writer != null)
+                        writer.close();
+                }
+            }
+
+            TreeMap<Integer, long[]> index = new TreeMap<Integer, long[]>();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(storeFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                long offset = HEADER;
+                for (File bucket : buckets) {
+                    for (Map.Entry<Integer, GeneEntries> gene : readBucket(bucket).entrySet()) {
+                        byte[] record = gene.getValue().toRecord();
+                        if (record.length >= 1 << SEGMENT_SHIFT)
+                            throw new IOException("Entries of gene " + gene.getKey() + " exceed " + (1 << SEGMENT_SHIFT) + " bytes");
+                        out.write(record);
+                        index.put(gene.getKey(), new long[]{offset, record.length});
+                        offset += record.length;
+                    }
+                    if (!bucket.delete())
+                        bucket.deleteOnExit();
+                }
+
+                for (Map.Entry<Integer, long[]> entry : index.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeLong(entry.getValue()[0]);
+                    out.writeInt((int) entry.getValue()[1]);
+                }
+                out.writeInt(index.size());
+                out.writeLong(offset);
+                out.writeInt(MAGIC);
+            } finally {
+                out.close();
+            }
+        } finally {
+            for (File bucket : buckets) {
+                if (bucket != null && bucket.exists() && !bucket.delete())
+                    bucket.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Writes the entries of a tab separated file to the buckets of their genes
+     */
+    private static void distribute(File file, DataOutputStream[] buckets, int columns, byte type) throws IOException {
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                String[] split = line.split("\t", -1);
+                if (split.length != columns)
+                    throw new IOException("Expected " + columns + " columns in line " + lineNumber + " of '" + file + "'");
+                try {
+                    if (type == PSM_ENTRY) {
+                        int gene = Integer.parseInt(split[1]);
+                        DataOutputStream bucket = buckets[Math.floorMod(gene, buckets.length)];
+                        bucket.writeByte(PSM_ENTRY);
+                        bucket.writeInt(gene);
+                        bucket.writeInt(Integer.parseInt(split[0]));
+                        bucket.writeInt(Integer.parseInt(split[2]));
+                        bucket.writeUTF(split[3]);
+                        bucket.writeUTF(split[4]);
+                    } else {
+                        int gene = Integer.parseInt(split[0]);
+                        DataOutputStream bucket = buckets[Math.floorMod(gene, buckets.length)];
+                        bucket.writeByte(HGVS_ENTRY);
+                        bucket.writeInt(gene);
+                        bucket.writeInt(Integer.parseInt(split[1]));
+                        bucket.writeUTF(split[2]);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed number in line " + lineNumber + " of '" + file + "'", e);
+                }
+            }
+        } finally {
+            br.close();
+        }
+    }
+
+    /**
+     * Groups the entries of a bucket by gene
+     */
+    private static TreeMap<Integer, GeneEntries> readBucket(File bucket) throws IOException {
+        TreeMap<Integer, GeneEntries> genes = new TreeMap<Integer, GeneEntries>();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(bucket)));
+        try {
+            int type;
+            while ((type = in.read()) >= 0) {
+                int gene = in.readInt();
+                GeneEntries entries = genes.get(gene);
+                if (entries == null) {
+                    entries = new GeneEntries();
+                    genes.put(gene, entries);
+                }
+                int rsID = in.readInt();
+                if (type == PSM_ENTRY) {
+                    int aaPosition = in.readInt();
+                    entries.psm.add(Arrays.asList(String.valueOf(rsID), String.valueOf(aaPosition), in.readUTF(), in.readUTF()));
+                } else {
+                    Set<HGVS> hgvs = entries.hgvs.get(rsID);
+                    if (hgvs == null) {
+                        hgvs = new LinkedHashSet<HGVS>();
+                        entries.hgvs.put(rsID, hgvs);
+                    }
+                    hgvs.add(new HGVS(in.readUTF()));
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return genes;
+    }
+
+    /**
+     * Entries of one gene while building a store
+     */
+    private static final class GeneEntries {
+        /** Distinct PSM entries (snp_id, aa_Position, residue, wildtype) */
+        final Set<List<String>> psm = new LinkedHashSet<List<String>>();
+        /** Distinct HGVS entries of every SNP */
+        final Map<Integer, Set<HGVS>> hgvs = new LinkedHashMap<Integer, Set<HGVS>>();
+
+        byte[] toRecord() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(psm.size());
+            for (List<String> entry : psm) {
+                out.writeInt(Integer.parseInt(entry.get(0)));
+                out.writeInt(Integer.parseInt(entry.get(1)));
+                writeString(out, entry.get(2));
+                writeString(out, entry.get(3));
+            }
+            out.writeInt(hgvs.size());
+            for (Map.Entry<Integer, Set<HGVS>> snp : hgvs.entrySet()) {
+                out.writeInt(snp.getKey());
+                out.writeInt(snp.getValue().size());
+                for (HGVS entry : snp.getValue()) {
+                    out.writeChar(entry.getType());
+                    out.writeByte(entry.isInsdeldup() ? 1 : 0);
+                    writeString(out, entry.getLocation());
+                    writeString(out, entry.getWildtype());
+                    writeString(out, entry.getMutation());
+                }
+            }
+            out.close();
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Writes a string as length (-1 for null) and UTF-8 bytes
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+            throw new IOException("String too long for dbSNP store: '" + string.substring(0, 64) + "...'");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -54,6 +54,10 @@ public class ApplyNENToJSONCorpora {
 			throw new RuntimeException(e);
 		}
 
+		//Keep the entries of frequently mentioned genes between articles (sizes in dbSNP/HGVS entries and UniProt features)
+		dbSNP.setCache(Long.parseLong(property.getProperty("cache.dbSNP", "2000000")));
+		UniprotFeature.setCache(Long.parseLong(property.getProperty("cache.uniprot", "100000")));
+
 		Set<Long> dbSNPWithoutGene = new HashSet<>();
 		JSONParser parser = new JSONParser();
 		//Parse goldstandard
@@ -151,6 +155,7 @@ public class ApplyNENToJSONCorpora {
 			bw.append(jsonDocuments.toJSONString());
 			bw.close();
 			System.out.println("Cannot retrieve genes for the following dbSNP entries: " +dbSNPWithoutGene);
+			System.err.println("dbSNP " +dbSNP.getCache() +", UniProt " +UniprotFeature.getCache());
 		}
 		catch(Exception ex){
 			ex.printStackTrace();
@@ -3,6 +3,7 @@ package de.hu.berlin.wbi.process;
 import java.io.File;
 import java.io.FileInputStream;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +15,7 @@ import de.hu.berlin.wbi.objects.MutationMention;
 import de.hu.berlin.wbi.objects.DatabaseConnection;
 import de.hu.berlin.wbi.objects.UniprotFeature;
 import de.hu.berlin.wbi.objects.dbSNP;
+import de.hu.berlin.wbi.objects.dbSNPIndex;
 import de.hu.berlin.wbi.objects.dbSNPNormalized;
 
 /**
@@ -72,6 +74,16 @@ public class Normalize {
 
 			// Get all Genes found for this article
 			Set<Gene> genes = Gene.queryGenesForArticle(pmid);
+
+			// Get all possible SNPs and all UniProt-features for these genes, with one query per table
+			final Set<Integer> geneIDs = new HashSet<Integer>();
+			for (Gene gene : genes)
+				geneIDs.add(gene.getGeneID());
+			final Map<Integer, List<dbSNP>> geneToDbSNP = dbSNP.getSNPs(geneIDs);
+			final Map<Integer, List<UniprotFeature>> geneToUniProtFeature = UniprotFeature.getFeatures(geneIDs);
+			final Map<Integer, dbSNPIndex> geneToIndex = new HashMap<Integer, dbSNPIndex>();	//Index the SNPs of each gene once per article instead of comparing each mention with all SNPs
+			for (Map.Entry<Integer, List<dbSNP>> entry : geneToDbSNP.entrySet())
+				geneToIndex.put(entry.getKey(), new dbSNPIndex(entry.getValue()));
 			
 			for (MutationMention mutation : mutations.get(pmid)) {
                 nMutatons++;
@@ -81,8 +93,8 @@ public class Normalize {
 				// Iterate over all different genes and try to normalize the SNP to
 				// all dbSNP entries for this gene
 				for (Gene gene : genes) {
-					List<dbSNP> potentialSNPs = dbSNP.getSNP(gene.getGeneID());
-					final List<UniprotFeature> features = UniprotFeature.getFeatures(gene.getGeneID());
+					final dbSNPIndex potentialSNPs = geneToIndex.get(gene.getGeneID());
+					final List<UniprotFeature> features = geneToUniProtFeature.get(gene.getGeneID());
                     mutation.normalizeSNP(potentialSNPs, features, false);
 
                     normalized.addAll(mutation.getNormalized());
@@ -19,6 +19,7 @@ import de.hu.berlin.wbi.objects.MutationMention;
 import de.hu.berlin.wbi.objects.DatabaseConnection;
 import de.hu.berlin.wbi.objects.UniprotFeature;
 import de.hu.berlin.wbi.objects.dbSNP;
+import de.hu.berlin.wbi.objects.dbSNPIndex;
 import de.hu.berlin.wbi.objects.dbSNPNormalized;
 
 /**
@@ -28,6 +29,9 @@ import de.hu.berlin.wbi.objects.dbSNPNormalized;
  */
 public class NormalizeDB {
 
+	/** Number of articles whose genes are retrieved with one query */
+	private static final int ARTICLE_BATCH = 100;
+
 	/**
 	 * @param args Path to property XML
 	 * @throws SQLException SQL-Exception accessing the database
@@ -84,6 +88,10 @@ public class NormalizeDB {
 		Gene.init(mysql, property.getProperty("database.geneTable"), property.getProperty("database.gene2pubmed"));
 		UniprotFeature.init(mysql, property.getProperty("database.uniprot"));
 
+		//Keep the entries of frequently mentioned genes between articles (sizes in dbSNP/HGVS entries and UniProt features)
+		dbSNP.setCache(Long.parseLong(property.getProperty("cache.dbSNP", "2000000")));
+		UniprotFeature.setCache(Long.parseLong(property.getProperty("cache.uniprot", "100000")));
+
 		PreparedStatement ps = mysql
 		.getConn()
 		.prepareStatement(
@@ -96,21 +104,26 @@ public class NormalizeDB {
 		int possible = 0; int ambig = 0;  int ambigLevel = 0;
 
 		int i =0;
-		for(int pmid : mutations.keySet()){
-			// Get all Genes found for this article
-			final Set<Gene> genes = Gene.queryGenesForArticle(pmid);
-
-			//Pre-fetch all possible SNPs and all UniProt-features for this gene 		
-			//This should be much faster than before, as we produce only one query instead of many (number of mutations) 		
-			final Map<Gene, List<dbSNP>> geneToDbSNP = new HashMap<Gene, List<dbSNP>>(); 		
-			final Map<Gene, List<UniprotFeature>> geneToUniProtFeature = new HashMap<Gene, List<UniprotFeature>>(); 		
-			for (Gene gene : genes) { 		
-				final List<dbSNP> potentialSNPs = dbSNP.getSNP(gene.getGeneID()); 		
-				final List<UniprotFeature> features = UniprotFeature.getFeatures(gene.getGeneID()); 		
-
-				geneToDbSNP.put(gene, potentialSNPs); 		
-				geneToUniProtFeature.put(gene, features); 		
-			}
+		final List<Integer> pmids = new ArrayList<Integer>(mutations.keySet());
+		Map<Integer, Set<Gene>> articleGenes = new HashMap<Integer, Set<Gene>>();
+		for(int article = 0; article < pmids.size(); article++){
+			final int pmid = pmids.get(article);
+
+			// Get all Genes found for the next block of articles
+			if (article % ARTICLE_BATCH == 0)
+				articleGenes = Gene.queryGenesForArticles(pmids.subList(article, Math.min(article + ARTICLE_BATCH, pmids.size())));
+			final Set<Gene> genes = articleGenes.get(pmid);
+
+			//Pre-fetch all possible SNPs and all UniProt-features for the genes of this article
+			//This should be much faster than before, as we produce only one query per table instead of one per gene
+			final Set<Integer> geneIDs = new HashSet<Integer>();
+			for (Gene gene : genes)
+				geneIDs.add(gene.getGeneID());
+			final Map<Integer, List<dbSNP>> geneToDbSNP = dbSNP.getSNPs(geneIDs);
+			final Map<Integer, List<UniprotFeature>> geneToUniProtFeature = UniprotFeature.getFeatures(geneIDs);
+			final Map<Integer, dbSNPIndex> geneToIndex = new HashMap<Integer, dbSNPIndex>();	//Index the SNPs of each gene once per article instead of comparing each mention with all SNPs
+			for (Map.Entry<Integer, List<dbSNP>> entry : geneToDbSNP.entrySet())
+				geneToIndex.put(entry.getKey(), new dbSNPIndex(entry.getValue()));
 
 			for (MutationMention mutation : mutations.get(pmid)) {
 				i++;
@@ -119,8 +132,8 @@ public class NormalizeDB {
 				// Iterate over all different genes and try to normalize the SNP to
 				// all dbSNP entries for this gene
 				for (Gene gene : genes) {
-					final List<dbSNP> potentialSNPs = geneToDbSNP.get(gene);
-					final List<UniprotFeature> features = geneToUniProtFeature.get(gene);
+					final dbSNPIndex potentialSNPs = geneToIndex.get(gene.getGeneID());
+					final List<UniprotFeature> features = geneToUniProtFeature.get(gene.getGeneID());
                     mutation.normalizeSNP(potentialSNPs, features, false);
 
 					normalized.addAll(mutation.getNormalized());
@@ -178,6 +191,7 @@ public class NormalizeDB {
 		System.err.println("Normalization possible for " + possible + "/" + nMutations + " mentions");
 		System.err.println("Normalization ambigous for " +ambig +"/" +possible);
 		System.err.println("Normalization PSM/NSM ambig for " +ambigLevel +"/" +ambig);
+		System.err.println("dbSNP " +dbSNP.getCache() +", UniProt " +UniprotFeature.getCache());
 		mysql.disconnect();
 	}
 
@@ -0,0 +1,31 @@
+package de.hu.berlin.wbi.stuff.dbSNPParser.json;
+
+import de.hu.berlin.wbi.objects.dbSNPStore;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Builds a {@link dbSNPStore} from the files PSM.tsv and hgvs.tsv written by {@link ParseJSONToFile},
+ * so that SNPs can be normalized without a database (see {@link de.hu.berlin.wbi.objects.dbSNP#init(dbSNPStore)}).
+ *
+ * Usage: java de.hu.berlin.wbi.stuff.dbSNPParser.json.ParseFileToStore folder [store-file]
+ */
+public class ParseFileToStore {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Builds a dbSNP store from the files PSM.tsv and hgvs.tsv");
+            System.err.println("Usage: java de.hu.berlin.wbi.stuff.dbSNPParser.json.ParseFileToStore folder [store-file]");
+            System.exit(1);
+        }
+
+        File folder = new File(args[0]);
+        File store = args.length == 2 ? new File(args[1]) : new File(folder, "dbSNP.store");
+        System.err.println("Building '" + store + "' from the files in '" + folder + "'");
+
+        long start = System.currentTimeMillis();
+        dbSNPStore.build(new File(folder, "PSM.tsv"), new File(folder, "hgvs.tsv"), store);
+        System.err.println("Stored " + dbSNPStore.open(store).size() + " genes in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
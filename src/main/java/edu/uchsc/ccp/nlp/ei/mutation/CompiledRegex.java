@@ -0,0 +1,15 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+/**
+ * A regular expression compiled by one of the {@link RegexBackend}s.
+ * Implementations are immutable and can be shared between threads; all state of a search is kept in the {@link RegexMatcher}.
+ */
+public interface CompiledRegex {
+
+    /**
+     * Creates a matcher searching this regular expression in a text
+     * @param text the text to be searched
+     * @return a new matcher, which must not be shared between threads
+     */
+    RegexMatcher matcher(CharSequence text);
+}
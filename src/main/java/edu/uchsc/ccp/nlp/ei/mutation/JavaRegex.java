@@ -0,0 +1,52 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link RegexBackend#JAVA} implementation based on {@link java.util.regex.Pattern}
+ */
+final class JavaRegex implements CompiledRegex {
+
+    private final Pattern pattern;
+
+    JavaRegex(String regex, boolean caseSensitive) {
+        this.pattern = caseSensitive ? Pattern.compile(regex) : Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+    }
+
+    @Override
+    public RegexMatcher matcher(CharSequence text) {
+        final Matcher matcher = pattern.matcher(text);
+        return new RegexMatcher() {
+            @Override
+            public void reset(CharSequence text) {
+                matcher.reset(text);
+            }
+
+            @Override
+            public boolean find() {
+                return matcher.find();
+            }
+
+            @Override
+            public String group(int group) {
+                return matcher.group(group);
+            }
+
+            @Override
+            public int start(int group) {
+                return matcher.start(group);
+            }
+
+            @Override
+            public int end(int group) {
+                return matcher.end(group);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return pattern.pattern();
+    }
+}
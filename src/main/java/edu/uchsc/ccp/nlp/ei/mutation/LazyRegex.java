@@ -0,0 +1,38 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+/**
+ * A regular expression which is compiled by its {@link RegexBackend} when the first matcher is requested.
+ * Used for patterns loaded by {@link PatternSetCache}, which have already been compiled successfully by the same backend
+ * when the cache was written; so initialization does not have to wait for the compilation of all patterns.
+ */
+final class LazyRegex implements CompiledRegex {
+
+    private final RegexBackend backend;
+    private final String regex;
+    private final boolean caseSensitive;
+
+    /** Compiled expression, null until the first call of {@link #matcher(CharSequence)} */
+    private volatile CompiledRegex compiled;
+
+    LazyRegex(RegexBackend backend, String regex, boolean caseSensitive) {
+        this.backend = backend;
+        this.regex = regex;
+        this.caseSensitive = caseSensitive;
+    }
+
+    @Override
+    public RegexMatcher matcher(CharSequence text) {
+        CompiledRegex result = compiled;
+        if (result == null) {
+            //Threads racing here compile equivalent immutable expressions, any of them can be kept
+            result = backend.compile(regex, caseSensitive);
+            compiled = result;
+        }
+        return result.matcher(text);
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+}
@@ -0,0 +1,790 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link RegexBackend#LINEAR} implementation: the regular expression is compiled into a program for a Pike VM, i.e. a
+ * nondeterministic automaton which is simulated in lock-step over the text. All threads of the automaton advance character
+ * by character, so the run time is bounded by the length of the text times the size of the program and there is no
+ * catastrophic backtracking. Threads are kept in priority order, which yields the same (leftmost-first) matches and groups
+ * as a backtracking Perl engine.
+ *
+ * Supported syntax: literals, escapes (\s, \S, \d, \D, \w, \W, \t, \n, \r, \f and escaped meta-characters), character classes,
+ * '.', '^', '$', capturing and non-capturing groups, alternation, greedy and lazy quantifiers (?, *, +, {m}, {m,}, {m,n}) and lookaheads
+ * whose alternatives consist of single characters or '$' (e.g. (?=([.,\s]|$)) as used in resources/mutations.txt).
+ * Case-insensitive matching folds US-ASCII characters only, like {@link java.util.regex.Pattern#CASE_INSENSITIVE}.
+ */
+final class LinearRegex implements CompiledRegex {
+
+    /* instructions of the program */
+    private static final int CHAR = 0;      //Consumes a character contained in sets[pc]
+    private static final int SPLIT = 1;     //Continues at arg1 (preferred) and arg2
+    private static final int JMP = 2;       //Continues at arg1
+    private static final int SAVE = 3;      //Stores the current position in capture slot arg1
+    private static final int BOL = 4;       //Asserts the beginning of the text
+    private static final int EOL = 5;       //Asserts the end of the text (or a final line break)
+    private static final int PEEK = 6;      //Asserts that the next character is contained in sets[pc] (or the end of text if arg1 == 1),
+                                            //the tested character is captured by group arg2 (if arg2 >= 0)
+    private static final int MATCH = 7;
+
+    private final String regex;
+    private final int[] opcodes;
+    private final int[] arg1;
+    private final int[] arg2;
+    private final CharSet[] sets;
+
+    /** Number of capture slots (two per group including group 0) */
+    private final int slots;
+
+    /** Character sets one of which has to match the first character of a match not starting at 0, null if unknown */
+    private final CharSet[] first;
+
+    LinearRegex(String regex, boolean caseSensitive) {
+        this.regex = regex;
+
+        Parser parser = new Parser(regex, caseSensitive);
+        Node root = parser.parseAlternation();
+        if (parser.pos != regex.length())
+            throw parser.error("Unbalanced parenthesis");
+
+        Compiler compiler = new Compiler();
+        compiler.emit(SAVE, 0, 0, null);
+        compiler.compile(root);
+        compiler.emit(SAVE, 1, 0, null);
+        compiler.emit(MATCH, 0, 0, null);
+
+        int size = compiler.opcodes.size();
+        this.opcodes = new int[size];
+        this.arg1 = new int[size];
+        this.arg2 = new int[size];
+        this.sets = compiler.sets.toArray(new CharSet[size]);
+        for (int pc = 0; pc < size; pc++) {
+            opcodes[pc] = compiler.opcodes.get(pc);
+            arg1[pc] = compiler.arg1.get(pc);
+            arg2[pc] = compiler.arg2.get(pc);
+        }
+        this.slots = 2 * (parser.groups + 1);
+        this.first = firstSets();
+    }
+
+    /*
+     * Collects the sets of the characters which can be consumed first, following all instructions which do not consume a character.
+     * Positions whose character is not contained in one of these sets can be skipped when no thread is alive.
+     */
+    private CharSet[] firstSets() {
+        List<CharSet> result = new ArrayList<CharSet>();
+        boolean[] visited = new boolean[opcodes.length];
+        List<Integer> pending = new ArrayList<Integer>();
+        pending.add(0);
+        while (!pending.isEmpty()) {
+            int pc = pending.remove(pending.size() - 1);
+            if (visited[pc])
+                continue;
+            visited[pc] = true;
+            switch (opcodes[pc]) {
+                case CHAR:
+                    result.add(sets[pc]);
+                    break;
+                case SPLIT:
+                    pending.add(arg2[pc]);
+                    pending.add(arg1[pc]);
+                    break;
+                case JMP:
+                    pending.add(arg1[pc]);
+                    break;
+                case SAVE:
+                    pending.add(pc + 1);
+                    break;
+                case BOL:
+                    break;   //Only relevant at position 0, which is never skipped
+                default:
+                    return null;   //Matches may start with an assertion or be empty
+            }
+        }
+        return result.toArray(new CharSet[result.size()]);
+    }
+
+    private boolean isFirst(char c) {
+        for (CharSet set : first) {
+            if (set.contains(c))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public RegexMatcher matcher(CharSequence text) {
+        return new Matcher(text);
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    /**
+     * State of one search, i.e. the two thread lists of the Pike VM and the last match
+     */
+    private final class Matcher implements RegexMatcher {
+        private CharSequence text;
+        private int length;
+
+        private ThreadList current = new ThreadList(opcodes.length);
+        private ThreadList next = new ThreadList(opcodes.length);
+
+        /** Position where the next search starts, larger than length if the text is exhausted */
+        private int from = 0;
+
+        private int[] groups;
+
+        Matcher(CharSequence text) {
+            reset(text);
+        }
+
+        @Override
+        public void reset(CharSequence text) {
+            this.text = text;
+            this.length = text.length();
+            this.from = 0;
+            this.groups = null;
+        }
+
+        @Override
+        public boolean find() {
+            if (from > length)
+                return false;
+
+            int[] matched = null;
+            current.clear();
+            for (int pos = from; ; pos++) {
+                if (matched == null) {   //A new thread starting at this position has the lowest priority
+                    if (current.size == 0 && pos > 0 && first != null) {
+                        while (pos < length && !isFirst(text.charAt(pos)))
+                            pos++;
+                        if (pos == length)
+                            break;
+                    }
+                    int[] start = new int[slots];
+                    Arrays.fill(start, -1);
+                    add(current, 0, pos, start);
+                }
+                if (current.size == 0)
+                    break;
+
+                next.clear();
+                char c = pos < length ? text.charAt(pos) : 0;
+                for (int i = 0; i < current.size; i++) {
+                    int pc = current.pcs[i];
+                    if (opcodes[pc] == CHAR) {
+                        if (pos < length && sets[pc].contains(c))
+                            add(next, pc + 1, pos + 1, current.captures[i]);
+                    } else if (opcodes[pc] == MATCH) {
+                        matched = current.captures[i];
+                        break;       //Threads with lower priority are discarded
+                    }
+                }
+
+                ThreadList tmp = current;
+                current = next;
+                next = tmp;
+                if (pos == length)
+                    break;
+            }
+
+            if (matched == null) {
+                from = length + 1;
+                return false;
+            }
+            groups = matched;
+            from = matched[1] == matched[0] ? matched[1] + 1 : matched[1];
+            return true;
+        }
+
+        /*
+         * Adds the thread at pc to the list, following all instructions which do not consume a character
+         */
+        private void add(ThreadList list, int pc, int pos, int[] captures) {
+            if (list.contains(pc))
+                return;
+            list.add(pc, captures);
+
+            switch (opcodes[pc]) {
+                case JMP:
+                    add(list, arg1[pc], pos, captures);
+                    break;
+                case SPLIT:
+                    add(list, arg1[pc], pos, captures);
+                    add(list, arg2[pc], pos, captures);
+                    break;
+                case SAVE:
+                    int[] copy = captures.clone();
+                    copy[arg1[pc]] = pos;
+                    add(list, pc + 1, pos, copy);
+                    break;
+                case BOL:
+                    if (pos == 0)
+                        add(list, pc + 1, pos, captures);
+                    break;
+                case EOL:
+                    if (isEnd(pos))
+                        add(list, pc + 1, pos, captures);
+                    break;
+                case PEEK: {
+                    int end;
+                    if (pos < length && sets[pc].contains(text.charAt(pos)))
+                        end = pos + 1;
+                    else if (arg1[pc] == 1 && isEnd(pos))
+                        end = pos;
+                    else
+                        break;
+                    if (arg2[pc] >= 0) {
+                        captures = captures.clone();
+                        captures[2 * arg2[pc]] = pos;
+                        captures[2 * arg2[pc] + 1] = end;
+                    }
+                    add(list, pc + 1, pos, captures);
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+
+        private boolean isEnd(int pos) {
+            return pos == length || (pos == length - 1 && text.charAt(pos) == '\n');
+        }
+
+        @Override
+        public String group(int group) {
+            int start = start(group);
+            return start < 0 ? null : text.subSequence(start, end(group)).toString();
+        }
+
+        @Override
+        public int start(int group) {
+            checkGroup(group);
+            return groups[2 * group];
+        }
+
+        @Override
+        public int end(int group) {
+            checkGroup(group);
+            return groups[2 * group + 1];
+        }
+
+        private void checkGroup(int group) {
+            if (groups == null)
+                throw new IllegalStateException("No match available");
+            if (group < 0 || 2 * group >= slots)
+                throw new IndexOutOfBoundsException("No group " + group);
+        }
+    }
+
+    /**
+     * Sparse set of program counters in insertion (= priority) order, together with the captures of each thread
+     */
+    private static final class ThreadList {
+        private final int[] pcs;
+        private final int[][] captures;
+        private final int[] index;
+        private int size;
+
+        ThreadList(int capacity) {
+            this.pcs = new int[capacity];
+            this.captures = new int[capacity][];
+            this.index = new int[capacity];
+        }
+
+        boolean contains(int pc) {
+            int i = index[pc];
+            return i < size && pcs[i] == pc;
+        }
+
+        void add(int pc, int[] capture) {
+            index[pc] = size;
+            pcs[size] = pc;
+            captures[size] = capture;
+            size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Set of characters matched by a character class; US-ASCII characters are looked up in a bitmap
+     */
+    private static final class CharSet {
+        private final long[] ascii = new long[2];
+        private final List<char[]> ranges = new ArrayList<char[]>();   //Ranges with characters above US-ASCII
+        private boolean negated;
+        private boolean caseSensitive;
+
+        static CharSet of(char c, boolean caseSensitive) {
+            CharSet set = new CharSet(caseSensitive);
+            set.add(c, c);
+            return set;
+        }
+
+        CharSet(boolean caseSensitive) {
+            this.caseSensitive = caseSensitive;
+        }
+
+        void add(char from, char to) {
+            if (from > to)
+                throw new IllegalArgumentException("Illegal character range " + from + "-" + to);
+            for (char c = from; c <= to && c < 128; c++) {
+                ascii[c >> 6] |= 1L << c;
+                if (!caseSensitive && Character.isLetter(c)) {
+                    char other = Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c);
+                    ascii[other >> 6] |= 1L << other;
+                }
+            }
+            if (to >= 128)
+                ranges.add(new char[]{(char) Math.max(from, 128), to});
+        }
+
+        void addAll(CharSet other) {
+            if (other.negated)
+                throw new IllegalArgumentException("Negated classes cannot be nested");
+            ascii[0] |= other.ascii[0];
+            ascii[1] |= other.ascii[1];
+            ranges.addAll(other.ranges);
+        }
+
+        boolean contains(char c) {
+            boolean found;
+            if (c < 128) {
+                found = (ascii[c >> 6] & (1L << c)) != 0;
+            } else {
+                found = false;
+                for (char[] range : ranges) {
+                    if (c >= range[0] && c <= range[1]) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            return found != negated;
+        }
+    }
+
+    /**
+     * Node of the syntax tree
+     */
+    private static final class Node {
+        enum Kind {SET, BOL, EOL, PEEK, EMPTY, CONCAT, ALTERNATION, REPEAT, GROUP}
+
+        private final Kind kind;
+        private CharSet set;
+        private boolean end;               //PEEK: the end of text is accepted as well
+        private final List<Node> children = new ArrayList<Node>();
+        private int min, max;              //REPEAT: max is -1 for unbounded repetitions
+        private boolean greedy = true;
+        private int group = -1;            //GROUP/PEEK: number of the capturing group, -1 for non-capturing groups
+
+        Node(Kind kind) {
+            this.kind = kind;
+        }
+
+        static Node of(Kind kind, Node child) {
+            Node node = new Node(kind);
+            node.children.add(child);
+            return node;
+        }
+    }
+
+    /**
+     * Recursive-descent parser for the supported subset of the Perl syntax
+     */
+    private static final class Parser {
+        private final String regex;
+        private final boolean caseSensitive;
+        private int pos = 0;
+        private int groups = 0;
+
+        Parser(String regex, boolean caseSensitive) {
+            this.regex = regex;
+            this.caseSensitive = caseSensitive;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at index " + pos + " in " + regex);
+        }
+
+        private boolean hasNext() {
+            return pos < regex.length();
+        }
+
+        private boolean consume(String token) {
+            if (regex.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        Node parseAlternation() {
+            Node first = parseConcat();
+            if (!hasNext() || regex.charAt(pos) != '|')
+                return first;
+
+            Node node = Node.of(Node.Kind.ALTERNATION, first);
+            while (consume("|"))
+                node.children.add(parseConcat());
+            return node;
+        }
+
+        private Node parseConcat() {
+            Node node = new Node(Node.Kind.CONCAT);
+            while (hasNext() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')')
+                node.children.add(parseRepeat());
+            if (node.children.isEmpty())
+                return new Node(Node.Kind.EMPTY);
+            return node.children.size() == 1 ? node.children.get(0) : node;
+        }
+
+        private Node parseRepeat() {
+            Node atom = parseAtom();
+            while (hasNext()) {
+                int min, max;
+                char c = regex.charAt(pos);
+                if (c == '?') {
+                    min = 0;
+                    max = 1;
+                    pos++;
+                } else if (c == '*') {
+                    min = 0;
+                    max = -1;
+                    pos++;
+                } else if (c == '+') {
+                    min = 1;
+                    max = -1;
+                    pos++;
+                } else if (c == '{' && regex.indexOf('}', pos) > pos) {
+                    String[] bounds = regex.substring(pos + 1, regex.indexOf('}', pos)).split(",", -1);
+                    try {
+                        min = Integer.parseInt(bounds[0].trim());
+                        max = bounds.length == 1 ? min : bounds[1].trim().isEmpty() ? -1 : Integer.parseInt(bounds[1].trim());
+                    } catch (NumberFormatException nfe) {
+                        throw error("Illegal repetition");
+                    }
+                    if (bounds.length > 2 || (max >= 0 && max < min))
+                        throw error("Illegal repetition");
+                    pos = regex.indexOf('}', pos) + 1;
+                } else {
+                    return atom;
+                }
+                if (atom.kind == Node.Kind.BOL || atom.kind == Node.Kind.EOL || atom.kind == Node.Kind.PEEK)
+                    throw error("Quantified assertion");
+
+                Node repeat = Node.of(Node.Kind.REPEAT, atom);
+                repeat.min = min;
+                repeat.max = max;
+                if (consume("?"))
+                    repeat.greedy = false;
+                else if (hasNext() && regex.charAt(pos) == '+')
+                    throw error("Possessive quantifiers are not supported");
+                atom = repeat;
+            }
+            return atom;
+        }
+
+        private Node parseAtom() {
+            char c = regex.charAt(pos);
+            switch (c) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return set(parseClass());
+                case '.': {
+                    pos++;
+                    CharSet set = new CharSet(true);
+                    set.add('\n', '\n');
+                    set.add('\r', '\r');
+                    set.add('\u0085', '\u0085');
+                    set.add('\u2028', '\u2029');
+                    set.negated = true;
+                    return set(set);
+                }
+                case '^':
+                    pos++;
+                    return new Node(Node.Kind.BOL);
+                case '$':
+                    pos++;
+                    return new Node(Node.Kind.EOL);
+                case '\\':
+                    pos++;
+                    return set(parseEscape());
+                case ')':
+                case '*':
+                case '+':
+                case '?':
+                    throw error("Unexpected '" + c + "'");
+                default:
+                    pos++;
+                    return set(CharSet.of(c, caseSensitive));
+            }
+        }
+
+        private Node set(CharSet set) {
+            Node node = new Node(Node.Kind.SET);
+            node.set = set;
+            return node;
+        }
+
+        private Node parseGroup() {
+            pos++;
+            Node node;
+            if (consume("?:")) {
+                node = Node.of(Node.Kind.GROUP, parseAlternation());
+            } else if (consume("?=")) {
+                node = peek(parseAlternation());
+            } else if (hasNext() && regex.charAt(pos) == '?') {
+                throw error("Unsupported group construct");
+            } else {
+                int group = ++groups;
+                node = Node.of(Node.Kind.GROUP, parseAlternation());
+                node.group = group;
+            }
+            if (!consume(")"))
+                throw error("Unclosed group");
+            return node;
+        }
+
+        /*
+         * Converts the body of a lookahead into a single character test, which is only possible if every alternative consumes
+         * exactly one character or asserts the end of the text. A capturing group is only allowed around the whole body.
+         */
+        private Node peek(Node body) {
+            Node node = new Node(Node.Kind.PEEK);
+            node.set = new CharSet(caseSensitive);
+            while (body.kind == Node.Kind.GROUP && node.group < 0) {
+                node.group = body.group;
+                body = body.children.get(0);
+            }
+
+            List<Node> pending = new ArrayList<Node>();
+            pending.add(body);
+            while (!pending.isEmpty()) {
+                Node alternative = pending.remove(pending.size() - 1);
+                switch (alternative.kind) {
+                    case GROUP:
+                        if (alternative.group >= 0)
+                            throw error("Only one capturing group around the whole lookahead is supported");
+                    case ALTERNATION:
+                        pending.addAll(alternative.children);
+                        break;
+                    case SET:
+                        node.set.addAll(alternative.set);
+                        break;
+                    case EOL:
+                        node.end = true;
+                        break;
+                    default:
+                        throw error("Only single-character lookaheads are supported");
+                }
+            }
+            return node;
+        }
+
+        private CharSet parseClass() {
+            pos++;
+            CharSet set = new CharSet(caseSensitive);
+            if (consume("^"))
+                set.negated = true;
+
+            boolean first = true;
+            while (true) {
+                if (!hasNext())
+                    throw error("Unclosed character class");
+                char c = regex.charAt(pos);
+                if (c == ']' && !first) {
+                    pos++;
+                    return set;
+                }
+                first = false;
+
+                pos++;
+                char from;
+                if (c == '\\') {
+                    if (hasNext() && "sSdDwW".indexOf(regex.charAt(pos)) >= 0) {
+                        set.addAll(parseEscape());   //Predefined classes cannot start a range
+                        continue;
+                    }
+                    parseEscape();
+                    from = escapedChar(regex.charAt(pos - 1));
+                } else if (c == '[') {
+                    throw error("Nested character classes are not supported");
+                } else {
+                    from = c;
+                }
+
+                if (hasNext() && regex.charAt(pos) == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    char to = regex.charAt(pos++);
+                    if (to == '\\') {
+                        if (!hasNext())
+                            throw error("Unclosed character class");
+                        to = escapedChar(regex.charAt(pos++));
+                    }
+                    set.add(from, to);
+                } else {
+                    set.add(from, from);
+                }
+            }
+        }
+
+        private CharSet parseEscape() {
+            if (!hasNext())
+                throw error("Trailing backslash");
+            char c = regex.charAt(pos++);
+            CharSet set = new CharSet(true);
+            switch (c) {
+                case 'S':
+                    set.negated = true;
+                case 's':
+                    set.add(' ', ' ');
+                    set.add('\t', '\r');     //\t \n \u000B \f \r
+                    return set;
+                case 'D':
+                    set.negated = true;
+                case 'd':
+                    set.add('0', '9');
+                    return set;
+                case 'W':
+                    set.negated = true;
+                case 'w':
+                    set.add('a', 'z');
+                    set.add('A', 'Z');
+                    set.add('0', '9');
+                    set.add('_', '_');
+                    return set;
+                default:
+                    if (Character.isLetterOrDigit(c) && "tnrf".indexOf(c) < 0)
+                        throw error("Unsupported escape \\" + c);
+                    return CharSet.of(escapedChar(c), caseSensitive);
+            }
+        }
+
+        private char escapedChar(char c) {
+            switch (c) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                default:
+                    return c;
+            }
+        }
+    }
+
+    /**
+     * Translates the syntax tree into the instructions of the Pike VM
+     */
+    private static final class Compiler {
+        private final List<Integer> opcodes = new ArrayList<Integer>();
+        private final List<Integer> arg1 = new ArrayList<Integer>();
+        private final List<Integer> arg2 = new ArrayList<Integer>();
+        private final List<CharSet> sets = new ArrayList<CharSet>();
+
+        int emit(int opcode, int a, int b, CharSet set) {
+            opcodes.add(opcode);
+            arg1.add(a);
+            arg2.add(b);
+            sets.add(set);
+            return opcodes.size() - 1;
+        }
+
+        private int next() {
+            return opcodes.size();
+        }
+
+        void compile(Node node) {
+            switch (node.kind) {
+                case SET:
+                    emit(CHAR, 0, 0, node.set);
+                    break;
+                case BOL:
+                    emit(BOL, 0, 0, null);
+                    break;
+                case EOL:
+                    emit(EOL, 0, 0, null);
+                    break;
+                case PEEK:
+                    emit(PEEK, node.end ? 1 : 0, node.group, node.set);
+                    break;
+                case EMPTY:
+                    break;
+                case CONCAT:
+                    for (Node child : node.children)
+                        compile(child);
+                    break;
+                case GROUP:
+                    if (node.group >= 0)
+                        emit(SAVE, 2 * node.group, 0, null);
+                    compile(node.children.get(0));
+                    if (node.group >= 0)
+                        emit(SAVE, 2 * node.group + 1, 0, null);
+                    break;
+                case ALTERNATION: {
+                    List<Integer> jumps = new ArrayList<Integer>();
+                    for (int i = 0; i < node.children.size(); i++) {
+                        if (i < node.children.size() - 1) {
+                            int split = emit(SPLIT, 0, 0, null);
+                            arg1.set(split, next());
+                            compile(node.children.get(i));
+                            jumps.add(emit(JMP, 0, 0, null));
+                            arg2.set(split, next());
+                        } else {
+                            compile(node.children.get(i));
+                        }
+                    }
+                    for (int jump : jumps)
+                        arg1.set(jump, next());
+                    break;
+                }
+                case REPEAT:
+                    compileRepeat(node);
+                    break;
+            }
+        }
+
+        /*
+         * x{m,n} is expanded into m copies of x followed by n-m nested optional copies; x{m,} ends with x*
+         */
+        private void compileRepeat(Node node) {
+            Node body = node.children.get(0);
+            for (int i = 0; i < node.min; i++)
+                compile(body);
+
+            if (node.max < 0) {
+                int split = emit(SPLIT, 0, 0, null);
+                compile(body);
+                emit(JMP, split, 0, null);
+                branch(split, split + 1, next(), node.greedy);
+                return;
+            }
+
+            List<Integer> splits = new ArrayList<Integer>();
+            for (int i = node.min; i < node.max; i++) {
+                splits.add(emit(SPLIT, 0, 0, null));
+                compile(body);
+            }
+            for (int split : splits)
+                branch(split, split + 1, next(), node.greedy);
+        }
+
+        private void branch(int split, int body, int exit, boolean greedy) {
+            arg1.set(split, greedy ? body : exit);
+            arg2.set(split, greedy ? exit : body);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Boolean combination (AND/OR) of lower-cased literals which has to be fulfilled by a text
+ * before a regular expression can match it.
+ */
+final class LiteralQuery {
+
+    enum Operator {ALL, LITERAL, AND, OR}
+
+    /** Query fulfilled by every text */
+    static final LiteralQuery ALL = new LiteralQuery(Operator.ALL, null, Collections.<LiteralQuery>emptyList());
+
+    private final Operator operator;
+    private final String literal;
+    private final List<LiteralQuery> children;
+    private final int hashCode;
+
+    private LiteralQuery(Operator operator, String literal, List<LiteralQuery> children) {
+        this.operator = operator;
+        this.literal = literal;
+        this.children = children;
+        this.hashCode = Arrays.hashCode(new Object[]{operator, literal, children});
+    }
+
+    static LiteralQuery literal(String literal) {
+        return new LiteralQuery(Operator.LITERAL, literal, Collections.<LiteralQuery>emptyList());
+    }
+
+    /**
+     * Conjunction of queries; {@link #ALL} is removed and nested conjunctions are flattened
+     */
+    static LiteralQuery and(LiteralQuery... queries) {
+        Set<LiteralQuery> children = new LinkedHashSet<LiteralQuery>();
+        for (LiteralQuery query : queries) {
+            if (query.operator == Operator.AND)
+                children.addAll(query.children);
+            else if (query.operator != Operator.ALL)
+                children.add(query);
+        }
+        return combine(Operator.AND, children);
+    }
+
+    /**
+     * Disjunction of queries; if one of the queries is {@link #ALL} the disjunction is {@link #ALL} as well
+     */
+    static LiteralQuery or(LiteralQuery... queries) {
+        Set<LiteralQuery> children = new LinkedHashSet<LiteralQuery>();
+        for (LiteralQuery query : queries) {
+            if (query.operator == Operator.ALL)
+                return ALL;
+            if (query.operator == Operator.OR)
+                children.addAll(query.children);
+            else
+                children.add(query);
+        }
+        return combine(Operator.OR, children);
+    }
+
+    private static LiteralQuery combine(Operator operator, Set<LiteralQuery> children) {
+        if (children.isEmpty())
+            return ALL;
+        if (children.size() == 1)
+            return children.iterator().next();
+        return new LiteralQuery(operator, null, new ArrayList<LiteralQuery>(children));
+    }
+
+    Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return the literal of a {@link Operator#LITERAL} query, otherwise null
+     */
+    String getLiteral() {
+        return literal;
+    }
+
+    List<LiteralQuery> getChildren() {
+        return children;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        LiteralQuery that = (LiteralQuery) o;
+        return hashCode == that.hashCode && operator == that.operator && (literal == null ? that.literal == null : literal.equals(that.literal))
+                && children.equals(that.children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        switch (operator) {
+            case ALL:
+                return "*";
+            case LITERAL:
+                return "'" + literal + "'";
+            default:
+                StringBuilder sb = new StringBuilder("(");
+                for (LiteralQuery child : children) {
+                    if (sb.length() > 1)
+                        sb.append(operator == Operator.AND ? " AND " : " OR ");
+                    sb.append(child);
+                }
+                return sb.append(')').toString();
+        }
+    }
+}
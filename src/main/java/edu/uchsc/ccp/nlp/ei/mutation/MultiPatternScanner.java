@@ -0,0 +1,350 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Single-pass candidate selection for the regular expressions used by {@link MutationFinder}.
+ * For every pattern a query over the literals required by a match is determined (see {@link RegexLiteralExtractor})
+ * and all literals are compiled into one Aho-Corasick automaton. A text is scanned only once by this automaton;
+ * afterwards only those patterns whose literals occur in the text need to be confirmed by the actual regular expression.
+ * Texts are matched in lower case, so the candidates are a superset of the patterns really matching.
+ */
+final class MultiPatternScanner {
+
+    /** Required literals for every pattern; patterns without entry can always match */
+    private final Map<MyPattern, Requirement> requirements;
+
+    /** Maps characters to the alphabet of the automaton (-1 for characters not contained in any literal) */
+    private final Map<Character, Integer> alphabet;
+
+    /** Lookup table for ASCII-characters, avoids boxing for the most frequent characters */
+    private final int[] asciiAlphabet;
+
+    /** Transition table of the automaton: state * alphabet size + character -> state */
+    private final int[] transitions;
+
+    /** Literal ids recognized when reaching a state (null if none) */
+    private final int[][] output;
+
+    private final int literalCount;
+
+    /**
+     * Builds the automaton for a set of patterns
+     * @param patterns the patterns which have to be analysed
+     */
+    MultiPatternScanner(Iterable<MyPattern> patterns) {
+        this.requirements = new HashMap<MyPattern, Requirement>();
+        Map<String, Integer> literals = new LinkedHashMap<String, Integer>();
+
+        for (MyPattern pattern : patterns) {
+            String regex = pattern.getRegex();
+            if (regex.endsWith(MutationFinder.CASE_SENSITIVE))
+                regex = regex.substring(0, regex.lastIndexOf('['));
+
+            LiteralQuery query = RegexLiteralExtractor.requiredQuery(regex);
+            if (query.getOperator() != LiteralQuery.Operator.ALL)
+                requirements.put(pattern, new Requirement(query, literals));
+        }
+        this.literalCount = literals.size();
+
+        /* the alphabet consists of all characters used by at least one literal */
+        this.alphabet = new HashMap<Character, Integer>();
+        this.asciiAlphabet = new int[128];
+        Arrays.fill(asciiAlphabet, -1);
+        for (String literal : literals.keySet()) {
+            for (char c : literal.toCharArray()) {
+                if (!alphabet.containsKey(c)) {
+                    if (c < 128)
+                        asciiAlphabet[c] = alphabet.size();
+                    alphabet.put(c, alphabet.size());
+                }
+            }
+        }
+
+        /* build the trie */
+        List<int[]> goTo = new ArrayList<int[]>();
+        List<List<Integer>> out = new ArrayList<List<Integer>>();
+        goTo.add(newState());
+        out.add(new ArrayList<Integer>());
+        for (Map.Entry<String, Integer> literal : literals.entrySet()) {
+            int state = 0;
+            for (char c : literal.getKey().toCharArray()) {
+                int a = alphabet.get(c);
+                if (goTo.get(state)[a] < 0) {
+                    goTo.get(state)[a] = goTo.size();
+                    goTo.add(newState());
+                    out.add(new ArrayList<Integer>());
+                }
+                state = goTo.get(state)[a];
+            }
+            out.get(state).add(literal.getValue());
+        }
+
+        /* compute failure links in breadth-first order and convert the trie into a deterministic automaton */
+        int[] fail = new int[goTo.size()];
+        Queue<Integer> queue = new ArrayDeque<Integer>();
+        for (int a = 0; a < alphabet.size(); a++) {
+            int next = goTo.get(0)[a];
+            if (next < 0) {
+                goTo.get(0)[a] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            out.get(state).addAll(out.get(fail[state]));
+            for (int a = 0; a < alphabet.size(); a++) {
+                int next = goTo.get(state)[a];
+                if (next < 0) {
+                    goTo.get(state)[a] = goTo.get(fail[state])[a];
+                } else {
+                    fail[next] = goTo.get(fail[state])[a];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = new int[goTo.size() * alphabet.size()];
+        for (int state = 0; state < goTo.size(); state++)
+            System.arraycopy(goTo.get(state), 0, transitions, state * alphabet.size(), alphabet.size());
+        this.output = new int[out.size()][];
+        for (int state = 0; state < out.size(); state++) {
+            List<Integer> ids = out.get(state);
+            if (!ids.isEmpty()) {
+                output[state] = new int[ids.size()];
+                for (int i = 0; i < ids.size(); i++)
+                    output[state][i] = ids.get(i);
+            }
+        }
+    }
+
+    /**
+     * Restores a scanner written by {@link #write(DataOutputStream, Map)}
+     */
+    private MultiPatternScanner(Map<MyPattern, Requirement> requirements, Map<Character, Integer> alphabet, int[] transitions, int[][] output, int literalCount) {
+        this.requirements = requirements;
+        this.alphabet = alphabet;
+        this.transitions = transitions;
+        this.output = output;
+        this.literalCount = literalCount;
+
+        this.asciiAlphabet = new int[128];
+        Arrays.fill(asciiAlphabet, -1);
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            if (entry.getKey() < 128)
+                asciiAlphabet[entry.getKey()] = entry.getValue();
+        }
+    }
+
+    private int[] newState() {
+        int[] state = new int[alphabet.size()];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    /**
+     * Scans the text once and collects all literals occurring in it
+     * @param text the text to be processed
+     * @return ids of all literals contained in the text
+     */
+    BitSet scan(CharSequence text) {
+        return scan(text, new BitSet(literalCount));
+    }
+
+    /**
+     * Scans the text once and collects all literals occurring in it
+     * @param text the text to be processed
+     * @param found bit set which is cleared and reused for the result
+     * @return found, containing the ids of all literals contained in the text
+     */
+    BitSet scan(CharSequence text, BitSet found) {
+        found.clear();
+        int alphabetSize = alphabet.size();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int a;
+            if (c < 128) {
+                a = asciiAlphabet[c];
+            } else {
+                Integer tmp = alphabet.get(c);
+                a = tmp == null ? -1 : tmp;
+            }
+
+            state = a < 0 ? 0 : transitions[state * alphabetSize + a];
+            if (output[state] != null) {
+                for (int id : output[state])
+                    found.set(id);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks if a pattern can possibly match a text
+     * @param pattern the pattern
+     * @param found the literals found in the text by {@link #scan(CharSequence)}
+     * @return false if the pattern certainly does not match the text
+     */
+    boolean mayMatch(MyPattern pattern, BitSet found) {
+        Requirement required = requirements.get(pattern);
+        return required == null || required.test(found);
+    }
+
+    /**
+     * @return number of patterns which require at least one literal
+     */
+    int getFilterablePatternCount() {
+        return requirements.size();
+    }
+
+    /**
+     * Writes the automaton and the requirements of all patterns (see {@link PatternSetCache})
+     * @param out destination
+     * @param index position of every pattern in the written pattern list
+     * @throws IOException if writing fails
+     */
+    void write(DataOutputStream out, Map<MyPattern, Integer> index) throws IOException {
+        out.writeInt(literalCount);
+        out.writeInt(alphabet.size());
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            out.writeChar(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+
+        PatternSetCache.writeInts(out, transitions);
+        int accepting = 0;
+        for (int[] ids : output) {
+            if (ids != null)
+                accepting++;
+        }
+        out.writeInt(output.length);
+        out.writeInt(accepting);
+        for (int state = 0; state < output.length; state++) {
+            if (output[state] != null) {
+                out.writeInt(state);
+                PatternSetCache.writeInts(out, output[state]);
+            }
+        }
+
+        out.writeInt(requirements.size());
+        for (Map.Entry<MyPattern, Requirement> entry : requirements.entrySet()) {
+            out.writeInt(index.get(entry.getKey()));
+            entry.getValue().write(out);
+        }
+    }
+
+    /**
+     * Reads a scanner written by {@link #write(DataOutputStream, Map)}
+     * @param in source
+     * @param patterns the written pattern list
+     * @return the scanner
+     */
+    static MultiPatternScanner read(ByteBuffer in, List<MyPattern> patterns) {
+        int literalCount = in.getInt();
+        Map<Character, Integer> alphabet = new HashMap<Character, Integer>();
+        int alphabetSize = in.getInt();
+        for (int i = 0; i < alphabetSize; i++)
+            alphabet.put(in.getChar(), in.getInt());
+
+        int[] transitions = PatternSetCache.readInts(in);
+        int[][] output = new int[in.getInt()][];
+        int accepting = in.getInt();
+        for (int i = 0; i < accepting; i++) {
+            int state = in.getInt();
+            output[state] = PatternSetCache.readInts(in);
+        }
+
+        Map<MyPattern, Requirement> requirements = new HashMap<MyPattern, Requirement>();
+        int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            MyPattern pattern = patterns.get(in.getInt());
+            requirements.put(pattern, Requirement.read(in));
+        }
+        return new MultiPatternScanner(requirements, alphabet, transitions, output, literalCount);
+    }
+
+    /**
+     * A {@link LiteralQuery} whose literals are replaced by the ids used by the automaton
+     */
+    private static final class Requirement {
+        private final LiteralQuery.Operator operator;
+        private final int literal;
+        private final Requirement[] children;
+
+        Requirement(LiteralQuery query, Map<String, Integer> literals) {
+            this.operator = query.getOperator();
+            if (operator == LiteralQuery.Operator.LITERAL) {
+                Integer id = literals.get(query.getLiteral());
+                if (id == null) {
+                    id = literals.size();
+                    literals.put(query.getLiteral(), id);
+                }
+                this.literal = id;
+            } else {
+                this.literal = -1;
+            }
+
+            this.children = new Requirement[query.getChildren().size()];
+            for (int i = 0; i < children.length; i++)
+                children[i] = new Requirement(query.getChildren().get(i), literals);
+        }
+
+        private Requirement(LiteralQuery.Operator operator, int literal, Requirement[] children) {
+            this.operator = operator;
+            this.literal = literal;
+            this.children = children;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(operator.ordinal());
+            out.writeInt(literal);
+            out.writeInt(children.length);
+            for (Requirement child : children)
+                child.write(out);
+        }
+
+        static Requirement read(ByteBuffer in) {
+            LiteralQuery.Operator operator = LiteralQuery.Operator.values()[in.get()];
+            int literal = in.getInt();
+            Requirement[] children = new Requirement[in.getInt()];
+            for (int i = 0; i < children.length; i++)
+                children[i] = read(in);
+            return new Requirement(operator, literal, children);
+        }
+
+        boolean test(BitSet found) {
+            switch (operator) {
+                case LITERAL:
+                    return found.get(literal);
+                case AND:
+                    for (Requirement child : children) {
+                        if (!child.test(found))
+                            return false;
+                    }
+                    return true;
+                case OR:
+                    for (Requirement child : children) {
+                        if (child.test(found))
+                            return true;
+                    }
+                    return false;
+                default:
+                    return true;
+            }
+        }
+    }
+}
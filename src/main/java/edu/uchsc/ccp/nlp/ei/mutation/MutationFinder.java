@@ -2,23 +2,22 @@ package edu.uchsc.ccp.nlp.ei.mutation;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.apache.oro.text.regex.MalformedPatternException;
-import org.apache.oro.text.regex.MatchResult;
-import org.apache.oro.text.regex.PatternMatcher;
-import org.apache.oro.text.regex.PatternMatcherInput;
-import org.apache.oro.text.regex.Perl5Compiler;
-import org.apache.oro.text.regex.Perl5Matcher;
-
 /**
  * 
  * This is the Java implementation of MutationFinder (original version in Python by J. Gregory Caporaso). <br>
+ * <br>
+ * Instances are thread-safe: the regular expressions are compiled by the constructor and never modified afterwards,
+ * and every call of {@link #extractMutations(String)} uses its own matchers. Thus, one instance can be shared by many threads.<br>
  * 
  * @author William A. Baumgartner, Jr. <br>
  *         william.baumgartner@uchsc.edu
@@ -38,7 +37,7 @@ public class MutationFinder extends MutationExtractor {
      * Define the case-sensitive flag used for the regular_expression input file. This flag is appended to each regular-expression that is
      * case-sensitive
      */
-    private final String CASE_SENSITIVE = "[CASE_SENSITIVE]";
+    final static String CASE_SENSITIVE = "[CASE_SENSITIVE]";
 
     protected final static String MUT_RES = "?P<mut_res>";
 
@@ -46,7 +45,7 @@ public class MutationFinder extends MutationExtractor {
 
     protected final static String POS = "?P<pos>";
 
-    protected final static Set<String> ambiguous  = new HashSet<String>();     //Contains a list of ambiguous "mutation"-names (e.g., T47D generally refers to a cell-line and not to a mutation)
+    protected final static Set<String> ambiguous  = createAmbiguousMentions();     //Contains a list of ambiguous "mutation"-names (e.g., T47D generally refers to a cell-line and not to a mutation)
 
     /*
      * regular_expressions: an interative set of regular expressions to be applied for extracting mutations. These are in the default python syntax
@@ -60,14 +59,40 @@ public class MutationFinder extends MutationExtractor {
      */
     private Map<MyPattern, Map<String, Integer>> regular_expressions;
 
+    /*
+     * Compiled multi-pattern mode: the text is scanned once for the literals required by the regular expressions and only patterns
+     * which can possibly match are applied afterwards. The result is identical to applying all regular expressions.
+     */
+    private MultiPatternScanner scanner;
+
+    private volatile boolean multiPatternMode = true;
+
+    /*
+     * Engine used to compile and apply the regular expressions. All backends compile into immutable patterns and create a new
+     * matcher for every text, so a single MutationFinder can be used by several threads.
+     */
+    private RegexBackend backend;
+
     /**
      * Initialization of MutationFinder requires a set of regular expressions that will be used to detect mutations.
      * This constructor loads the regular expressions from the attached Java Archive at resources/mutations.txt.<br>
      * <br>
      */
     public MutationFinder() {
+        this(RegexBackend.getDefault());
+    }
+
+    /**
+     * Loads the regular expressions from the attached Java Archive at resources/mutations.txt and compiles them with the given
+     * regular expression engine.<br>
+     * <br>
+     *
+     * @param backend
+     *            the regular expression engine to be used
+     */
+    public MutationFinder(RegexBackend backend) {
+        this.backend = backend;
         loadRegularExpressionsFromJar("/resources/mutations.txt");
-        initializeAmbiguousMentions();
     }
 
     /**
@@ -81,9 +106,23 @@ public class MutationFinder extends MutationExtractor {
      *            be converted prior to use in the Java implementation. This conversion is handled by this constructor.
      */
     public MutationFinder(String fileName) {
+        this(fileName, RegexBackend.getDefault());
+    }
+
+    /**
+     * Loads the regular expressions from a file designated by the filename input parameter and compiles them with the given
+     * regular expression engine.<br>
+     * <br>
+     *
+     * @param fileName
+     *            file containing the Python-specific regular expressions
+     * @param backend
+     *            the regular expression engine to be used
+     */
+    public MutationFinder(String fileName, RegexBackend backend) {
+        this.backend = backend;
         File file = new File(fileName);
         loadRegularExpressionsFromFile(file);
-        initializeAmbiguousMentions();
     }
 
     /**
@@ -97,6 +136,7 @@ public class MutationFinder extends MutationExtractor {
      *            be converted prior to use in the Java implementation. This conversion is handled by this constructor.
      */
     public MutationFinder(File file) {
+        this.backend = RegexBackend.getDefault();
         loadRegularExpressionsFromFile(file);
     }
 
@@ -111,11 +151,25 @@ public class MutationFinder extends MutationExtractor {
      *            implementation. This conversion is handled by this constructor.
      */
     public MutationFinder(Set<String> unprocessed_python_regexes) {
+        this.backend = RegexBackend.getDefault();
         regular_expressions = new HashMap<MyPattern, Map<String, Integer>>();
         int elementNumber =0;
         for (String python_regex : unprocessed_python_regexes) {
             processPythonRegex(python_regex, elementNumber++);
         }
+        scanner = new MultiPatternScanner(regular_expressions.keySet());
+    }
+
+    /**
+     * Enables or disables the compiled multi-pattern mode (enabled by default).
+     * In this mode the text is scanned once for literals required by the regular expressions (e.g., ' to ' or '-->')
+     * and only the regular expressions which can possibly match are applied to the text.
+     * Disabling this mode applies every regular expression to the whole text; the results are identical in both modes.
+     *
+     * @param multiPatternMode true to enable the multi-pattern mode
+     */
+    public void setMultiPatternMode(boolean multiPatternMode) {
+        this.multiPatternMode = multiPatternMode;
     }
 
     /*
@@ -123,22 +177,25 @@ public class MutationFinder extends MutationExtractor {
      * must remove the ?P<wt_res> ?P<pos> ?P<mt_res> tags, and log the group number (based on counting parentheses) that they are members of. The
      * regular expressions are then compiled, with or without the case-insensitive flag.
      */
-    private void processPythonRegex(String regexStr, int line) {
+    private MyPattern processPythonRegex(String regexStr, int line) {
         Map<String, Integer> groupMappings = extractMappingsFromPythonRegex(regexStr);
 
         /* remove the ?P<wt_res>, ?P<pos>, and ?P<mt_res> tags from the regular expression string */
         regexStr = removeTagsFromPythonRegex(regexStr);
 
-        Perl5Compiler compiler = new Perl5Compiler();
         try {
-            /* convert the regular expression string into a Pattern class here and add it to the regular_expressions Set */
+            /* convert the regular expression string into a compiled pattern here and add it to the regular_expressions Set */
+            MyPattern pattern;
             if (regexStr.endsWith(CASE_SENSITIVE)) {
-                regular_expressions.put(new MyPattern(compiler.compile(regexStr.substring(0, regexStr.lastIndexOf('['))), regexStr, line), groupMappings);
+                pattern = new MyPattern(backend.compile(regexStr.substring(0, regexStr.lastIndexOf('[')), true), regexStr, line);
             } else {
-                regular_expressions.put(new MyPattern(compiler.compile(regexStr, Perl5Compiler.CASE_INSENSITIVE_MASK), regexStr, line), groupMappings);
+                pattern = new MyPattern(backend.compile(regexStr, false), regexStr, line);
             }
-        } catch (MalformedPatternException mpe) {
-            mpe.printStackTrace();
+            regular_expressions.put(pattern, groupMappings);
+            return pattern;
+        } catch (IllegalArgumentException iae) {
+            iae.printStackTrace();
+            return null;
         }
     }
 
@@ -203,19 +260,11 @@ public class MutationFinder extends MutationExtractor {
     private void loadRegularExpressionsFromStream(BufferedReader br) {
 
         regular_expressions = new HashMap<MyPattern, Map<String, Integer>>();
+        List<String> lines = new ArrayList<String>();
         String line;
-        int lineNumber = 0;
         try {
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-                if (!line.startsWith("#")) {
-                    processPythonRegex(line, lineNumber);
-
-                    if (lineNumber % 100 == 0) {
-                        System.err.println("Loading regex's: " + lineNumber);
-                    }
-                }
-            }
+            while ((line = br.readLine()) != null)
+                lines.add(line);
         } catch (IOException ioe) {
             error("IO Exception while processing regular expression.");
             ioe.printStackTrace();
@@ -228,13 +277,47 @@ public class MutationFinder extends MutationExtractor {
                 }
             }
         }
+
+        /* the precompiled regular expressions are used if they have been cached before, see PatternSetCache */
+        File cache = PatternSetCache.getFile(lines, backend);
+        if (cache != null) {
+            scanner = PatternSetCache.read(cache, backend, regular_expressions);
+            if (scanner != null) {
+                System.err.println("Completed loading of regular expressions: " + regular_expressions.size() + " loaded from " + cache);
+                return;
+            }
+        }
+
+        List<MyPattern> patterns = new ArrayList<MyPattern>();
+        int lineNumber = 0;
+        for (String regex : lines) {
+            lineNumber++;
+            if (!regex.startsWith("#")) {
+                MyPattern pattern = processPythonRegex(regex, lineNumber);
+                if (pattern != null)
+                    patterns.add(pattern);
+            }
+        }
         System.err.println("Completed loading of regular expressions: " + regular_expressions.size() + " loaded.");
+
+        /* index the literals required by the regular expressions, allows to skip patterns which cannot match a text */
+        scanner = new MultiPatternScanner(patterns);
+
+        if (cache != null) {
+            try {
+                PatternSetCache.write(cache, patterns, regular_expressions, scanner);
+            } catch (IOException ioe) {
+                warn("Cannot cache the regular expressions at " + cache + ": " + ioe.getMessage());
+            }
+        }
     }
 
     /**
-     * Add some ambiguous mentions, which often refer to other concepts instead of mutations
+     * Ambiguous mentions, which often refer to other concepts instead of mutations.
+     * The set is created once and cannot be modified, so it can be read by all instances concurrently.
      */
-    private void initializeAmbiguousMentions(){
+    private static Set<String> createAmbiguousMentions(){
+        Set<String> ambiguous = new HashSet<String>();
         ambiguous.add("T47D");
         ambiguous.add("T98G");
         ambiguous.add("L5178Y");
@@ -264,6 +347,8 @@ public class MutationFinder extends MutationExtractor {
 
 
         ambiguous.add("S100B");//A frequent protein
+
+        return Collections.unmodifiableSet(ambiguous);
     }
 
     /*
@@ -343,12 +428,39 @@ public class MutationFinder extends MutationExtractor {
      * @return returns map from mutations and one or several matching locations in text
      */
     public Map<Mutation, Set<int[]>> extractMutations(String rawText) throws MutationException {
+        return extractMutations(rawText, null);
+    }
+
+    /**
+     * Extract point mutations mentions from raw_text, reusing the matchers of a {@link Workspace}.
+     * The result is identical to {@link #extractMutations(String)}; when many texts are processed by one thread,
+     * reusing the workspace avoids creating new matchers for every regular expression and text.
+     *
+     * @param rawText
+     *            the text to be processed
+     * @param workspace
+     *            workspace created by {@link #createWorkspace()}, which must not be used by other threads concurrently; null to create new matchers
+     * @return returns map from mutations and one or several matching locations in text
+     */
+    public Map<Mutation, Set<int[]>> extractMutations(String rawText, Workspace workspace) throws MutationException {
         Map<Mutation, Set<int[]>> extractedMutations = new HashMap<Mutation, Set<int[]>>();
 
+        /* a single pass over the text determines the literals contained in it */
+        final BitSet literals;
+        if (!multiPatternMode)
+            literals = null;
+        else if (workspace != null)
+            literals = scanner.scan(rawText, workspace.literals);
+        else
+            literals = scanner.scan(rawText);
+
         /* cycle through each pattern and look for matches */
         for (MyPattern pattern : regular_expressions.keySet()) {
-            PatternMatcher m = new Perl5Matcher();
-            PatternMatcherInput input = new PatternMatcherInput(rawText);
+            /* skip patterns whose required literals do not occur in the text */
+            if (literals != null && !scanner.mayMatch(pattern, literals))
+                continue;
+
+            RegexMatcher m = workspace != null ? workspace.matcher(pattern, rawText) : pattern.matcher(rawText);
 
             /* recall the group numbers for the POS, WT_RES, and MUT_RES tags within the patterns */
             final Map<String, Integer> groupMappings = regular_expressions.get(pattern);
@@ -359,15 +471,14 @@ public class MutationFinder extends MutationExtractor {
             int mutres_group = groupMappings.get(MUT_RES);
 
             /* create a new PointMutation for each match */
-            while (m.contains(input, pattern.getPattern())) {
+            while (m.find()) {
             	int id = pattern.getId();
 
-                MatchResult result = m.getMatch();
-//                System.out.println(result.group(pos_group) +" " +result.group(wtres_group) +" " +result
+//                System.out.println(m.group(pos_group) +" " +m.group(wtres_group) +" " +m
 //                        .group(mutres_group));
                 try{
 
-                	PointMutation pm = new PointMutation(result.group(pos_group).replaceAll("\\s", ""), result.group(wtres_group), result
+                	PointMutation pm = new PointMutation(m.group(pos_group).replaceAll("\\s", ""), m.group(wtres_group), m
 	                        .group(mutres_group));
 
                     //Add only mutation if it is valid (basically checks location)
@@ -375,7 +486,7 @@ public class MutationFinder extends MutationExtractor {
 	                	continue;
 
                     //If a mutation is deemed to be ambiguous, we check if the extracted wildtype or mutated residue are in fact long forms (e.g., Ala)
-                    if(ambiguous.contains(pm.toString()) && result.group(wtres_group).trim().length() == 1 && result.group(mutres_group).trim().length() == 1)
+                    if(ambiguous.contains(pm.toString()) && m.group(wtres_group).trim().length() == 1 && m.group(mutres_group).trim().length() == 1)
                         continue;
 
 	                pm.setId(id);
@@ -386,9 +497,9 @@ public class MutationFinder extends MutationExtractor {
 	                // */
 	                //
 	                int[] span = new int[2];
-	                span[0] = Math.min(result.beginOffset(pos_group), Math.min(result.beginOffset(wtres_group), result
-	                        .beginOffset(mutres_group)));
-	                span[1] = Math.max(result.endOffset(pos_group), Math.max(result.endOffset(wtres_group), result.endOffset(mutres_group)));
+	                span[0] = Math.min(m.start(pos_group), Math.min(m.start(wtres_group), m
+	                        .start(mutres_group)));
+	                span[1] = Math.max(m.end(pos_group), Math.max(m.end(wtres_group), m.end(mutres_group)));
 
 	                /* now store the mutation and the span */
 	                if (extractedMutations.containsKey(pm)) {
@@ -399,7 +510,7 @@ public class MutationFinder extends MutationExtractor {
 	                    extractedMutations.put(pm, spans);
 	                }
                 }catch(NumberFormatException nfe){
-                	System.err.println("Problem parsing: " +result.group(pos_group) +" " +result.group(wtres_group) +" " +result.group(mutres_group));
+                	System.err.println("Problem parsing: " +m.group(pos_group) +" " +m.group(wtres_group) +" " +m.group(mutres_group));
                 }
             }
         }
@@ -412,6 +523,39 @@ public class MutationFinder extends MutationExtractor {
 
 
 
+    /**
+     * Creates a workspace for processing many texts in one thread with {@link #extractMutations(String, Workspace)}
+     *
+     * @return a new workspace for this MutationFinder
+     */
+    public Workspace createWorkspace() {
+        return new Workspace();
+    }
+
+    /**
+     * Scratch state of {@link #extractMutations(String, Workspace)}: one matcher per regular expression, which is reset for
+     * every new text, and the bit set of literals found by the multi-pattern scanner.
+     * A workspace is not thread-safe; every worker thread needs its own workspace.
+     */
+    public static final class Workspace {
+        private final Map<MyPattern, RegexMatcher> matchers = new IdentityHashMap<MyPattern, RegexMatcher>();
+        private final BitSet literals = new BitSet();
+
+        private Workspace() {
+        }
+
+        private RegexMatcher matcher(MyPattern pattern, String text) {
+            RegexMatcher matcher = matchers.get(pattern);
+            if (matcher == null) {
+                matcher = pattern.matcher(text);
+                matchers.put(pattern, matcher);
+            } else {
+                matcher.reset(text);
+            }
+            return matcher;
+        }
+    }
+
     /**
      * The main method demonstrates the execution of MutationFinder. Three input arguments are required, the regular expression file used by
      * MutationFinder, an input file to process, and output file to write the generated results.<br>
@@ -1,26 +1,33 @@
 package edu.uchsc.ccp.nlp.ei.mutation;
-import org.apache.oro.text.regex.Pattern;
 
 /**
- * This class contains an apache Pattern object and a pattern Id
+ * This class contains a compiled regular expression and a pattern Id
  * Especially useful to enable later which regex found which entity 
  */
 public class MyPattern {
-	private final Pattern pattern;	//The jakarta oro-pattern
+	private final CompiledRegex pattern;	//The pattern compiled by the selected RegexBackend
 	private final String regex;		//The pattern used to build the pattern
 	private final int id;			//The identifier (line count) of the pattern
 	
-	public MyPattern(Pattern pattern, String regex, int id) {
+	public MyPattern(CompiledRegex pattern, String regex, int id) {
 		super();
 		this.pattern = pattern;
 		this.regex = regex;
 		this.id = id;
 	}
 
-	public Pattern getPattern() {
+	public CompiledRegex getPattern() {
 		return pattern;
 	}
 
+	/**
+	 * @param text the text to be searched
+	 * @return a new matcher for this pattern, which must not be shared between threads
+	 */
+	public RegexMatcher matcher(CharSequence text) {
+		return pattern.matcher(text);
+	}
+
 	public int getId() {
 		return id;
 	}
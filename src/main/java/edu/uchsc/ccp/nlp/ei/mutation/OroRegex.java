@@ -0,0 +1,69 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import org.apache.oro.text.regex.MalformedPatternException;
+import org.apache.oro.text.regex.MatchResult;
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.PatternMatcherInput;
+import org.apache.oro.text.regex.Perl5Compiler;
+import org.apache.oro.text.regex.Perl5Matcher;
+
+/**
+ * {@link RegexBackend#ORO} implementation based on the Jakarta ORO Perl5 engine.
+ * Compiled Perl5 patterns are read-only; every matcher uses its own {@link Perl5Matcher}.
+ */
+final class OroRegex implements CompiledRegex {
+
+    private final Pattern pattern;
+
+    OroRegex(String regex, boolean caseSensitive) {
+        try {
+            Perl5Compiler compiler = new Perl5Compiler();
+            this.pattern = caseSensitive ? compiler.compile(regex) : compiler.compile(regex, Perl5Compiler.CASE_INSENSITIVE_MASK);
+        } catch (MalformedPatternException mpe) {
+            throw new IllegalArgumentException(mpe.getMessage(), mpe);
+        }
+    }
+
+    @Override
+    public RegexMatcher matcher(CharSequence text) {
+        final Perl5Matcher matcher = new Perl5Matcher();
+        final PatternMatcherInput input = new PatternMatcherInput(text.toString());
+        return new RegexMatcher() {
+            private MatchResult result;
+
+            @Override
+            public void reset(CharSequence text) {
+                input.setInput(text.toString());
+                result = null;
+            }
+
+            @Override
+            public boolean find() {
+                if (!matcher.contains(input, pattern))
+                    return false;
+                result = matcher.getMatch();
+                return true;
+            }
+
+            @Override
+            public String group(int group) {
+                return result.group(group);
+            }
+
+            @Override
+            public int start(int group) {
+                return result.beginOffset(group);
+            }
+
+            @Override
+            public int end(int group) {
+                return result.endOffset(group);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return pattern.getPattern();
+    }
+}
@@ -0,0 +1,195 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Precompiled form of the regular expressions used by {@link MutationFinder}, stored in a binary file.
+ * The file contains the converted regular expressions which could be compiled by the {@link RegexBackend}, their group mappings
+ * and the tables of the {@link MultiPatternScanner}; building the latter dominates the start-up time of MutationFinder.
+ * After loading, every regular expression is compiled when it is needed for the first time (see {@link LazyRegex}).
+ *
+ * <p>Files are stored in the directory given by the system property {@value #PROPERTY} (e.g., -Dmutationfinder.cache=/tmp/seth)
+ * and named by the SHA-256 hash of the regular expression file, the backend and the format {@link #VERSION}. A missing or outdated
+ * file is created when MutationFinder is initialized, later instances load it instead of processing the regular expressions.</p>
+ */
+final class PatternSetCache {
+
+    /** System property naming the cache directory; caching is disabled if the property is not set */
+    static final String PROPERTY = "mutationfinder.cache";
+
+    /** Version of the file format and of the literal extraction; has to be increased whenever one of them changes */
+    static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4D465043;    //"MFPC"
+
+    private PatternSetCache() {
+    }
+
+    /**
+     * @param lines lines of the regular expression file
+     * @param backend engine used to compile the regular expressions
+     * @return the cache file for these regular expressions, or null if caching is disabled
+     */
+    static File getFile(List<String> lines, RegexBackend backend) {
+        String directory = System.getProperty(PROPERTY);
+        if (directory == null || directory.trim().isEmpty())
+            return null;
+        return new File(directory.trim(), "mutationfinder-" + hash(lines) + "-" + backend.name().toLowerCase(Locale.ENGLISH) + ".v" + VERSION + ".bin");
+    }
+
+    /**
+     * @param lines lines of the regular expression file
+     * @return hexadecimal SHA-256 hash of the lines
+     */
+    static String hash(List<String> lines) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : lines) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest())
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);  //Every Java platform has to support SHA-256
+        }
+    }
+
+    /**
+     * Writes the precompiled regular expressions. The file is replaced atomically, so concurrent readers never see a partial file.
+     *
+     * @param file               destination
+     * @param patterns           compiled patterns in the order of the regular expression file
+     * @param regularExpressions group mappings of the patterns
+     * @param scanner            scanner built for the patterns
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, List<MyPattern> patterns, Map<MyPattern, Map<String, Integer>> regularExpressions, MultiPatternScanner scanner) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create directory " + directory);
+
+        File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+
+                Map<MyPattern, Integer> index = new HashMap<MyPattern, Integer>();
+                out.writeInt(patterns.size());
+                for (MyPattern pattern : patterns) {
+                    index.put(pattern, index.size());
+                    out.writeInt(pattern.getId());
+                    writeString(out, pattern.getRegex());
+                    Map<String, Integer> groupMappings = regularExpressions.get(pattern);
+                    out.writeInt(groupMappings.size());
+                    for (Map.Entry<String, Integer> mapping : groupMappings.entrySet()) {
+                        writeString(out, mapping.getKey());
+                        out.writeInt(mapping.getValue());
+                    }
+                }
+                scanner.write(out, index);
+            } finally {
+                out.close();
+            }
+
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Loads precompiled regular expressions; they are compiled by the given backend when they are used for the first time.
+     *
+     * @param file               source
+     * @param backend            engine used to compile the regular expressions
+     * @param regularExpressions map receiving the patterns and their group mappings
+     * @return the scanner for the loaded patterns, or null if the file does not exist or has an unknown format
+     */
+    static MultiPatternScanner read(File file, RegexBackend backend, Map<MyPattern, Map<String, Integer>> regularExpressions) {
+        if (!file.isFile())
+            return null;
+
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (in.getInt() != MAGIC || in.getInt() != VERSION)
+                return null;
+
+            List<MyPattern> patterns = new ArrayList<MyPattern>();
+            int size = in.getInt();
+            for (int i = 0; i < size; i++) {
+                int id = in.getInt();
+                String regex = readString(in);
+                Map<String, Integer> groupMappings = new HashMap<String, Integer>();
+                int mappings = in.getInt();
+                for (int j = 0; j < mappings; j++)
+                    groupMappings.put(readString(in), in.getInt());
+
+                boolean caseSensitive = regex.endsWith(MutationFinder.CASE_SENSITIVE);
+                MyPattern pattern = new MyPattern(new LazyRegex(backend, caseSensitive ? regex.substring(0, regex.lastIndexOf('[')) : regex, caseSensitive), regex, id);
+                regularExpressions.put(pattern, groupMappings);
+                patterns.add(pattern);
+            }
+
+            MultiPatternScanner scanner = MultiPatternScanner.read(in, patterns);
+            if (in.hasRemaining())
+                throw new IOException("Unexpected data at the end of " + file);
+            return scanner;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable cache file " + file + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring corrupt cache file " + file + ": " + e);   //e.g., truncated file or invalid lengths
+        }
+        regularExpressions.clear();
+        return null;
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values)
+            out.writeInt(value);
+    }
+
+    static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * values.length);
+        return values;
+    }
+}
@@ -0,0 +1,62 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import java.util.Locale;
+
+/**
+ * Regular expression engines available for {@link MutationFinder}.
+ * The backend can be chosen by the constructor of {@link MutationFinder} or by the system property
+ * {@value #PROPERTY} (e.g., -Dmutationfinder.regex=LINEAR).
+ */
+public enum RegexBackend {
+
+    /**
+     * Jakarta ORO Perl5 engine, the engine originally used by MutationFinder
+     */
+    ORO {
+        @Override
+        public CompiledRegex compile(String regex, boolean caseSensitive) {
+            return new OroRegex(regex, caseSensitive);
+        }
+    },
+
+    /**
+     * The backtracking engine of {@link java.util.regex}
+     */
+    JAVA {
+        @Override
+        public CompiledRegex compile(String regex, boolean caseSensitive) {
+            return new JavaRegex(regex, caseSensitive);
+        }
+    },
+
+    /**
+     * Automaton based engine with run time linear in the length of the text, see {@link LinearRegex}.
+     * Supports the subset of the Perl syntax used by MutationFinder; lookaheads are restricted to single characters and '$'
+     */
+    LINEAR {
+        @Override
+        public CompiledRegex compile(String regex, boolean caseSensitive) {
+            return new LinearRegex(regex, caseSensitive);
+        }
+    };
+
+    /** System property used to select the default backend */
+    public static final String PROPERTY = "mutationfinder.regex";
+
+    /**
+     * Compiles a regular expression
+     * @param regex Java-compliant regular expression (i.e., named groups already removed)
+     * @param caseSensitive false if the expression should ignore case
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression is malformed or not supported by the backend
+     */
+    public abstract CompiledRegex compile(String regex, boolean caseSensitive);
+
+    /**
+     * @return the backend configured by the system property {@value #PROPERTY}, {@link #JAVA} if the property is not set
+     * @throws IllegalArgumentException if the property names an unknown backend
+     */
+    public static RegexBackend getDefault() {
+        return valueOf(System.getProperty(PROPERTY, JAVA.name()).trim().toUpperCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,461 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Determines literal strings which have to occur in every text matched by a (Perl-style) regular expression.
+ * Only the subset of the Perl syntax used in resources/mutations.txt is understood; whenever the extractor
+ * is unsure it falls back to "no requirement", so the extracted literals are always a necessary condition
+ * for a match and can safely be used to skip patterns.
+ * All literals are returned in lower case, irrespective of the case sensitivity of the pattern.
+ *
+ * Besides plain literals, alternations (e.g., amino acid names) and small character classes (e.g., [1-9] or [ATGC])
+ * are expanded into sets of alternative strings, following the prefilter construction of RE2.
+ * Thus a pattern like 'WRES POS to MRES' requires a digit and one of the residues next to it, and not only ' to '.
+ */
+final class RegexLiteralExtractor {
+
+    /** Maximal number of alternative strings tracked for one sub-expression */
+    private static final int MAX_EXACT = 128;
+
+    /** Character classes with more characters are treated like an arbitrary character */
+    private static final int MAX_CLASS = 32;
+
+    private final String regex;
+    private int pos;
+
+    private RegexLiteralExtractor(String regex) {
+        this.regex = regex;
+        this.pos = 0;
+    }
+
+    /**
+     * Extracts a boolean combination of literals which has to be fulfilled by every text matched by the regular expression
+     * @param regex Java-compliant regular expression (i.e., named groups already removed)
+     * @return query over lower-cased literals; {@link LiteralQuery#ALL} if nothing is required
+     */
+    static LiteralQuery requiredQuery(String regex) {
+        try {
+            return info(parse(regex)).toQuery();
+        } catch (IllegalArgumentException iae) {
+            return LiteralQuery.ALL;  //Unknown syntax, we cannot say anything about this pattern
+        }
+    }
+
+    /*
+     * Computes the strings a node can match exactly (if there are only few of them) or otherwise a query which has to be
+     * fulfilled by every match of the node.
+     */
+    private static Info info(Node node) {
+        switch (node.kind) {
+            case LITERAL:
+                return Info.exact(Collections.singleton(node.chars));
+            case CLASS:
+                if (node.chars == null || node.chars.length() > MAX_CLASS)
+                    return Info.match(LiteralQuery.ALL);
+                Set<String> chars = new LinkedHashSet<String>();
+                for (char c : node.chars.toCharArray())
+                    chars.add(String.valueOf(c));
+                return Info.exact(chars);
+            case EMPTY:
+                return Info.exact(Collections.singleton(""));
+            case CONCAT: {
+                List<Info> infos = new ArrayList<Info>(node.children.size());
+                for (Node child : node.children)
+                    infos.add(info(child));
+                return Info.concat(infos);
+            }
+            case ALTERNATION: {
+                List<Info> infos = new ArrayList<Info>(node.children.size());
+                for (Node child : node.children)
+                    infos.add(info(child));
+                return Info.alternate(infos);
+            }
+            case REPEAT: {
+                Info body = info(node.children.get(0));
+                if (node.min == 0 && node.max == 1 && body.exact != null) {  // x?
+                    Set<String> optional = new LinkedHashSet<String>(body.exact);
+                    optional.add("");
+                    return Info.exact(optional);
+                }
+                if (node.min == 0)
+                    return Info.match(LiteralQuery.ALL);
+                if (node.min == 1 && node.max == 1)
+                    return body;
+                return Info.match(body.toQuery());
+            }
+            default:
+                return Info.match(LiteralQuery.ALL);
+        }
+    }
+
+    /**
+     * Either the set of all strings matched by a sub-expression or a query fulfilled by all its matches
+     */
+    private static final class Info {
+        private final Set<String> exact;
+        private final LiteralQuery match;
+
+        private Info(Set<String> exact, LiteralQuery match) {
+            this.exact = exact;
+            this.match = match;
+        }
+
+        static Info exact(Set<String> exact) {
+            return new Info(exact, null);
+        }
+
+        static Info match(LiteralQuery match) {
+            return new Info(null, match);
+        }
+
+        /*
+         * Adjacent exact sets are combined into their cross product as long as it stays small. Otherwise the strings collected so
+         * far become a conjunct of the query and collection restarts, so literal runs like ' was replaced by ' are kept intact.
+         */
+        static Info concat(List<Info> infos) {
+            LiteralQuery match = LiteralQuery.ALL;
+            Set<String> exact = Collections.singleton("");
+            boolean onlyExact = true;
+
+            for (Info info : infos) {
+                if (info.exact != null && exact.size() * info.exact.size() <= MAX_EXACT) {
+                    Set<String> product = new LinkedHashSet<String>();
+                    for (String x : exact)
+                        for (String y : info.exact)
+                            product.add(x + y);
+                    exact = product;
+                } else {
+                    onlyExact = false;
+                    match = LiteralQuery.and(match, exact(exact).toQuery());
+                    if (info.exact != null) {
+                        exact = info.exact;
+                    } else {
+                        match = LiteralQuery.and(match, info.match);
+                        exact = Collections.singleton("");
+                    }
+                }
+            }
+
+            if (onlyExact)
+                return exact(exact);
+            return match(LiteralQuery.and(match, exact(exact).toQuery()));
+        }
+
+        static Info alternate(List<Info> infos) {
+            Set<String> union = new LinkedHashSet<String>();
+            for (Info info : infos) {
+                if (info.exact == null || union.size() + info.exact.size() > MAX_EXACT) {
+                    union = null;
+                    break;
+                }
+                union.addAll(info.exact);
+            }
+            if (union != null)
+                return exact(union);
+
+            LiteralQuery[] queries = new LiteralQuery[infos.size()];
+            for (int i = 0; i < queries.length; i++)
+                queries[i] = infos.get(i).toQuery();
+            return match(LiteralQuery.or(queries));
+        }
+
+        private static final Comparator<String> BY_LENGTH = new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                return o1.length() - o2.length();
+            }
+        };
+
+        LiteralQuery toQuery() {
+            if (exact == null)
+                return match;
+            if (exact.contains(""))
+                return LiteralQuery.ALL;
+
+            //A string containing another alternative is redundant (e.g., 'alanine' if 'ala' is an alternative as well)
+            List<String> sorted = new ArrayList<String>(exact);
+            Collections.sort(sorted, BY_LENGTH);
+            List<String> kept = new ArrayList<String>();
+            LiteralQuery[] literals = new LiteralQuery[sorted.size()];
+            int size = 0;
+            loop:for (String s : sorted) {
+                for (String t : kept) {
+                    if (t.length() < s.length() && s.contains(t))
+                        continue loop;
+                }
+                kept.add(s);
+                literals[size++] = LiteralQuery.literal(s);
+            }
+            return LiteralQuery.or(Arrays.copyOf(literals, size));
+        }
+    }
+
+    /**
+     * Parses the regular expression into a simplified syntax tree
+     * @param regex Java-compliant regular expression
+     * @return root of the syntax tree
+     * @throws IllegalArgumentException if the regular expression uses unsupported syntax
+     */
+    static Node parse(String regex) {
+        RegexLiteralExtractor parser = new RegexLiteralExtractor(regex);
+        Node root = parser.parseAlternation();
+        if (parser.pos != regex.length())
+            throw new IllegalArgumentException("Unbalanced parenthesis at " + parser.pos + " in " + regex);
+        return root;
+    }
+
+    private boolean hasNext() {
+        return pos < regex.length();
+    }
+
+    private char peek() {
+        return regex.charAt(pos);
+    }
+
+    private Node parseAlternation() {
+        List<Node> options = new ArrayList<Node>();
+        options.add(parseConcat());
+        while (hasNext() && peek() == '|') {
+            pos++;
+            options.add(parseConcat());
+        }
+        return options.size() == 1 ? options.get(0) : new Node(Kind.ALTERNATION, options);
+    }
+
+    private Node parseConcat() {
+        List<Node> items = new ArrayList<Node>();
+        while (hasNext() && peek() != '|' && peek() != ')')
+            items.add(parseRepeat());
+        return new Node(Kind.CONCAT, items);
+    }
+
+    private Node parseRepeat() {
+        Node atom = parseAtom();
+        while (hasNext()) {
+            int min, max;
+            char c = peek();
+            if (c == '*') {
+                min = 0;
+                max = -1;
+                pos++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+                pos++;
+            } else if (c == '{' && regex.substring(pos).matches("(?s)\\{\\d+(,\\d*)?\\}.*")) {
+                int close = regex.indexOf('}', pos);
+                String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+                min = Integer.parseInt(bounds[0]);
+                max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]);
+                pos = close + 1;
+            } else {
+                break;
+            }
+
+            //Lazy and possessive quantifiers do not change the set of required characters
+            if (hasNext() && (peek() == '?' || peek() == '+'))
+                pos++;
+            atom = new Node(atom, min, max);
+        }
+        return atom;
+    }
+
+    private Node parseAtom() {
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case '(':
+                return parseGroup();
+            case '[':
+                return parseClass();
+            case '.':
+                return Node.ANY;
+            case '^':
+            case '$':
+                return Node.ZERO_WIDTH;
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+                throw new IllegalArgumentException("Dangling quantifier at " + pos + " in " + regex);
+            default:
+                return Node.literal(c);
+        }
+    }
+
+    private Node parseGroup() {
+        boolean lookaround = false;
+        if (regex.startsWith("?:", pos)) {
+            pos += 2;
+        } else if (regex.startsWith("?=", pos) || regex.startsWith("?!", pos)) {
+            pos += 2;
+            lookaround = true;
+        } else if (regex.startsWith("?<=", pos) || regex.startsWith("?<!", pos)) {
+            pos += 3;
+            lookaround = true;
+        } else if (regex.startsWith("?P<", pos) || regex.startsWith("?<", pos)) {
+            pos = regex.indexOf('>', pos) + 1;
+            if (pos == 0)
+                throw new IllegalArgumentException("Unterminated group name in " + regex);
+        } else if (hasNext() && peek() == '?') {
+            throw new IllegalArgumentException("Unsupported group construct at " + pos + " in " + regex);
+        }
+
+        Node inner = parseAlternation();
+        if (!hasNext() || peek() != ')')
+            throw new IllegalArgumentException("Missing closing parenthesis in " + regex);
+        pos++;
+        return lookaround ? Node.ZERO_WIDTH : inner;
+    }
+
+    private Node parseEscape() {
+        if (!hasNext())
+            throw new IllegalArgumentException("Trailing backslash in " + regex);
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case 's': case 'S': case 'd': case 'D': case 'w': case 'W':
+                return Node.ANY;
+            case 'b': case 'B': case 'A': case 'Z': case 'z': case 'G':
+                return Node.ZERO_WIDTH;
+            default:
+                if (Character.isDigit(c))  //back-reference, we do not know which characters are matched
+                    return new Node(Node.ANY, 0, -1);
+                return Node.literal(escapedCharacter(c));
+        }
+    }
+
+    private Node parseClass() {
+        StringBuilder chars = new StringBuilder();
+        boolean wide = false;
+        if (hasNext() && peek() == '^') {
+            wide = true;
+            pos++;
+        }
+
+        boolean first = true;
+        while (true) {
+            if (!hasNext())
+                throw new IllegalArgumentException("Unterminated character class in " + regex);
+            char c = regex.charAt(pos++);
+            if (c == ']' && !first)
+                break;
+            first = false;
+
+            if (c == '[' && hasNext() && peek() == ':')
+                throw new IllegalArgumentException("Unsupported POSIX class in " + regex);
+
+            if (c == '\\') {
+                char e = regex.charAt(pos++);
+                if ("sSdDwW".indexOf(e) >= 0) {
+                    wide = true;
+                    continue;
+                }
+                c = escapedCharacter(e);
+            }
+
+            if (hasNext() && peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                pos++;
+                char to = regex.charAt(pos++);
+                if (to == '\\')
+                    to = escapedCharacter(regex.charAt(pos++));
+                if (to - c > 64)
+                    wide = true;
+                else
+                    for (char r = c; r <= to; r++)
+                        chars.append(r);
+            } else {
+                chars.append(c);
+            }
+        }
+
+        return wide ? Node.ANY : Node.charClass(chars);
+    }
+
+    private static char escapedCharacter(char c) {
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'e':
+                return '\u001B';
+            case 'x': case 'u': case 'c': case 'p': case 'P':
+                throw new IllegalArgumentException("Unsupported escape sequence \\" + c);
+            default:
+                return c;
+        }
+    }
+
+    enum Kind {LITERAL, CLASS, EMPTY, CONCAT, ALTERNATION, REPEAT}
+
+    /**
+     * Node of the simplified syntax tree
+     */
+    static final class Node {
+        static final Node ANY = new Node(Kind.CLASS, (String) null);
+        static final Node ZERO_WIDTH = new Node(Kind.EMPTY, (String) null);
+
+        final Kind kind;
+        /** Lower-cased characters of a literal or a character class; null for arbitrary characters */
+        final String chars;
+        final List<Node> children;
+        /** Minimal number of repetitions (only for {@link Kind#REPEAT}) */
+        final int min;
+        /** Maximal number of repetitions, -1 if unbounded (only for {@link Kind#REPEAT}) */
+        final int max;
+
+        private Node(Kind kind, String chars) {
+            this.kind = kind;
+            this.chars = chars;
+            this.children = null;
+            this.min = 1;
+            this.max = 1;
+        }
+
+        private Node(Kind kind, List<Node> children) {
+            this.kind = kind;
+            this.chars = null;
+            this.children = children;
+            this.min = 1;
+            this.max = 1;
+        }
+
+        private Node(Node body, int min, int max) {
+            this.kind = Kind.REPEAT;
+            this.chars = null;
+            this.children = new ArrayList<Node>(1);
+            this.children.add(body);
+            this.min = min;
+            this.max = max;
+        }
+
+        static Node literal(char c) {
+            return new Node(Kind.LITERAL, String.valueOf(Character.toLowerCase(c)));
+        }
+
+        static Node charClass(CharSequence chars) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < chars.length(); i++) {
+                char c = Character.toLowerCase(chars.charAt(i));
+                if (sb.indexOf(String.valueOf(c)) < 0)
+                    sb.append(c);
+            }
+            return new Node(Kind.CLASS, sb.toString());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package edu.uchsc.ccp.nlp.ei.mutation;
+
+/**
+ * Searches successive matches of a {@link CompiledRegex} in one text.
+ * Group numbers follow the Perl convention, i.e. capturing groups are numbered by their opening parenthesis and group 0 is the whole match.
+ */
+public interface RegexMatcher {
+
+    /**
+     * Resets this matcher to search a new text from its beginning, which avoids creating a new matcher for every text
+     * @param text the text to be searched
+     */
+    void reset(CharSequence text);
+
+    /**
+     * Searches the next match, starting at the end of the previous match
+     * @return true if another match has been found
+     */
+    boolean find();
+
+    /**
+     * @param group number of the capturing group
+     * @return text matched by the group in the last match, or null if the group did not participate in the match
+     */
+    String group(int group);
+
+    /**
+     * @param group number of the capturing group
+     * @return offset of the first character matched by the group, or -1 if the group did not participate in the match
+     */
+    int start(int group);
+
+    /**
+     * @param group number of the capturing group
+     * @return offset after the last character matched by the group, or -1 if the group did not participate in the match
+     */
+    int end(int group);
+}
@@ -0,0 +1,75 @@
+package seth;
+
+/**
+ * Set of characters which may precede or follow a mention, e.g. whitespace, brackets and punctuation.
+ * The regular expression based recognizers require such a character (or the start or end of the text) around a mention.
+ * The set is stored as a lookup table, so it can be tested without a regular expression;
+ * {@link #prefix()} and {@link #suffix()} return the equivalent regular expressions.
+ */
+public final class Boundary {
+
+    /** Characters of the regular expression \s */
+    private static final String WHITESPACE = " \t\n\u000B\f\r";
+
+    private final boolean[] table = new boolean[128];
+    private final String characters;
+
+    /**
+     * @param characters characters of the set besides whitespace; only ASCII characters are supported
+     */
+    public Boundary(String characters) {
+        for (char ch : (WHITESPACE + characters).toCharArray()) {
+            if (ch >= table.length)
+                throw new IllegalArgumentException("Unsupported boundary character " + ch);
+            table[ch] = true;
+        }
+        this.characters = characters;
+    }
+
+    /**
+     * @param ch a character
+     * @return true if the character belongs to the set
+     */
+    public boolean contains(char ch) {
+        return ch < table.length && table[ch];
+    }
+
+    /**
+     * @param text  a text
+     * @param start start of a mention in the text
+     * @return true if the mention starts the text or follows a character of the set
+     */
+    public boolean precedes(CharSequence text, int start) {
+        return start == 0 || contains(text.charAt(start - 1));
+    }
+
+    /**
+     * @param text a text
+     * @param end  end of a mention in the text (exclusive)
+     * @return true if the mention ends the text or is followed by a character of the set
+     */
+    public boolean follows(CharSequence text, int end) {
+        return end == text.length() || contains(text.charAt(end));
+    }
+
+    /**
+     * @return regular expression which matches the start of the text or a character of the set (as group)
+     */
+    public String prefix() {
+        return "(^|" + characterClass() + ")";
+    }
+
+    /**
+     * @return lookahead which matches if the end of the text or a character of the set follows (as group)
+     */
+    public String suffix() {
+        return "(?=(" + characterClass() + "|$))";
+    }
+
+    private String characterClass() {
+        StringBuilder sb = new StringBuilder("[\\s");
+        for (char ch : characters.toCharArray())
+            sb.append(Character.isLetterOrDigit(ch) ? "" : "\\").append(ch);
+        return sb.append(']').toString();
+    }
+}
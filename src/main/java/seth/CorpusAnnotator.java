@@ -0,0 +1,383 @@
+package seth;
+
+import de.hu.berlin.wbi.objects.MutationMention;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Applies {@link SETH} to a corpus which is streamed from a file (or standard input) to a file (or standard output).
+ *
+ * <p>Documents are processed by a pipeline of three stages: a reader thread parses the input into batches,
+ * several worker threads apply one shared {@link SETH} instance to the batches (see {@link SETH#findMutations(Map)}),
+ * and the calling thread writes the results in input order. The stages are connected by bounded queues and at most
+ * {@link #setQueueCapacity(int) queueCapacity} batches are in flight at any time, so memory consumption does not depend
+ * on the size of the corpus.</p>
+ *
+ * <p>Two input formats are supported: {@link Format#TSV} expects one document per line as <code>id&lt;TAB&gt;text</code>;
+ * {@link Format#JSONL} expects one JSON object per line with the fields <code>id</code> and <code>text</code>.
+ * In the TSV output every mention is written as <code>id&lt;TAB&gt;start&lt;TAB&gt;end&lt;TAB&gt;text&lt;TAB&gt;tool</code>,
+ * in the JSONL output every document is written as one object containing its mentions.
+ * Files ending with ".gz" are read and written gzip-compressed.</p>
+ */
+public class CorpusAnnotator {
+
+    /**
+     * Supported input and output formats
+     */
+    public enum Format {
+        /** One document per line: <code>id&lt;TAB&gt;text</code> */
+        TSV,
+        /** One JSON object per line: <code>{"id": ..., "text": ...}</code> */
+        JSONL;
+
+        /**
+         * Determines the format from a file name; files ending with ".json" or ".jsonl" (optionally followed by ".gz") are JSONL
+         *
+         * @param fileName name of the file
+         * @return format of the file
+         */
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase();
+            if (name.endsWith(".gz"))
+                name = name.substring(0, name.length() - 3);
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : TSV;
+        }
+    }
+
+    /** Marks the end of the input for the worker and writer stage */
+    private static final Batch END = new Batch(-1);
+
+    private final SETH seth;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int batchSize = 64;
+
+    private int queueCapacity = 4 * threads;
+
+    /**
+     * @param seth SETH instance shared by all worker threads
+     */
+    public CorpusAnnotator(SETH seth) {
+        this.seth = seth;
+    }
+
+    /**
+     * @param threads number of worker threads (default: number of available processors)
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one worker thread is required");
+        this.threads = threads;
+    }
+
+    /**
+     * @param batchSize number of documents handed to a worker at once (default: 64)
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size has to be positive");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param queueCapacity maximum number of batches read but not yet written (default: four times the number of processors)
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("Queue capacity has to be positive");
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Annotates all documents of a file. A file name of "-" denotes standard input or standard output, respectively.
+     *
+     * @param input  input file, in TSV or JSONL format (see {@link Format#fromFileName(String)})
+     * @param output output file, in TSV or JSONL format
+     * @return number of processed documents
+     * @throws IOException if reading, parsing or writing fails
+     */
+    public long annotate(String input, String output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(openInput(input), StandardCharsets.UTF_8));
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(openOutput(output), StandardCharsets.UTF_8));
+            try {
+                return annotate(reader, Format.fromFileName(input), writer, Format.fromFileName(output));
+            } finally {
+                writer.close();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Annotates all documents read from a reader; neither stream is closed.
+     *
+     * @param reader       source of the documents
+     * @param inputFormat  format of the documents
+     * @param writer       destination of the mentions
+     * @param outputFormat format of the mentions
+     * @return number of processed documents
+     * @throws IOException if reading, parsing or writing fails
+     */
+    public long annotate(final BufferedReader reader, final Format inputFormat, Writer writer, Format outputFormat) throws IOException {
+        final BlockingQueue<Batch> input = new ArrayBlockingQueue<Batch>(queueCapacity + threads);
+        /* Unbounded, but never contains more than queueCapacity batches because of the permits */
+        final BlockingQueue<Batch> results = new LinkedBlockingQueue<Batch>();
+        final Semaphore permits = new Semaphore(queueCapacity);
+        final int workers = threads;
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers + 1);
+        try {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        read(reader, inputFormat, input, permits);
+                        for (int i = 0; i < workers; i++)
+                            input.put(END);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Throwable t) {
+                        results.add(Batch.failed(t));
+                    }
+                }
+            });
+
+            for (int i = 0; i < workers; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Batch batch;
+                            while ((batch = input.take()) != END) {
+                                batch.mentions = seth.findMutations(batch.texts);
+                                results.add(batch);
+                            }
+                            results.add(END);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (Throwable t) {
+                            results.add(Batch.failed(t));
+                        }
+                    }
+                });
+            }
+
+            return write(writer, outputFormat, results, permits, workers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while annotating", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reader stage: groups the documents into batches
+     */
+    private void read(BufferedReader reader, Format format, BlockingQueue<Batch> input, Semaphore permits) throws IOException, InterruptedException {
+        JSONParser parser = new JSONParser();
+        long sequence = 0;
+        long lineNumber = 0;
+
+        Batch batch = new Batch(sequence);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty())
+                continue;
+
+            if (format == Format.JSONL) {
+                Object parsed;
+                try {
+                    parsed = parser.parse(line);
+                } catch (ParseException e) {
+                    throw new IOException("Line " + lineNumber + ": invalid JSON", e);
+                }
+                if (!(parsed instanceof JSONObject) || ((JSONObject) parsed).get("id") == null || !(((JSONObject) parsed).get("text") instanceof String))
+                    throw new IOException("Line " + lineNumber + ": expected an object with the fields 'id' and 'text'");
+                batch.add(String.valueOf(((JSONObject) parsed).get("id")), (String) ((JSONObject) parsed).get("text"));
+            } else {
+                int firstTabIndex = line.indexOf('\t');
+                if (firstTabIndex < 0)
+                    throw new IOException("Line " + lineNumber + ": expected 'id<TAB>text'");
+                batch.add(line.substring(0, firstTabIndex), line.substring(firstTabIndex + 1));
+            }
+
+            if (batch.ids.size() == batchSize) {
+                permits.acquire();
+                input.put(batch);
+                batch = new Batch(++sequence);
+            }
+        }
+
+        if (!batch.ids.isEmpty()) {
+            permits.acquire();
+            input.put(batch);
+        }
+    }
+
+    /**
+     * Writer stage: restores the input order of the batches finished by the workers
+     */
+    private long write(Writer writer, Format format, BlockingQueue<Batch> results, Semaphore permits, int workers) throws IOException, InterruptedException {
+        Map<Long, Batch> pending = new HashMap<Long, Batch>();
+        long next = 0;
+        long documents = 0;
+        int finished = 0;
+
+        while (finished < workers) {
+            Batch batch = results.take();
+            if (batch == END) {
+                finished++;
+                continue;
+            }
+            if (batch.failure != null) {
+                if (batch.failure instanceof IOException)
+                    throw (IOException) batch.failure;
+                if (batch.failure instanceof RuntimeException)
+                    throw (RuntimeException) batch.failure;
+                if (batch.failure instanceof Error)
+                    throw (Error) batch.failure;
+                throw new IOException(batch.failure);
+            }
+
+            pending.put(batch.sequence, batch);
+            while ((batch = pending.remove(next)) != null) {
+                for (int i = 0; i < batch.ids.size(); i++)
+                    write(writer, format, batch.ids.get(i), batch.mentions.get(String.valueOf(i)));
+                documents += batch.ids.size();
+                next++;
+                permits.release();
+            }
+        }
+        writer.flush();
+        return documents;
+    }
+
+    private static void write(Writer writer, Format format, String id, List<MutationMention> mentions) throws IOException {
+        if (format == Format.JSONL) {
+            List<Map<String, Object>> mutations = new ArrayList<Map<String, Object>>();
+            for (MutationMention mention : mentions) {
+                Map<String, Object> mutation = new LinkedHashMap<String, Object>();
+                mutation.put("start", mention.getStart());
+                mutation.put("end", mention.getEnd());
+                mutation.put("text", mention.getText());
+                mutation.put("tool", String.valueOf(mention.getTool()));
+                mutation.put("type", String.valueOf(mention.getType()));
+                mutation.put("normalized", mention.toNormalized());
+                mutations.add(mutation);
+            }
+            Map<String, Object> document = new LinkedHashMap<String, Object>();
+            document.put("id", id);
+            document.put("mutations", mutations);
+            writer.append(JSONValue.toJSONString(document)).append('\n');
+        } else {
+            for (MutationMention mention : mentions) {
+                writer.append(id).append('\t').append(String.valueOf(mention.getStart())).append('\t').append(String.valueOf(mention.getEnd()))
+                        .append('\t').append(mention.getText()).append('\t').append(String.valueOf(mention.getTool())).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Opens a file for reading; "-" denotes standard input and files ending with ".gz" are decompressed
+     *
+     * @param fileName name of the file
+     * @return stream of the (uncompressed) content
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream openInput(String fileName) throws IOException {
+        InputStream in = fileName.equals("-") ? System.in : new FileInputStream(new File(fileName));
+        return fileName.toLowerCase().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    /**
+     * Opens a file for writing; "-" denotes standard output and files ending with ".gz" are compressed
+     *
+     * @param fileName name of the file
+     * @return stream writing to the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static OutputStream openOutput(String fileName) throws IOException {
+        OutputStream out = fileName.equals("-") ? System.out : new FileOutputStream(new File(fileName));
+        return fileName.toLowerCase().endsWith(".gz") ? new GZIPOutputStream(out, 1 << 16) : out;
+    }
+
+    /**
+     * Batch of documents processed by one worker at once
+     */
+    private static final class Batch {
+        private final long sequence;
+        private final List<String> ids = new ArrayList<String>();
+        /** Texts keyed by their position in the batch, as identifiers need not be unique */
+        private final Map<String, String> texts = new LinkedHashMap<String, String>();
+        private Map<String, List<MutationMention>> mentions;
+        private Throwable failure;
+
+        private Batch(long sequence) {
+            this.sequence = sequence;
+        }
+
+        private static Batch failed(Throwable failure) {
+            Batch batch = new Batch(-1);
+            batch.failure = failure;
+            return batch;
+        }
+
+        private void add(String id, String text) {
+            texts.put(String.valueOf(ids.size()), text);
+            ids.add(id);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("USAGE: CorpusAnnotator inputFile outputFile [threads] [regexFile]");
+            System.err.println("Files ending with .json/.jsonl are read/written as JSON lines, all other files as 'id<TAB>text'.");
+            System.err.println("Files ending with .gz are compressed; '-' denotes standard input/output.");
+            System.exit(1);
+        }
+
+        SETH seth = args.length == 4 ? new SETH(args[3], false, true) : new SETH();
+        CorpusAnnotator annotator = new CorpusAnnotator(seth);
+        if (args.length >= 3) {
+            annotator.setThreads(Integer.parseInt(args[2]));
+            annotator.setQueueCapacity(4 * Integer.parseInt(args[2]));
+        }
+
+        long start = System.currentTimeMillis();
+        long documents = annotator.annotate(args[0], args[1]);
+        System.err.println("Annotated " + documents + " documents in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -13,12 +13,13 @@ import java.util.regex.Pattern;
 /**
  * This class can be used to find mutation mentions (deletions, IVS-substitions, insertions, and frameshifts)
  * written in  deprecated nomenclature
+ * The patterns are immutable and compiled once, so instances are thread-safe.
  * @author Philippe Thomas
  */
 public class OldNomenclature {
 
-    final private static String prefix="(^|[\\s\\(\\)\\[\\'\"/,])"; //>
-    final private static String suffix="(?=([\\.,\\s\\)\\(\\]\\'\":;\\-/]|$))";//|:?[ATGC]>[ATGC]
+    final private static String prefix=new Boundary("()['\"/,").prefix(); //>
+    final private static String suffix=new Boundary(".,)(]'\":;-/").suffix();//|:?[ATGC]>[ATGC]
     //final private static Pattern dbSNP = Pattern.compile(prefix +"(rs[1-9][0-9]*)" +suffix);
 
     //852delA, 852delAT, 852del, 852del22, 852-123delA, 852+123delT
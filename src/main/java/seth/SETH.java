@@ -13,6 +13,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * This class encapsulates modified {@link MutationFinder}, {@link SETHNER}, {@link OldNomenclature}, and {@link dbSNPRecognizer}.
@@ -21,6 +26,13 @@ import java.util.*;
  * SNPs written in deprecated nomenclature
  * and dbSNP mentions
  *
+ * <p>Concurrency: a SETH instance is thread-safe once it has been constructed. All recognizers are initialized by the
+ * constructor and only read afterwards; {@link #findMutations(String)} keeps all per-call state (matchers, parse results,
+ * intermediate collections) local to the call. A single instance can therefore serve a whole thread pool, which avoids
+ * loading the regular expressions of {@link MutationFinder} once per thread.
+ * Independently, the recognizers can be run concurrently for a single text, see {@link #setExecutor(java.util.concurrent.Executor)}.
+ * Normalization ({@link MutationMention#normalizeSNP}) modifies the returned {@link MutationMention}s and is not covered by this contract.</p>
+ *
  * @author Philippe Thomas
  */
 public class SETH {
@@ -46,6 +58,22 @@ public class SETH {
      */
     private final dbSNPRecognizer snpRecognizer;
 
+    /**
+     * Executor for running the recognizers concurrently, null if they are run sequentially
+     */
+    private volatile Executor executor;
+
+    /**
+     * Chunk size and overlap for long texts, null if texts are processed at once
+     */
+    private volatile int[] chunking;
+
+    /**
+     * Number of characters around an edit which are searched again by {@link #updateMutations(String, List, int, int, String)}
+     * if chunking is disabled
+     */
+    private static final int EDIT_OVERLAP = 200;
+
     /**
      * Parameter free constructor for SETH. This constructor initializes SETH with reasonable default settings.
      * The constructor {@link SETH#SETH(String, boolean, boolean)} provides more flexibility for advanced configuration
@@ -108,29 +136,320 @@ public class SETH {
     }
 
     /**
-     * Searches for mutation mentions in applied text and returns them
+     * Searches for mutation mentions in applied text and returns them.
+     * This method can be called concurrently by several threads.
      *
      * @param text Text possibly containing a mutation mention
      * @return List of {@link MutationMention}
      */
-    public List<MutationMention> findMutations(String text) {
+    public List<MutationMention> findMutations(final String text) {
+        return findMutations(text, null, new HashSet<MutationMention>());
+    }
+
+    /**
+     * Searches for mutation mentions in a batch of documents.
+     * In contrast to calling {@link #findMutations(String)} for every document, the matchers of {@link MutationFinder}
+     * and the intermediate collections are created once and reused for all documents of the batch.
+     * The batch is processed by the calling thread; several threads can process different batches concurrently.
+     *
+     * @param documents Documents to be processed, keyed by their identifier
+     * @return Mentions found in every document, keyed by the document identifier (in the iteration order of documents)
+     */
+    public Map<String, List<MutationMention>> findMutations(Map<String, String> documents) {
+        MutationFinder.Workspace workspace = mf.createWorkspace();
+        Set<MutationMention> mutations = new HashSet<MutationMention>();
+
+        Map<String, List<MutationMention>> result = new LinkedHashMap<String, List<MutationMention>>();
+        for (Map.Entry<String, String> document : documents.entrySet())
+            result.put(document.getKey(), findMutations(document.getValue(), workspace, mutations));
+        return result;
+    }
+
+    /**
+     * Searches for mutation mentions using the provided scratch state
+     *
+     * @param text Text possibly containing a mutation mention
+     * @param workspace Matchers of {@link MutationFinder} to be reused, null to create new matchers
+     * @param mutations Set which is cleared and used to collect the mentions of all tools
+     * @return List of {@link MutationMention}
+     */
+    private List<MutationMention> findMutations(final String text, MutationFinder.Workspace workspace, Set<MutationMention> mutations) {
+        mutations.clear();
+        collectAllMutations(text, workspace, mutations);
+
+        //Post-processing:
+        //Some mentions can be found be different tools. Thus, we remove all duplicates by preserving the longest element
+        //E.g., IVS2 + 1G>A is recognized  MutationFinder (2+1G>A) and correctly Tool.Regex
+        return resolveOverlaps(mutations);
+    }
+
+    /**
+     * Updates the mentions of a text after a part of it has been replaced, e.g. by a keystroke in an editor.
+     * Only the edited part and overlap characters (at least eight words) on each side are searched again (the overlap of
+     * {@link #setChunking(int, int)} if chunking is enabled, otherwise 200 characters); the other mentions
+     * are taken from previous and shifted by the change in length. Thus, the effort does not depend on the length of the text.
+     * Overlapping mentions are resolved as by {@link #findMutations(String)}, so the result is the same as for
+     * the complete edited text as long as no mention (including its surrounding words) is longer than the overlap.
+     * As with chunking, the flags which MutationFinder copies between mentions of the same mutation (see {@link MutationMention#isPsm()})
+     * are only derived from the searched part of the text.
+     * previous is not modified: mentions preceding the edit are reused, mentions following it are replaced by
+     * shifted copies (see {@link MutationMention#withOffset(int)}).
+     *
+     * @param previousText Text before the edit
+     * @param previous Mentions of previousText, as returned by {@link #findMutations(String)} or by this method
+     * @param start Start of the replaced part of previousText (inclusive)
+     * @param end End of the replaced part of previousText (exclusive)
+     * @param replacement Text replacing previousText[start, end), empty for a deletion
+     * @return List of {@link MutationMention} in the edited text
+     */
+    public List<MutationMention> updateMutations(String previousText, List<MutationMention> previous, int start, int end, String replacement) {
+        if (start < 0 || start > end || end > previousText.length())
+            throw new IndexOutOfBoundsException("Edit [" + start + "," + end + ") outside of text of length " + previousText.length());
+        String text = previousText.substring(0, start) + replacement + previousText.substring(end);
+        int shift = replacement.length() - (end - start);
+        final int[] chunking = this.chunking;
+
+        //Mentions overlapping the edit are searched again as well
+        int from = start;
+        for (MutationMention mm : previous) {
+            if (mm.getStart() < from && mm.getEnd() > start)
+                from = mm.getStart();
+        }
+        TextChunker.Chunk chunk = TextChunker.around(text, from, start + replacement.length(), chunking != null ? chunking[1] : EDIT_OVERLAP);
+
         Set<MutationMention> mutations = new HashSet<MutationMention>();
+        for (MutationMention mm : previous) {
+            if (mm.getStart() < chunk.start)
+                mutations.add(mm);
+            else if (mm.getStart() >= chunk.end - shift)
+                mutations.add(mm.withOffset(shift));
+        }
+
+        List<MutationMention> found = new ArrayList<MutationMention>();
+        collectAllMutations(text.substring(chunk.contextStart, chunk.contextEnd), null, found);
+        addOwnedMutations(chunk, found, mutations);
+
+        return resolveOverlaps(mutations);
+    }
+
+    /**
+     * Applies all recognizers to a text, in chunks if the text is long (see {@link #setChunking(int, int)})
+     *
+     * @param text Text possibly containing a mutation mention
+     * @param workspace Matchers of {@link MutationFinder} to be reused, null to create new matchers
+     * @param mutations Collection to which the mentions of all tools are added
+     */
+    private void collectAllMutations(String text, MutationFinder.Workspace workspace, Collection<MutationMention> mutations) {
+        final int[] chunking = this.chunking;
+        if (chunking != null && text.length() > chunking[0])
+            collectChunkedMutations(text, workspace, mutations, chunking[0], chunking[1]);
+        else
+            collectMutations(text, workspace, mutations);
+    }
+
+    /**
+     * Applies all recognizers to a text
+     *
+     * @param text Text possibly containing a mutation mention
+     * @param workspace Matchers of {@link MutationFinder} to be reused, null to create new matchers
+     * @param mutations Collection to which the mentions of all tools are added
+     */
+    private void collectMutations(final String text, MutationFinder.Workspace workspace, Collection<MutationMention> mutations) {
+        final Executor executor = this.executor;
+        if (executor == null) {
+            //Extract variations following the latest HGVS nomenclature
+            if(seth != null)
+                seth.extractMutations(text, mutations);
+
+            //Extract variations following dbSNP nomenclature (e.g. rs123A>T)
+            if(snpRecognizer != null)
+                mutations.addAll(snpRecognizer.extractMutations(text));
+
+            //Extracts variations following different Nomenclature forms
+            if (bl != null)
+                mutations.addAll(bl.extractMutations(text));
+
+            //Extract mutations, using a modified version of MutationFinder
+            mutations.addAll(findMutationFinderMutations(text, workspace));
+        } else {
+            //Run the recognizers concurrently, results are merged in the same order as above
+            List<FutureTask<List<MutationMention>>> tasks = new ArrayList<FutureTask<List<MutationMention>>>();
+            if (seth != null)
+                tasks.add(submit(executor, new Callable<List<MutationMention>>() {
+                    @Override
+                    public List<MutationMention> call() {
+                        return seth.extractMutations(text);
+                    }
+                }));
+            if (snpRecognizer != null)
+                tasks.add(submit(executor, new Callable<List<MutationMention>>() {
+                    @Override
+                    public List<MutationMention> call() {
+                        return snpRecognizer.extractMutations(text);
+                    }
+                }));
+            if (bl != null)
+                tasks.add(submit(executor, new Callable<List<MutationMention>>() {
+                    @Override
+                    public List<MutationMention> call() {
+                        return bl.extractMutations(text);
+                    }
+                }));
+            List<MutationMention> mutationFinderMutations = findMutationFinderMutations(text, workspace);
+
+            for (FutureTask<List<MutationMention>> task : tasks)
+                mutations.addAll(join(task));
+            mutations.addAll(mutationFinderMutations);
+        }
+    }
+
+    /**
+     * Applies all recognizers to the chunks of a long text (see {@link #setChunking(int, int)}).
+     * Mentions are only kept by the chunk owning their start and are shifted to offsets in the complete text.
+     *
+     * @param text Text possibly containing a mutation mention
+     * @param workspace Matchers of {@link MutationFinder} to be reused if the chunks are processed sequentially
+     * @param mutations Collection to which the mentions of all tools are added
+     * @param chunkSize Maximal number of characters owned by a chunk
+     * @param overlap Minimal number of context characters on each side of a chunk
+     */
+    private void collectChunkedMutations(String text, MutationFinder.Workspace workspace, Collection<MutationMention> mutations, int chunkSize, int overlap) {
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, chunkSize, overlap);
+
+        final Executor executor = this.executor;
+        if (executor == null) {
+            List<MutationMention> found = new ArrayList<MutationMention>();
+            for (TextChunker.Chunk chunk : chunks) {
+                found.clear();
+                collectMutations(text.substring(chunk.contextStart, chunk.contextEnd), workspace, found);
+                addOwnedMutations(chunk, found, mutations);
+            }
+        } else {
+            //Chunks are processed as tasks of the executor; matchers cannot be shared between them
+            List<FutureTask<List<MutationMention>>> tasks = new ArrayList<FutureTask<List<MutationMention>>>();
+            for (TextChunker.Chunk chunk : chunks) {
+                final String context = text.substring(chunk.contextStart, chunk.contextEnd);
+                tasks.add(submit(executor, new Callable<List<MutationMention>>() {
+                    @Override
+                    public List<MutationMention> call() {
+                        List<MutationMention> found = new ArrayList<MutationMention>();
+                        collectMutations(context, null, found);
+                        return found;
+                    }
+                }));
+            }
+            for (int i = 0; i < chunks.size(); i++)
+                addOwnedMutations(chunks.get(i), join(tasks.get(i)), mutations);
+        }
+    }
+
+    private static void addOwnedMutations(TextChunker.Chunk chunk, List<MutationMention> found, Collection<MutationMention> mutations) {
+        for (MutationMention mm : found) {
+            if (chunk.owns(mm.getStart()))
+                mutations.add(mm.withOffset(chunk.contextStart));
+        }
+    }
+
+    /**
+     * Orders mentions by their offset; mentions with identical spans are ordered by tool and description
+     */
+    private static final Comparator<MutationMention> BY_SPAN = new Comparator<MutationMention>() {
+        @Override
+        public int compare(MutationMention o1, MutationMention o2) {
+            if (o1.getStart() != o2.getStart())
+                return Integer.compare(o1.getStart(), o2.getStart());
+            if (o1.getEnd() != o2.getEnd())
+                return Integer.compare(o2.getEnd(), o1.getEnd());  //Longer spans first
+            if (o1.getTool() != o2.getTool())
+                return o1.getTool().compareTo(o2.getTool());
+            int result = o1.toString().compareTo(o2.toString());
+            return result != 0 ? result : Integer.compare(o1.getPatternId(), o2.getPatternId());
+        }
+    };
 
-        //Extract variations following the latest HGVS nomenclature
-        if(seth != null)
-            mutations.addAll(seth.extractMutations(text));
+    /**
+     * Removes mentions which are found by several tools.
+     * A mention is removed if another mention describing the same mutation (i.e., position, wildtype and mutated residue)
+     * covers a longer span containing it. For identical spans, a mention of {@link MutationMention.Tool#DBSNP} wins
+     * over {@link MutationMention.Tool#SETH} (both tools find mentions like rs123:A>T); other mentions with identical spans are all kept.
+     * The result does not depend on the order of the input; it is sorted by offset (longer spans first).
+     *
+     * @param mutations the mentions found by all tools
+     * @return the remaining mentions sorted by offset
+     */
+    static List<MutationMention> resolveOverlaps(Collection<MutationMention> mutations) {
+        List<MutationMention> sorted = new ArrayList<MutationMention>(mutations);
+        Collections.sort(sorted, BY_SPAN);
+
+        //Mentions of the same mutation are compared in one sweep over their (sorted) spans
+        Map<List<String>, List<MutationMention>> sameMutation = new HashMap<List<String>, List<MutationMention>>();
+        for (MutationMention mm : sorted) {
+            List<String> key = Arrays.asList(mm.getPosition(), mm.getMutResidue(), mm.getWtResidue());
+            List<MutationMention> mentions = sameMutation.get(key);
+            if (mentions == null) {
+                mentions = new ArrayList<MutationMention>();
+                sameMutation.put(key, mentions);
+            }
+            mentions.add(mm);
+        }
 
-        //Extract variations following dbSNP nomenclature (e.g. rs123A>T)
-        if(snpRecognizer != null)
-            mutations.addAll(snpRecognizer.extractMutations(text));
+        Set<MutationMention> removed = Collections.newSetFromMap(new IdentityHashMap<MutationMention, Boolean>());
+        for (List<MutationMention> mentions : sameMutation.values()) {
+            //maxEnd is the largest end of all mentions starting before (or at the same offset but ending after) the current span
+            int maxEnd = -1;
+            int runEnd = -1;
+            for (int i = 0; i < mentions.size(); i++) {
+                MutationMention mm = mentions.get(i);
+                if (i > 0 && !sameSpan(mm, mentions.get(i - 1)))
+                    maxEnd = Math.max(maxEnd, runEnd);
+                if (maxEnd >= mm.getEnd())
+                    removed.add(mm);
+                runEnd = Math.max(runEnd, mm.getEnd());
+            }
+        }
 
-        //Extracts variations following different Nomenclature forms
-        if (bl != null)
-            mutations.addAll(bl.extractMutations(text));
+        //Mentions with identical span are adjacent after sorting
+        for (int start = 0; start < sorted.size(); ) {
+            int end = start;
+            boolean dbSNP = false;
+            while (end < sorted.size() && sameSpan(sorted.get(start), sorted.get(end))) {
+                dbSNP |= sorted.get(end).getTool() == MutationMention.Tool.DBSNP;
+                end++;
+            }
+            if (dbSNP) {
+                for (int i = start; i < end; i++) {
+                    if (sorted.get(i).getTool() == MutationMention.Tool.SETH)
+                        removed.add(sorted.get(i));
+                }
+            }
+            start = end;
+        }
 
-        //Extract mutations, using a modified version of MutationFinder
+        List<MutationMention> result = new ArrayList<MutationMention>(sorted.size() - removed.size());
+        for (MutationMention mm : sorted) {
+            if (!removed.contains(mm))
+                result.add(mm);
+        }
+        return result;
+    }
+
+    private static boolean sameSpan(MutationMention a, MutationMention b) {
+        return a.getStart() == b.getStart() && a.getEnd() == b.getEnd();
+    }
+
+
+
+    /**
+     * Extracts substitutions using the modified version of {@link MutationFinder}
+     *
+     * @param text Text possibly containing a mutation mention
+     * @param workspace Matchers to be reused, null to create new matchers
+     * @return List of {@link MutationMention} found by MutationFinder
+     */
+    private List<MutationMention> findMutationFinderMutations(String text, MutationFinder.Workspace workspace) {
+        List<MutationMention> mutations = new ArrayList<MutationMention>();
         try {
-            Map<edu.uchsc.ccp.nlp.ei.mutation.Mutation, Set<int[]>> map = mf.extractMutations(text);
+            Map<edu.uchsc.ccp.nlp.ei.mutation.Mutation, Set<int[]>> map = mf.extractMutations(text, workspace);
 
             for (edu.uchsc.ccp.nlp.ei.mutation.Mutation mutation : map.keySet()) {
                 PointMutation pm = (PointMutation) mutation;
@@ -157,67 +476,85 @@ public class SETH {
             e.printStackTrace();
             System.exit(1);
         }
+        return mutations;
+    }
 
+    /**
+     * Enables the concurrent execution of the recognizers in {@link #findMutations(String)} (disabled by default).
+     * If an executor is set, SETH-NER, dbSNP recognition and the old nomenclature run as tasks of the executor while the
+     * calling thread runs MutationFinder; the results are joined before post-processing and are identical to the sequential mode.
+     * Tasks which have not been started by the executor when their result is needed are run by the calling thread,
+     * so the executor may also be shared with the threads calling {@link #findMutations(String)}.
+     *
+     * @param executor Executor for the recognizers, or null to run them one after another in the calling thread
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
 
-        //Post-processing:
-        //Some mentions can be found be different tools. Thus, we remove all duplicates by preserving the longest element
-        //E.g., IVS2 + 1G>A is recognized  MutationFinder (2+1G>A) and correctly Tool.Regex
-        List<MutationMention> result = new ArrayList<MutationMention>(mutations.size());
-        for (MutationMention mm : mutations) {
-
-            boolean contained = false;
-            loop:for (MutationMention m : result) {
-
-                //This variable is needed to check  whether two mutations are identical. (Important as MF finds overlapping ,mutations Trp-64 to Phe or Tyr)
-                boolean equal = false;
-
-                //Debugging purpose
-                //System.out.println("'" + mm.getPosition() + "' -- '" + m.getPosition() + "'");
-                //System.out.println("'" + mm.getMutResidue() + "' -- '" + m.getMutResidue() + "'");
-                //System.out.println("'" + mm.getWtResidue() + "' -- '" + m.getWtResidue() + "'");
-
-
-                //This potentially lead to problematic null pointer exceptions
-                //equal = mm.getPosition().equals(m.getPosition()) && mm.getMutResidue().equals(m.getMutResidue()) && mm.getWtResidue().equals(m.getWtResidue());
-
-
-                //Better handling of potentially null values
-                equal =  Objects.equals(mm.getPosition(), m.getPosition()) && Objects.equals(mm.getMutResidue(), m.getMutResidue()) && Objects.equals(mm.getWtResidue(), m.getWtResidue());
-
-                //In case the two recognized mutation mentions are equally long Tool.DBSNP wins over Tool.SETH  (both tools find mentions like rs123:A>T)
-                if (mm.getStart() == m.getStart() && mm.getEnd() == m.getEnd()) {
-
-                    if (mm.getTool() == MutationMention.Tool.SETH && m.getTool() == MutationMention.Tool.DBSNP) {
-                        contained = true;
-                        break;
-                    } else if (m.getTool() == MutationMention.Tool.SETH && mm.getTool() == MutationMention.Tool.DBSNP) {
-                        result.remove(m);
-                        break;
-                    }
-                    //else we do return two mutations!!
-                }
-
-                //If the new mention is smaller than the mention contained in the result, ignore the smaller one
-                else if (mm.getStart() >= m.getStart() && mm.getEnd() <= m.getEnd() && equal) {
-                    contained = true;
-                    break;
-                }
+    /**
+     * Enables the chunked processing of long texts in {@link #findMutations(String)} (disabled by default).
+     * Texts longer than chunkSize are split at line breaks, sentence ends or between words into chunks, which are
+     * processed independently with overlap characters of context on each side. This bounds the memory used by the recognizers
+     * and, if an executor is set (see {@link #setExecutor(Executor)}), the chunks are processed concurrently.
+     * The result is the same as for the complete text as long as no mention (including its surrounding words) is longer than overlap.
+     *
+     * @param chunkSize Maximal number of characters of a chunk, or a value &lt; 1 to disable chunking
+     * @param overlap Number of characters of context on each side of a chunk
+     */
+    public void setChunking(int chunkSize, int overlap) {
+        if (overlap < 0)
+            throw new IllegalArgumentException("Overlap must not be negative");
+        this.chunking = chunkSize < 1 ? null : new int[]{chunkSize, overlap};
+    }
 
-                //If the new mention is longer, remove the old (smaller) mention and add the new one
-                else if (m.getStart() >= mm.getStart() && m.getEnd() <= mm.getEnd() && equal) {
-                    result.remove(m);
-                    break loop;
-                }
-            }
+    /**
+     * Limits the effort of SETH-NER for a single text (see {@link seth.ner.SETHNER#setParseBudget(long, long)}), so that
+     * pathological input such as large tables of numbers cannot stall {@link #findMutations(String)}.
+     * If a budget is exceeded, the affected part of the text is skipped by SETH-NER and counted by {@link #getAbortedWindows()};
+     * the other recognizers are not affected. By default, the budgets are far above the effort for regular texts.
+     * With chunking (see {@link #setChunking(int, int)}), the document budget applies to every chunk.
+     *
+     * @param window   Maximal number of characters read by the parsers for a window of four words
+     * @param document Maximal number of characters read by the parsers for a text
+     */
+    public void setParseBudget(long window, long document) {
+        if (seth != null)
+            seth.setParseBudget(window, document);
+    }
 
-            if (!contained)
-                result.add(mm);
+    /**
+     * @return Number of SETH-NER windows which have been aborted or skipped because of the parse budget
+     */
+    public long getAbortedWindows() {
+        return seth == null ? 0 : seth.getAbortedWindows();
+    }
 
+    private static FutureTask<List<MutationMention>> submit(Executor executor, Callable<List<MutationMention>> recognizer) {
+        FutureTask<List<MutationMention>> task = new FutureTask<List<MutationMention>>(recognizer);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ree) {
+            //The task is run by the calling thread in join
         }
-
-        return result;
+        return task;
     }
 
+    private static List<MutationMention> join(FutureTask<List<MutationMention>> task) {
+        task.run();   //Runs the recognizer in the calling thread, if it has not been started by the executor yet
+        try {
+            return task.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for recognizer", ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ee.getCause();
+            if (ee.getCause() instanceof Error)
+                throw (Error) ee.getCause();
+            throw new RuntimeException(ee.getCause());
+        }
+    }
 
     /**
      * Minimal example to perform named entity recognition and normalization using SETH
@@ -263,9 +600,11 @@ public class SETH {
         //Set<Gene> recognizedGenes = Gene.queryGenesForArticle(1572656); //Retrieve all genes recognized by GNAT and gene2pubmed
         Set<Integer> genes = new HashSet<Integer>(Collections.singletonList(1312));  //Manually define a list of Entrez Gene IDs, against which we want to compare; Alternatively you can include a custom gene-NER here
 
+        final Map<Integer, List<dbSNP>> geneToDbSNP = dbSNP.getSNPs(genes);    //Get the dbSNPs of all genes with one query
+        final Map<Integer, List<UniprotFeature>> geneToUniProtFeature = UniprotFeature.getFeatures(genes);    //Get the UniProt features of all genes with one query
         for(int gene : genes){
-            final List<dbSNP> potentialSNPs = dbSNP.getSNP(gene);    //Get a list of dbSNPs which could potentially represent the mutation mention
-            final List<UniprotFeature> features = UniprotFeature.getFeatures(gene);    //Get all associated UniProt features
+            final dbSNPIndex potentialSNPs = new dbSNPIndex(geneToDbSNP.get(gene));    //Index the dbSNPs which could potentially represent the mutation mention
+            final List<UniprotFeature> features = geneToUniProtFeature.get(gene);    //Get all associated UniProt features
 
             for (MutationMention mutation : mutations) {
                 System.out.println(mutation);
@@ -0,0 +1,177 @@
+package seth;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits long texts into chunks which can be processed independently by {@link SETH}.
+ * Every chunk owns a disjoint part of the text; the owned parts cover the whole text.
+ * Chunk borders are placed at line breaks or sentence ends if possible, otherwise between two words.
+ * A chunk is processed together with some context on both sides, so that mentions starting in the owned part
+ * are recognized exactly as in the complete text. Mentions are assigned to the chunk owning their start.
+ */
+final class TextChunker {
+
+    /** Minimal number of words in the context on each side (SETH-NER parses windows of four words) */
+    static final int CONTEXT_WORDS = 8;
+
+    private TextChunker() {
+    }
+
+    /**
+     * A part of a text with its surrounding context
+     */
+    static final class Chunk {
+        /** First character owned by this chunk (inclusive) */
+        final int start;
+        /** Last character owned by this chunk (exclusive) */
+        final int end;
+        /** First character of the context (inclusive) */
+        final int contextStart;
+        /** Last character of the context (exclusive) */
+        final int contextEnd;
+
+        Chunk(int start, int end, int contextStart, int contextEnd) {
+            this.start = start;
+            this.end = end;
+            this.contextStart = contextStart;
+            this.contextEnd = contextEnd;
+        }
+
+        /**
+         * @param offset offset of a mention relative to {@link #contextStart}
+         * @return true if the mention belongs to this chunk
+         */
+        boolean owns(int offset) {
+            return start <= offset + contextStart && offset + contextStart < end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + "," + end + ") in [" + contextStart + "," + contextEnd + ")";
+        }
+    }
+
+    /**
+     * Splits a text into chunks
+     *
+     * @param text      the text
+     * @param chunkSize maximal number of characters owned by a chunk (unless a single word is longer)
+     * @param overlap   minimal number of context characters on each side of a chunk; has to exceed the length of the longest mention
+     * @return chunks in text order
+     */
+    static List<Chunk> split(String text, int chunkSize, int overlap) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size has to be positive");
+
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.length() - start <= chunkSize ? text.length() : findBorder(text, start, start + chunkSize);
+            chunks.add(new Chunk(start, end, contextStart(text, start, overlap), contextEnd(text, end, overlap)));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Creates the chunk which has to be processed again after a part of a text has been edited.
+     * The chunk owns the edited part together with overlap characters (and {@link #CONTEXT_WORDS} words) on each side,
+     * so that mentions outside of the chunk are not affected by the edit, and has the same amount of context on each side.
+     *
+     * @param text    the edited text
+     * @param start   start of the edited part (inclusive)
+     * @param end     end of the edited part (exclusive)
+     * @param overlap minimal number of context characters; has to exceed the length of the longest mention
+     * @return chunk around the edited part
+     */
+    static Chunk around(String text, int start, int end, int overlap) {
+        int ownedStart = contextStart(text, start, overlap);
+        int ownedEnd = contextEnd(text, end, overlap);
+        return new Chunk(ownedStart, ownedEnd, contextStart(text, ownedStart, overlap), contextEnd(text, ownedEnd, overlap));
+    }
+
+    /**
+     * Searches backwards from limit for the preferred border in the second half of the chunk
+     * @return start of the next chunk
+     */
+    private static int findBorder(String text, int start, int limit) {
+        int min = start + (limit - start) / 2;
+        int wordBorder = -1;
+        int sentenceBorder = -1;
+        for (int i = limit; i > min; i--) {
+            if (!isWordStart(text, i))
+                continue;
+            char previous = text.charAt(i - 1);
+            if (previous == '\n' || previous == '\r')
+                return i;
+            if (wordBorder < 0)
+                wordBorder = i;
+            if (sentenceBorder < 0 && isSentenceEnd(text, i - 1))
+                sentenceBorder = i;
+        }
+        if (sentenceBorder >= 0)
+            return sentenceBorder;
+        if (wordBorder >= 0)
+            return wordBorder;
+
+        //No whitespace in the second half, continue to the end of the current word
+        int i = limit;
+        while (i < text.length() && !isWordStart(text, i))
+            i++;
+        return i;
+    }
+
+    /**
+     * @return true if a word starts at position i (i.e. whitespace before and no whitespace at i)
+     */
+    private static boolean isWordStart(String text, int i) {
+        return i > 0 && i < text.length() && Character.isWhitespace(text.charAt(i - 1)) && !Character.isWhitespace(text.charAt(i));
+    }
+
+    /**
+     * @param whitespace position of a whitespace character
+     * @return true if the whitespace follows a sentence end
+     */
+    private static boolean isSentenceEnd(String text, int whitespace) {
+        int i = whitespace;
+        while (i > 0 && Character.isWhitespace(text.charAt(i - 1)))
+            i--;
+        if (i == 0)
+            return false;
+        char c = text.charAt(i - 1);
+        return c == '.' || c == '!' || c == '?';
+    }
+
+    /**
+     * Moves to the left until at least overlap characters and {@link #CONTEXT_WORDS} words are covered, ending at a word start
+     */
+    private static int contextStart(String text, int start, int overlap) {
+        int i = start;
+        int words = 0;
+        while (i > 0 && (start - i < overlap || words < CONTEXT_WORDS)) {
+            i--;
+            if (isWordStart(text, i))
+                words++;
+        }
+        while (i > 0 && !isWordStart(text, i))
+            i--;
+        return i;
+    }
+
+    /**
+     * Moves to the right until at least overlap characters and {@link #CONTEXT_WORDS} words are covered, ending at a whitespace
+     */
+    private static int contextEnd(String text, int end, int overlap) {
+        int i = end;
+        int words = 0;
+        while (i < text.length() && (i - end < overlap || words < CONTEXT_WORDS)) {
+            if (isWordStart(text, i))
+                words++;
+            i++;
+        }
+        while (i < text.length() && !Character.isWhitespace(text.charAt(i)))
+            i++;
+        return i;
+    }
+}
@@ -10,17 +10,19 @@ import java.util.regex.Pattern;
 
 /**
  * Detect dnSNP mentions in text (e.g., rs2345)
+ * The patterns are immutable and compiled once, so instances are thread-safe.
  * @author  Philippe Thomas
  */
 public class dbSNPRecognizer {
 
-    final private static String prefix="(^|[\\s\\(\\)\\[\\'\"/,\\-:_])"; //>
+    final private static Boundary prefix = new Boundary("()['\"/,-:_"); //>
     final private static String midfix="((?<wild>[ATGC])\\s?[/\\\\>]\\s?(?<mut>[ATGC]))?";
-    final private static String suffix="(?=([\\.,\\s\\)\\(\\]\\'\":;_\\-/]|$))";
+    final private static Boundary suffix = new Boundary(".,)(]'\":;_-/");
     //(?!0) = Not starting with 0
     //(\d{1,3}(,\d{3})+) -> Matches decimals with thousand separators
     //\d{2,} matches decimals without thousand separator which are at least 2 long
-    final private static Pattern dbSNP = Pattern.compile(prefix +"(rs(?!0)((\\d{1,3}(,\\d{3})+)|\\d{2,}))" +midfix +suffix);
+    //The prefix is not part of the pattern, the pattern is only applied at occurrences of "rs" following a prefix character
+    final private static Pattern dbSNP = Pattern.compile("(rs(?!0)((\\d{1,3}(,\\d{3})+)|\\d{2,}))" +midfix +suffix.suffix());
 
     /**
      * FInd dbSNP mentions in a text
@@ -31,17 +33,24 @@ public class dbSNPRecognizer {
         List<MutationMention> result = new ArrayList<MutationMention>();
 
         Matcher matcher = dbSNP.matcher(text);
-        while (matcher.find()){
-
-            int begin = matcher.start(2);
-            int end = matcher.group("mut") == null ? matcher.end(2) : matcher.end("mut");
+        int candidate = text.indexOf("rs");
+        while (candidate >= 0){
+            if (!prefix.precedes(text, candidate) || !matcher.region(candidate, text.length()).lookingAt()){
+                candidate = text.indexOf("rs", candidate + 1);
+                continue;
+            }
+            //the prefix of the next mention has to follow this one
+            candidate = text.indexOf("rs", matcher.end() + 1);
+
+            int begin = matcher.start(1);
+            int end = matcher.group("mut") == null ? matcher.end(1) : matcher.end("mut");
 
             String wild= matcher.group("wild");
             String mutated=matcher.group("mut");
 
             MutationMention mm = new MutationMention(begin, end, text.substring(begin, end), null, null, wild, mutated, Type.DBSNP_MENTION, MutationMention.Tool.DBSNP);
             try{
-                int rsId = Integer.parseInt(matcher.group(2).substring(2).replaceAll(",",""));
+                int rsId = Integer.parseInt(matcher.group(1).substring(2).replaceAll(",",""));
                 mm.normalizeSNP(rsId); //TODO: In general we could check if this rs-id is known in dbSNP?
             }catch(NumberFormatException nfe){}
             result.add(mm);
@@ -1,15 +1,26 @@
 package seth.ner.wrapper;
 
 import de.hu.berlin.wbi.objects.MutationMention;
-import scala.collection.Iterator;
+import seth.ner.MutationSink;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
- * Java wrapper for actual {@see seth.ner.SETHNER} code written in Scala
+ * Java wrapper for actual {@see seth.ner.SETHNER} code written in Scala.
+ * The parsers are created once and every parse works on its own input reader, so an instance can be shared by several threads.
+ * Mentions are converted as soon as they are found; no Scala collection is created or passed to the caller.
  */
 public class SETHNER {
+
+    /**
+     * Receives the mentions found by {@link #extractMutations(String, Sink)}
+     */
+    public interface Sink {
+        void add(MutationMention mention);
+    }
+
     private final seth.ner.SETHNER mutationExtractor ;
 
 
@@ -29,14 +40,54 @@ public class SETHNER {
      */
     public List<MutationMention> extractMutations(String text) {
         List<MutationMention> result = new ArrayList<MutationMention>();
-        Iterator<seth.ner.Mutation> iter = mutationExtractor.extractMutations(text).toIterator();
-        while (iter.hasNext()) {
-            seth.ner.Mutation mutation = iter.next();
-            result.add(convert(mutation));
-        }
+        extractMutations(text, result);
         return result;
     }
 
+    /**
+     * Extracts mentions of mutations written in the HGVS nomenclature and adds them to a collection
+     * @param text   Input natural language text
+     * @param result Collection to which the {@link MutationMention} objects are added (in the order of {@link #extractMutations(String)})
+     */
+    public void extractMutations(String text, final Collection<MutationMention> result) {
+        mutationExtractor.extractMutations(text, new MutationSink() {
+            @Override
+            public void add(seth.ner.Mutation mutation) {
+                result.add(convert(mutation));
+            }
+        });
+    }
+
+    /**
+     * Extracts mentions of mutations written in the HGVS nomenclature and passes each to a sink as soon as it is found
+     * @param text Input natural language text
+     * @param sink Receives the {@link MutationMention} objects (in the order of {@link #extractMutations(String)})
+     */
+    public void extractMutations(String text, final Sink sink) {
+        mutationExtractor.extractMutations(text, new MutationSink() {
+            @Override
+            public void add(seth.ner.Mutation mutation) {
+                sink.add(convert(mutation));
+            }
+        });
+    }
+
+    /**
+     * Limits the effort spent on a single text, see {@link seth.ner.SETHNER#setParseBudget(long, long)}
+     * @param window   maximal number of characters read by the parsers for a window of four words
+     * @param document maximal number of characters read by the parsers for a text
+     */
+    public void setParseBudget(long window, long document) {
+        mutationExtractor.setParseBudget(window, document);
+    }
+
+    /**
+     * @return number of windows which have been aborted or skipped because of the parse budget
+     */
+    public long getAbortedWindows() {
+        return mutationExtractor.abortedWindows();
+    }
+
     /**
      * Converts a scala {@link seth.ner.Mutation} object to a java {@link MutationMention}
      * @param mutation A scala {@link seth.ner.Mutation} object
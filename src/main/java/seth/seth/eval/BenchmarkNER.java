@@ -0,0 +1,127 @@
+package seth.seth.eval;
+
+import seth.ner.SETHNER;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the run time of the SETH-NER modes (parser combinators only, recognizer, memoized recognizer)
+ * on a corpus and on pathological sentences. These consist of several long repetitive words or deeply nested locations,
+ * so that every window of SETH-NER contains many positions which could start a mutation.
+ * The corpus has the format of the SETH corpus (one document per line: id, tab, text).
+ *
+ * Usage: java seth.seth.eval.BenchmarkNER resources/SETH-corpus/corpus.txt [repetitions]
+ */
+public class BenchmarkNER {
+
+    /** Names of the modes in the order of {@link #createNER(int)} */
+    private static final String[] MODES = {"reference", "recognizer", "memoized"};
+
+    /** Building blocks of the pathological sentences: prefix, repeated unit and suffix */
+    private static final String[][] PATHOLOGICAL = {
+            {"", "A1", ""}, {"", "rs1", ""}, {"", "46,XX,del(1)(p1)", ""}, {"", "NM_1.1,", ""},
+            {"c.", "(", "1_2"}, {"c.", "1_(", "2"}, {"c.(", "1+1_", "2)del"}, {"p.", "(Ala", "1)"}
+    };
+
+    /** Number of characters of the repeated units in every word of the pathological sentences */
+    private static final int[] LENGTHS = {60, 120, 240, 480};
+
+    /** Number of words of the pathological sentences */
+    private static final int WORDS = 8;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Compares the run time of the SETH-NER modes");
+            System.err.println("Usage: java seth.seth.eval.BenchmarkNER corpus-file [repetitions]");
+            System.exit(1);
+        }
+        List<String> texts = readCorpus(new File(args[0]));
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.println("Corpus: " + texts.size() + " documents, best of " + repetitions + " runs");
+        for (int mode = 0; mode < MODES.length; mode++) {
+            SETHNER ner = createNER(mode);
+            long best = Long.MAX_VALUE;
+            int mentions = 0;
+            for (int r = 0; r < repetitions; r++) {
+                long start = System.nanoTime();
+                mentions = 0;
+                for (String text : texts)
+                    mentions += ner.extractMutations(text).size();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("%-12s %8.1f ms  %d mentions%n", MODES[mode], best / 1e6, mentions);
+        }
+
+        System.out.println();
+        System.out.println("Pathological sentences (ms per sentence for words of " + lengths() + " characters)");
+        for (String[] sentence : PATHOLOGICAL) {
+            for (int mode = 0; mode < MODES.length; mode++) {
+                SETHNER ner = createNER(mode);
+                StringBuilder line = new StringBuilder(String.format("%-24s %-12s", sentence[0] + sentence[1] + sentence[2], MODES[mode]));
+                for (int length : LENGTHS) {
+                    String text = pathological(sentence, length);
+                    for (int r = 0; r < repetitions; r++)
+                        ner.extractMutations(text);     //warm-up
+                    long best = Long.MAX_VALUE;
+                    for (int r = 0; r < repetitions; r++) {
+                        long start = System.nanoTime();
+                        ner.extractMutations(text);
+                        best = Math.min(best, System.nanoTime() - start);
+                    }
+                    line.append(String.format(" %9.2f", best / 1e6));
+                }
+                System.out.println(line);
+            }
+        }
+    }
+
+    private static SETHNER createNER(int mode) {
+        return new SETHNER(false, mode == 0, mode == 2);
+    }
+
+    private static String pathological(String[] sentence, int length) {
+        StringBuilder word = new StringBuilder(sentence[0]);
+        for (int i = 0; i < length; i += sentence[1].length())
+            word.append(sentence[1]);
+        word.append(sentence[2]);
+
+        StringBuilder sb = new StringBuilder("The variants");
+        for (int i = 0; i < WORDS; i++)
+            sb.append(" ").append(word);
+        return sb.append(" were found.").toString();
+    }
+
+    private static String lengths() {
+        StringBuilder sb = new StringBuilder();
+        for (int length : LENGTHS) {
+            if (sb.length() > 0)
+                sb.append("/");
+            sb.append(length);
+        }
+        return sb.toString();
+    }
+
+    private static List<String> readCorpus(File file) throws IOException {
+        List<String> texts = new ArrayList<String>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab >= 0)
+                    texts.add(line.substring(tab + 1));
+            }
+        } finally {
+            br.close();
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,808 @@
+package seth.ner
+
+import scala.annotation.switch
+
+/**
+ * Hand-written recognizer for the mutation grammar of SETHNER.
+ *
+ * Every rule of the grammar is mirrored by a method of the same name which returns the end of the match starting at
+ * a given position, or -1 if the rule does not match. The methods follow the semantics of the parser combinators
+ * (ordered choice, greedy repetition and options without backtracking) but never allocate, so positions which do not
+ * start a mutation can be rejected cheaply. The combinator parser is only run for the parse tree of recognized mutations;
+ * SETHSuite checks that both agree. All methods return -1 for a negative position, so sequences can be chained.
+ *
+ * Rules which are tried by several alternatives at the same position (locations and raw variants) are memoized
+ * if a [[seth.ner.Recognizer.Memo]] is given (packrat parsing). The memo table is shared by all positions of the input,
+ * so a rule is evaluated at most once per position until its entry is replaced.
+ *
+ * @param s input; only read by charAt and length
+ * @param strictNomenclature see SETHNER
+ * @param memo memo table, or null to evaluate every rule application
+ */
+final class Recognizer(s: CharSequence, strictNomenclature: Boolean, memo: Recognizer.Memo = null) {
+  import Recognizer._
+
+  private val length = s.length
+  //largest index read since the last call of recognize, including the reads of memoized results
+  private var reach = -1
+
+  //entries stored by this recognizer
+  private val generation = if (memo != null) memo.clear() else 0
+
+  /**
+   * @param i start position
+   * @return end of the mutation starting at i, or -1
+   */
+  def recognize(i: Int): Int = {
+    reach = -1
+    mutation(i)
+  }
+
+  /**
+   * @return largest index of the input read by the last call of recognize
+   */
+  def lookahead: Int = reach
+
+  /**
+   * @return number of characters read by all calls of recognize (including repeated reads)
+   */
+  def steps: Long = reads
+
+  private var reads = 0L
+
+  private def at(i: Int): Char = {
+    reads += 1
+    if (i > reach)
+      reach = i
+    s.charAt(i)
+  }
+
+  private def memoized(rule: Int, i: Int): Int = {
+    if (i < 0) return -1
+    if (memo == null) return evaluate(rule, i)
+    val slot = memo.slot(rule, i)
+    if (memo.contains(slot, rule, i, generation)) {
+      if (memo.reach(slot) > reach)
+        reach = memo.reach(slot)
+      return memo.end(slot)
+    }
+    val outer = reach
+    reach = -1
+    val end = evaluate(rule, i)
+    memo.put(slot, rule, i, end, reach, generation)
+    if (outer > reach)
+      reach = outer
+    end
+  }
+
+  private def evaluate(rule: Int, i: Int): Int = (rule: @switch) match {
+    case UncertainLocRule => uncertainLoc(i)
+    case PtLocRule => ptLoc(i)
+    case RangeLocRule => rangeLoc(i)
+    case RefSeqAccOrGeneSymbolRule => refSeqAccOrGeneSymbol(i)
+    case RawVarRule => rawVar(i)
+    case AALocRule => aaLoc(i)
+    case AAPtLocRule => aaPtLoc(i)
+    case ProteinRawVarRule => proteinRawVar(i)
+  }
+
+  //Primitives
+  private def char(i: Int, ch: Char): Int = if (i >= 0 && i < length && at(i) == ch) i + 1 else -1
+  private def oneOf(i: Int, chars: String): Int = if (i >= 0 && i < length && chars.indexOf(at(i)) >= 0) i + 1 else -1
+  private def range(i: Int, from: Char, to: Char): Int =
+    if (i >= 0 && i < length && at(i) >= from && at(i) <= to) i + 1 else -1
+  private def lit(i: Int, t: String): Int = {
+    if (i < 0) return -1
+    var k = 0
+    while (k < t.length) {
+      if (i + k >= length || at(i + k) != t.charAt(k))
+        return -1
+      k += 1
+    }
+    i + t.length
+  }
+  private def opt(result: Int, i: Int): Int = if (result >= 0) result else i
+  private def digits(i: Int): Int = {
+    var j = range(i, '0', '9')
+    if (j < 0) return -1
+    while (j < length && at(j) >= '0' && at(j) <= '9') j += 1
+    j
+  }
+  private def alphanumerics(i: Int): Int = {
+    var j = i
+    while (j >= 0 && j < length && isAlphanumeric(at(j))) j += 1
+    if (j > i) j else -1
+  }
+  private def upper(i: Int): Int = range(i, 'A', 'Z')
+
+  //Basic lexemes
+  def Nt(i: Int): Int = oneOf(i, "acgtuACGTUnN")
+  def NtString(i: Int): Int = {
+    var j = Nt(i)
+    if (j < 0) return -1
+    while (Nt(j) >= 0) j += 1
+    j
+  }
+  def name(i: Int): Int = alphanumerics(i)
+  def Number(i: Int): Int = digits(i)
+  private def ws(i: Int): Int = {
+    if (strictNomenclature || i < 0) return i
+    var j = i
+    while (char(j, ' ') >= 0) j += 1
+    j
+  }
+  private def gt(i: Int): Int =
+    if (strictNomenclature) char(i, '>')
+    else {
+      var j = char(i, '>')
+      if (j < 0) j = lit(i, "->")
+      if (j < 0) j = lit(i, "-->")
+      if (j < 0) j = lit(i, "=>")
+      j
+    }
+
+  def mutation(i: Int): Int = {
+    var j = Var(i)
+    if (j < 0) j = ProteinVar(i)
+    if (j < 0) j = StructAbnorm(i)
+    j
+  }
+
+  //DNA and RNA variant nomenclature
+  def Var(i: Int): Int = {
+    val j = SingleVar(i)
+    if (j >= 0) j else noDNA(i)
+  }
+
+  //Locations
+  def Loc(i: Int): Int = {
+    var j = UncertainLoc(i)
+    if (j < 0) j = RangeLoc(i)
+    if (j < 0) j = PtLoc(i)
+    j
+  }
+  def NoPointLoc(i: Int): Int = {
+    val j = UncertainLoc(i)
+    if (j >= 0) j else RangeLoc(i)
+  }
+  def Uncertain(i: Int): Int = {
+    var j = Number(i)
+    if (j >= 0) j = opt(lit(j, "_?"), j)
+    else j = Number(opt(lit(i, "?_"), i))
+    opt(Offset(j), j)
+  }
+  def UncertainPart(i: Int): Int = {
+    val j = Uncertain(i)
+    if (j >= 0) j else char(Uncertain(char(i, '(')), ')')
+  }
+  def UncertainLoc(i: Int): Int = memoized(UncertainLocRule, i)
+  private def uncertainLoc(i: Int): Int = {
+    var j = opt(char(i, '*'), i)
+    j = char(UncertainPart(j), '_')
+    UncertainPart(opt(char(j, '*'), j))
+  }
+  def Offset(i: Int): Int = {
+    var j = oneOf(i, "+-")
+    j = opt(oneOf(j, "ud"), j)
+    val k = Number(j)
+    if (k >= 0) k else char(j, '?')
+  }
+  def RealPtLoc(i: Int): Int = {
+    var j = Number(opt(oneOf(i, "-*"), i))
+    if (j >= 0) opt(Offset(j), j) else char(i, '?')
+  }
+  def IVSLoc(i: Int): Int = Number(oneOf(Number(lit(i, "IVS")), "+-"))
+  def PtLoc(i: Int): Int = memoized(PtLocRule, i)
+  private def ptLoc(i: Int): Int = {
+    val j = IVSLoc(i)
+    if (j >= 0) j else RealPtLoc(i)
+  }
+  def RealExtent(i: Int): Int = {
+    val j = char(PtLoc(i), '_')
+    if (j < 0) return -1
+    val k = opt(char(j, 'o'), j)
+    PtLoc(opt(char(RefSeqAccOrGeneSymbol(k), ':'), j))
+  }
+  def EXLoc(i: Int): Int = {
+    val j = Number(lit(i, "EX"))
+    opt(Number(char(j, '-')), j)
+  }
+  def Extent(i: Int): Int = {
+    val j = RealExtent(i)
+    if (j >= 0) j else EXLoc(i)
+  }
+  def RangeLoc(i: Int): Int = memoized(RangeLocRule, i)
+  private def rangeLoc(i: Int): Int = {
+    val j = Extent(i)
+    if (j >= 0) j else char(Extent(char(i, '(')), ')')
+  }
+  def FarLoc(i: Int): Int = {
+    val j = RefSeqAccOrGeneSymbol(i)
+    val k = char(j, ':')
+    opt(Extent(opt(RefType(k), k)), j)
+  }
+  def ChromBand(i: Int): Int = {
+    val j = Number(oneOf(i, "pq"))
+    opt(Number(char(j, '.')), j)
+  }
+  def ChromCoords(i: Int): Int =
+    char(ChromBand(char(ChromBand(char(char(Chrom(char(Chrom(char(i, '(')), ';')), ')'), '(')), ';')), ')')
+
+  //Reference sequences
+  def Ref(i: Int): Int = {
+    val j = char(RefSeqAccOrGeneSymbol(i), ':')
+    if (j >= 0) return opt(RefType(j), j)
+    //the optional prefix of the second alternative is the failed prefix of the first one
+    val k = RefType(i)
+    if (k >= 0) k else OtherRefs(i)
+  }
+  def RefType(i: Int): Int = {
+    val j = oneOf(i, "cgmnr")
+    if (strictNomenclature) char(j, '.') else opt(char(j, '.'), j)
+  }
+  private def RefSeqAccOrGeneSymbol(i: Int): Int = memoized(RefSeqAccOrGeneSymbolRule, i)
+  private def refSeqAccOrGeneSymbol(i: Int): Int = {
+    val j = RefSeqAcc(i)
+    if (j >= 0) j else GeneSymbol(i)
+  }
+  def RefSeqAcc(i: Int): Int = {
+    val j = GenBankRef(i)
+    if (j >= 0) j else LRG(i)
+  }
+  def GenBankRef(i: Int): Int = {
+    var j = GI(i)
+    if (j < 0) j = AccNo(i)
+    opt(char(GeneSymbol(char(j, '(')), ')'), j)
+  }
+  def GI(i: Int): Int = {
+    val j = lit(i, "GI")
+    Number(if (j >= 0) opt(char(j, ':'), j) else i)
+  }
+  def AccNo(i: Int): Int = {
+    val start = opt(lit(i, "ish."), i)
+    var j = char(Number(upperOrLower(start)), '_')
+    if (j < 0) return -1
+    var k = char(Number(upperOrLower(j)), '_')
+    while (k >= 0) {
+      j = k
+      k = char(Number(upperOrLower(j)), '_')
+    }
+    opt(Version(j), j)
+  }
+  private def upperOrLower(i: Int): Int = {
+    val j = range(i, 'a', 'z')
+    if (j >= 0) j else upper(i)
+  }
+  def Version(i: Int): Int = Number(char(i, '.'))
+  def GeneSymbol(i: Int): Int = {
+    val j = name(i)
+    var k = TransVar(j)
+    if (k < 0) k = ProtIso(j)
+    opt(k, j)
+  }
+  def TransVar(i: Int): Int = Number(lit(i, "_v"))
+  def ProtIso(i: Int): Int = Number(lit(i, "_i"))
+  def LRGTranscriptID(i: Int): Int = digits(char(i, 't'))
+  def LRGProteinID(i: Int): Int = digits(char(i, 'p'))
+  def LRG(i: Int): Int = {
+    val j = digits(lit(i, "LRG"))
+    val k = char(j, '_')
+    var l = LRGTranscriptID(k)
+    if (l < 0) l = LRGProteinID(k)
+    opt(l, j)
+  }
+  def Chrom(i: Int): Int = name(i)
+
+  def OtherRefs(i: Int): Int = {
+    var j = RS(i)
+    if (j < 0) j = Accs(i)
+    opt(char(j, ':'), j)
+  }
+  def NumberPointNumber(i: Int): Int = {
+    val j = digits(i)
+    val k = char(j, '.')
+    if (k < 0) j
+    else {
+      var l = k
+      while (range(l, '0', '9') >= 0) l += 1
+      l
+    }
+  }
+  def RS(i: Int): Int = {
+    var j = lit(i, "rs")
+    j = opt(range(j, '1', '9'), j)
+    while (range(j, '0', '9') >= 0) j += 1
+    j
+  }
+  def Accs(i: Int): Int = {
+    var j = AccRefs(i)
+    if (j < 0) j = AccNumRefs(i)
+    if (j < 0) j = AccNumRefRange(i)
+    NumberPointNumber(j)
+  }
+  def AccRefs(i: Int): Int = {
+    var k = 0
+    while (k < AccRefPrefixes.length) {
+      val j = lit(i, AccRefPrefixes(k))
+      if (j >= 0) return char(j, '_')
+      k += 1
+    }
+    -1
+  }
+  def AccNumRefs(i: Int): Int = {
+    if (i < 0 || i >= length || at(i) >= AccNumRefPrefixes.length) return -1
+    val prefixes = AccNumRefPrefixes(at(i))
+    var k = 0
+    while (k < prefixes.length) {
+      val j = lit(i, prefixes(k))
+      if (j >= 0) return j
+      k += 1
+    }
+    -1
+  }
+  def AccNumRefRange(i: Int): Int = {
+    val j = upper(upper(upper(if (char(i, 'G') >= 0) i + 1 else range(i, 'A', 'E'))))
+    if (j >= 0) j else upper(upper(upper(upper(char(i, 'A')))))
+  }
+
+  //Single variations
+  def Subst(i: Int): Int = {
+    var j = RangeLoc(i)
+    if (j < 0) j = PtLoc(i)
+    NtString(ws(gt(ws(NtString(opt(j, i))))))
+  }
+  private def NtStringOrNumber(i: Int): Int = {
+    val j = NtString(i)
+    if (j >= 0) j else Number(i)
+  }
+  def Del(i: Int): Int = {
+    val j = lit(Loc(i), "del")
+    opt(NtStringOrNumber(j), j)
+  }
+  def Ins(i: Int): Int = {
+    val j = lit(Loc(i), "ins")
+    var k = NtStringOrNumber(j)
+    if (k < 0) k = RangeLoc(j)
+    if (k < 0) k = FarLoc(j)
+    if (k < 0) k = char(j, '?')
+    k
+  }
+  def Indel(i: Int): Int = {
+    var j = lit(NoPointLoc(i), "del")
+    j = lit(opt(NtStringOrNumber(j), j), "ins")
+    var k = NtStringOrNumber(j)
+    if (k < 0) k = RangeLoc(j)
+    if (k < 0) k = FarLoc(j)
+    k
+  }
+  def Dup(i: Int): Int = {
+    val j = lit(Loc(i), "dup")
+    opt(NtStringOrNumber(j), j)
+  }
+  def AbrSSR(i: Int): Int = char(Number(char(Number(char(NtString(PtLoc(i)), '(')), '_')), ')')
+  def VarSSR(i: Int): Int = {
+    var j = char(Number(char(NtString(PtLoc(i)), '[')), ']')
+    if (j < 0) j = char(Number(char(RangeLoc(i), '[')), ']')
+    if (j < 0) j = AbrSSR(i)
+    j
+  }
+  def Inv(i: Int): Int = {
+    val j = lit(NoPointLoc(i), "inv")
+    opt(NtStringOrNumber(j), j)
+  }
+  def Conv(i: Int): Int = FarLoc(lit(NoPointLoc(i), "con"))
+  def TransLoc(i: Int): Int = char(FarLoc(char(ChromCoords(char(i, 't')), '(')), ')')
+  def RawVar(i: Int): Int = memoized(RawVarRule, i)
+  private def rawVar(i: Int): Int = {
+    var j = Indel(i)
+    if (j < 0) j = Subst(i)
+    if (j < 0) j = Del(i)
+    if (j < 0) j = Dup(i)
+    if (j < 0) j = VarSSR(i)
+    if (j < 0) j = Ins(i)
+    if (j < 0) j = Inv(i)
+    if (j < 0) j = Conv(i)
+    j
+  }
+  def SingleVar(i: Int): Int = {
+    var j = Ref(i)
+    if (j >= 0) {
+      j = opt(RefType(j), j)
+      var k = char(RawVar(char(j, '(')), ')')
+      if (k < 0) k = RawVar(j)
+      if (k >= 0) return k
+    }
+    TransLoc(i)
+  }
+  def noDNA(i: Int): Int = {
+    val j = lit(i, "c.0")
+    opt(char(j, '?'), j)
+  }
+
+  //Protein variant nomenclature
+  def AA1(i: Int): Int = oneOf(i, "ARNDCQEGHILKMFPSTWYV")
+  def AA3(i: Int): Int = {
+    var k = 0
+    while (k < AminoAcids.length) {
+      val j = lit(i, AminoAcids(k))
+      if (j >= 0) return j
+      k += 1
+    }
+    -1
+  }
+  def AA(i: Int): Int = {
+    var j = AA3(i)
+    if (j < 0) j = AA1(i)
+    if (j < 0) j = oneOf(i, "X*?")
+    j
+  }
+  private def AAs(i: Int): Int = {
+    var j = AA(i)
+    if (j < 0) return -1
+    var k = AA(j)
+    while (k >= 0) {
+      j = k
+      k = AA(j)
+    }
+    j
+  }
+  def Name(i: Int): Int = {
+    var j = i
+    while (j >= 0 && j < length && (isAlphanumeric(at(j)) || at(j) == '_' || at(j) == '.')) j += 1
+    if (j > i) j else -1
+  }
+
+  def ProteinVar(i: Int): Int = {
+    val j = ProteinSingleVar(i)
+    if (j >= 0) j else InitCodon(i)
+  }
+
+  //Locations
+  def AALoc(i: Int): Int = memoized(AALocRule, i)
+  private def aaLoc(i: Int): Int = {
+    val j = AAPtLoc(i)
+    opt(AAPtLoc(char(j, '_')), j)
+  }
+  def AAPtLoc(i: Int): Int = memoized(AAPtLocRule, i)
+  private def aaPtLoc(i: Int): Int = {
+    val j = ProteinPtLoc(AA(opt(char(i, '('), i)))
+    opt(char(j, ')'), j)
+  }
+  def ProteinPtLoc(i: Int): Int = {
+    val j = Number(opt(oneOf(i, "-*"), i))
+    if (j >= 0) j else Number(oneOf(Number(i), "+-"))
+  }
+
+  //Reference sequences
+  def ProteinRef(i: Int): Int = lit(opt(char(Name(i), ':'), i), "p.")
+
+  //Single variations
+  def ProteinSingleVar(i: Int): Int = {
+    val j = ProteinRef(i)
+    val k = char(ProteinRawVar(char(j, '(')), ')')
+    if (k >= 0) k else ProteinRawVar(j)
+  }
+  def ProteinRawVar(i: Int): Int = memoized(ProteinRawVarRule, i)
+  private def proteinRawVar(i: Int): Int = {
+    var j = ProteinIndel(i)
+    if (j < 0) j = ProteinDel(i)
+    if (j < 0) j = ProteinDup(i)
+    if (j < 0) j = ProteinFrameShift(i)
+    if (j < 0) j = ProteinSubst(i)
+    if (j < 0) j = ProteinVarSSR(i)
+    if (j < 0) j = ProteinIns(i)
+    if (j < 0) j = ProteinEq(i)
+    j
+  }
+  def ProteinSubst(i: Int): Int = {
+    val j = Number(AA(i))
+    var k = AA(if (strictNomenclature) j else char(j, '>'))
+    if (k >= 0) return k
+    k = AA(AAPtLoc(i))
+    if (k >= 0) {
+      val l = lit(k, "extX")
+      return opt(Number(opt(char(l, '*'), l)), k)
+    }
+    var l = lit(i, "Met1")
+    if (l < 0) l = lit(i, "M1")
+    val m = char(l, '?')
+    if (m >= 0) m else Number(lit(l, "ext"))
+  }
+  def ProteinDel(i: Int): Int = lit(AALoc(i), "del")
+  def ProteinIns(i: Int): Int = {
+    val j = lit(AALoc(i), "ins")
+    val k = AAs(j)
+    if (k >= 0) k else Number(j)
+  }
+  def ProteinDup(i: Int): Int = lit(AALoc(i), "dup")
+  def ProteinEq(i: Int): Int = char(AALoc(i), '=')
+  def ProteinVarSSR(i: Int): Int = char(Number(char(Number(char(AALoc(i), '(')), '_')), ')')
+  def ProteinIndel(i: Int): Int = {
+    val j = AALoc(i)
+    var k = lit(j, "delins")
+    if (k < 0) k = lit(j, "insdel")
+    val l = AAs(k)
+    if (l >= 0) l else Number(k)
+  }
+  def ProteinFrameShift(i: Int): Int = {
+    var j = LongFS(i)
+    if (j < 0) j = ShortFS(i)
+    if (j < 0) j = SubstFS(i)
+    j
+  }
+  def ShortFS(i: Int): Int = lit(AAPtLoc(i), "fs")
+  def LongFS(i: Int): Int = {
+    val j = AAPtLoc(i)
+    Number(oneOf(lit(opt(AA(j), j), "fs"), "X*"))
+  }
+  def SubstFS(i: Int): Int = {
+    var j = lit(Number(AA(i)), "ext")
+    j = AAs(opt(char(j, '*'), j))
+    lit(opt(AAs(char(j, '-')), j), "fs")
+  }
+  def InitCodon(i: Int): Int = {
+    val j = lit(i, "p.")
+    var k = char(j, '0')
+    if (k < 0) k = lit(j, "Met1")
+    opt(char(k, '?'), k)
+  }
+
+  //Short form grammar
+  private def numberWithoutLeadingZero(i: Int): Int = {
+    var j = range(i, '1', '9')
+    if (j < 0) return -1
+    while (range(j, '0', '9') >= 0) j += 1
+    j
+  }
+  def Num(i: Int): Int = {
+    val j = numberWithoutLeadingZero(i)
+    opt(numberWithoutLeadingZero(char(j, '.')), j)
+  }
+  def Num0(i: Int): Int = {
+    val j = digits(i)
+    opt(digits(char(j, '.')), j)
+  }
+  def Sign(i: Int): Int = oneOf(i, "+-")
+  def ChY(i: Int): Int = oneOf(i, "yY")
+  def ChX(i: Int): Int = oneOf(i, "xX")
+  def SexChrom(i: Int): Int = {
+    val j = ChX(i)
+    if (j >= 0) j else ChY(i)
+  }
+  def Autosome(i: Int): Int = {
+    var j = range(range(i, '1', '3'), '0', '9')
+    if (j < 0) j = range(char(i, '4'), '0', '8')
+    if (j < 0) j = range(i, '1', '9')
+    j
+  }
+  def ChromosomeSet(i: Int): Int = range(char(i, '4'), '5', '9')
+  def AnyChrom(i: Int): Int = {
+    val j = SexChrom(i)
+    if (j >= 0) j else Autosome(i)
+  }
+  def Arm(i: Int): Int = {
+    val j = oneOf(i, "pq")
+    opt(lit(j, "ter"), j)
+  }
+  def Region(i: Int): Int = Num(Arm(i))
+  def Band(i: Int): Int = Num(char(Region(i), '.'))
+  def ChPartUpToArm(i: Int): Int = {
+    var j = Band(i)
+    if (j < 0) j = Region(i)
+    if (j < 0) j = Arm(i)
+    j
+  }
+  def ChPartDownToRegion(i: Int): Int = {
+    val j = Region(i)
+    if (j >= 0) j else Arm(i)
+  }
+  private def arrow(i: Int): Int = {
+    val j = lit(i, "->")
+    if (j >= 0) j else lit(i, "-->")
+  }
+  def InsideBreakRea(i: Int): Int = {
+    val j = ChPartUpToArm(i)
+    opt(ChPartDownToRegion(opt(arrow(j), j)), j)
+  }
+  private def breaks(i: Int): Int = {
+    var j = InsideBreakRea(char(i, '('))
+    var k = InsideBreakRea(lit(j, "::"))
+    while (k >= 0) {
+      j = k
+      k = InsideBreakRea(lit(j, "::"))
+    }
+    char(j, ')')
+  }
+  def UpToTwoBreakRea(i: Int): Int = {
+    val j = char(AnyChrom(char(i, '(')), ')')
+    opt(breaks(j), j)
+  }
+  def TwoChromTwoBreakRea(i: Int): Int = {
+    val j = lit(AnyChrom(oneOf(AnyChrom(char(i, '(')), ";:")), ")(")
+    char(ChPartUpToArm(oneOf(ChPartUpToArm(j), ";:")), ')')
+  }
+  def Translocation(i: Int): Int = {
+    val j = char(AnyChrom(lit(i, "der(")), ')')
+    TwoChromTwoBreakRea(char(opt(j, i), 't'))
+  }
+  def Deletion(i: Int): Int = {
+    var j = lit(i, "del")
+    if (j < 0) j = lit(i, "idic")
+    UpToTwoBreakRea(j)
+  }
+  def Der(i: Int): Int = {
+    val j = char(AnyChrom(lit(i, "der(")), ')')
+    opt(breaks(j), j)
+  }
+  def StructuralAbnorm(i: Int): Int = {
+    var j = Deletion(i)
+    if (j < 0) j = Der(i)
+    if (j < 0) j = Translocation(i)
+    j
+  }
+  def ChPartOfDiffLength(i: Int): Int = Sign(ChPartDownToRegion(AnyChrom(i)))
+  def NumericAbnorm(i: Int): Int = {
+    var j = char(i, '+')
+    j = AnyChrom(opt(char(j, '?'), j))
+    if (j >= 0) return opt(Sign(j), j)
+    j = char(i, '-')
+    j = AnyChrom(opt(char(j, '?'), j))
+    if (j >= 0) return j
+    ChPartOfDiffLength(opt(char(i, '+'), i))
+  }
+  def Abnorm(i: Int): Int = {
+    val j = StructuralAbnorm(i)
+    if (j >= 0) j else NumericAbnorm(i)
+  }
+  def AbnormList(i: Int): Int = {
+    val j = Abnorm(i)
+    if (j < 0) -1 else opt(AbnormList(opt(oneOf(j, ",;"), j)), j)
+  }
+  def XList(i: Int): Int = {
+    var j = ChX(i)
+    while (ChX(j) >= 0) j += 1
+    j
+  }
+  def YList(i: Int): Int = {
+    var j = ChY(i)
+    while (ChY(j) >= 0) j += 1
+    j
+  }
+  def SexList(i: Int): Int = {
+    val j = XList(i)
+    val k = YList(j)
+    if (k >= 0) k else if (j >= 0) j else YList(i)
+  }
+  def ShortForm(i: Int): Int = {
+    val j = ChromosomeSet(i)
+    val k = SexList(opt(oneOf(j, ",; "), j))
+    AbnormList(opt(oneOf(k, ",;"), k))
+  }
+
+  //Long form grammar
+  def Ch(i: Int): Int = {
+    var j = Autosome(i)
+    if (j < 0) j = ChY(i)
+    if (j < 0) j = ChX(i)
+    j
+  }
+  def Terminal(i: Int): Int = Arm(Ch(i))
+  def BandEnd(i: Int): Int = {
+    var j = lit(i, "cen")
+    if (j < 0) j = Terminal(i)
+    if (j < 0) j = Region(i)
+    if (j < 0) j = Band(i)
+    j
+  }
+  def BandSection(i: Int): Int = BandEnd(arrow(BandEnd(i)))
+  /** LongForm = BandSection ~ "::" ~ LongForm has no base case and never matches */
+  def LongForm(i: Int): Int = -1
+
+  def Chr(i: Int): Int = {
+    val j = Num0(char(Num0(char(Ch(lit(i, "chr")), ':')), '-'))
+    opt(Sign(j), j)
+  }
+  private def moreNum0(i: Int): Int = {
+    var j = Num0(char(i, ','))
+    if (j < 0) return -1
+    var k = Num0(char(j, ','))
+    while (k >= 0) {
+      j = k
+      k = Num0(char(j, ','))
+    }
+    j
+  }
+  def ChrList(i: Int): Int = {
+    val j = moreNum0(Num0(char(Ch(lit(i, "chr")), ':')))
+    var k = lit(j, "..")
+    if (k < 0) k = char(j, '-')
+    if (k < 0) k = char(j, '–')
+    k = moreNum0(Num0(k))
+    opt(Sign(k), k)
+  }
+  private def StructAbnormPart(i: Int): Int = {
+    var j = Translocation(i)
+    if (j < 0) j = ChrList(i)
+    if (j < 0) j = ShortForm(i)
+    if (j < 0) j = LongForm(i)
+    if (j < 0) j = Chr(i)
+    j
+  }
+  def StructAbnorm(i: Int): Int = {
+    var j = StructAbnormPart(i)
+    if (j < 0) return -1
+    var k = StructAbnormPart(j)
+    while (k >= 0) {
+      j = k
+      k = StructAbnormPart(j)
+    }
+    j
+  }
+}
+
+object Recognizer {
+  //memoized rules
+  private final val UncertainLocRule = 0
+  private final val PtLocRule = 1
+  private final val RangeLocRule = 2
+  private final val RefSeqAccOrGeneSymbolRule = 3
+  private final val RawVarRule = 4
+  private final val AALocRule = 5
+  private final val AAPtLocRule = 6
+  private final val ProteinRawVarRule = 7
+  private final val Rules = 8
+  //larger inputs share slots
+  private final val MaxMemoEntries = 1 << 13
+
+  /**
+   * @param length length of the inputs
+   * @return memo table which holds every rule application on inputs of the given length (up to a bound)
+   */
+  def memoFor(length: Int): Memo = new Memo(math.min(Rules * math.max(length, 1), MaxMemoEntries))
+
+  /**
+   * Bounded memo table for packrat parsing. It is direct-mapped: a result replaces the entry of another rule application
+   * with the same slot, so the table never grows. Every recognizer using the table gets a new generation and only sees
+   * the entries of its own generation, so the table can be reused for other inputs.
+   * @param capacity number of entries (rounded up to a power of two)
+   */
+  final class Memo(capacity: Int) {
+    private val size = Integer.highestOneBit(math.max(capacity, 2) * 2 - 1)
+    private val keys = new Array[Int](size)
+    private val ends = new Array[Int](size)
+    private val reaches = new Array[Int](size)
+    private val generations = new Array[Int](size)
+    private var generation = 0
+
+    /** Invalidates all entries and returns the generation of the following entries */
+    private[ner] def clear(): Int = {
+      generation += 1
+      generation
+    }
+
+    private[ner] def slot(rule: Int, i: Int): Int = (i * Rules + rule) & (size - 1)
+    private[ner] def contains(slot: Int, rule: Int, i: Int, generation: Int): Boolean =
+      generations(slot) == generation && keys(slot) == i * Rules + rule
+    private[ner] def end(slot: Int): Int = ends(slot)
+    private[ner] def reach(slot: Int): Int = reaches(slot)
+    private[ner] def put(slot: Int, rule: Int, i: Int, end: Int, reach: Int, generation: Int): Unit = {
+      keys(slot) = i * Rules + rule
+      ends(slot) = end
+      reaches(slot) = reach
+      generations(slot) = generation
+    }
+  }
+
+  private def isAlphanumeric(ch: Char) = (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')
+
+  private val AccRefPrefixes = Array("AC", "NC", "NG", "NT", "NW", "NS", "NZ", "NP", "NM", "NR", "XM", "XR")
+
+  private val AminoAcids = Array("Ala", "Arg", "Asn", "Asp", "Cys", "Gln", "Glu", "Gly", "His", "Ile", "Leu", "Lys", "Met",
+    "Phe", "Pro", "Ser", "Thr", "Trp", "Tyr", "Val", "Ter", "Sec", "Pyl", "Asx", "Glx", "Xle", "Xaa", "Stop")
+
+  /** Alternatives of the AccNumRefs regular expression in their original order, indexed by their first character */
+  private val AccNumRefPrefixes: Array[Array[String]] = {
+    val alternatives = SETHNER.AccNumRefPattern.split("\\|")
+    Array.tabulate(128)(ch => alternatives.filter(_.charAt(0) == ch))
+  }
+}
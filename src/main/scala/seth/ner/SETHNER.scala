@@ -7,7 +7,7 @@ package seth.ner
  */
 
 import scala.util.parsing.combinator._
-import util.parsing.input.Positional
+import util.parsing.input.{CharSequenceReader, Positional}
 import wrapper.Type._
 import wrapper.Type
 import annotation.tailrec
@@ -57,6 +57,13 @@ case class Mutation(var start:Int, var end:Int, text: String) {
   }
 }
 
+/**
+ * Receives the mutations found by SETHNER.extractMutations(text, sink); can be implemented in Java as an interface
+ */
+trait MutationSink {
+  def add(mutation: Mutation): Unit
+}
+
 /**
  * Keeps track of the position of a match during parsing
  * @param t
@@ -97,12 +104,44 @@ case class VariableShortSequenceRepeatString(override val parse: Any) extends Pa
  * NER component of SETH
  *
  * Parses a string and yields all mentions of mutations that obey to the latest variant nomenclature of HGVS.
+ * Positions which cannot start a mutation are rejected by a [[seth.ner.Recognizer]], the parser combinators below only build
+ * the parse trees of recognized mutations.
+ * @param strictNomenclature only accept mentions which strictly follow the nomenclature
+ * @param referenceMode parse every position with the parser combinators, i.e. without the recognizer (for comparisons)
+ * @param memoize memoize the locations and raw variants in the recognizer (packrat parsing); this bounds the effort for
+ *                ambiguous inputs, but is slightly slower on typical texts (see seth.seth.eval.BenchmarkNER)
  */
-class SETHNER(val strictNomenclature: Boolean = false) extends RegexParsers with NonGreedy with Positional with FlattenToMutation with PackratParsers {
+class SETHNER(val strictNomenclature: Boolean = false, val referenceMode: Boolean = false, val memoize: Boolean = false) extends RegexParsers with NonGreedy with Positional with FlattenToMutation with PackratParsers {
   //type P = PackratParser[Any]
   type P = Parser[Any]
   override def skipWhitespace = false
 
+  def this(strictNomenclature: Boolean) = this(strictNomenclature, false, false)
+
+  //limits of the parse budget, see setParseBudget
+  @volatile private var budgetLimits = (SETHNER.DefaultWindowBudget, SETHNER.DefaultDocumentBudget)
+  private val aborted = new java.util.concurrent.atomic.AtomicLong()
+
+  /**
+   * Limits the effort spent on a text, so that pathological input (e.g., tables of numbers or accessions) cannot stall
+   * extractMutations. The effort is counted as characters read by the parsers. A window of four words exceeding its budget
+   * is aborted and its mentions are dropped (they are usually found by the overlapping windows, too); if the budget of the
+   * document is exceeded, the remaining windows are skipped. Skipped windows are counted by abortedWindows.
+   * The default budgets are not reached on the SETH corpora.
+   * @param window maximal number of characters read for one window
+   * @param document maximal number of characters read for one call of extractMutations
+   */
+  def setParseBudget(window: Long, document: Long): Unit = {
+    if (window < 1 || document < 1)
+      throw new IllegalArgumentException("Parse budgets have to be positive")
+    budgetLimits = (window, document)
+  }
+
+  /**
+   * @return number of windows which have been aborted or skipped because of the parse budget
+   */
+  def abortedWindows: Long = aborted.get
+
   //optional whitespace
   lazy val ws:P                 = if (strictNomenclature) "".r else " ".r.*
   lazy val gt:P                 = if (strictNomenclature) ">" else (">" | "->" | "-->" | "=>")
@@ -117,8 +156,10 @@ class SETHNER(val strictNomenclature: Boolean = false) extends RegexParsers with
   //prevent non-mutation chars from consuming eof
   lazy val rest:P               = nonGreedy(any, eof)
 
+  //a mutation and its position
+  lazy val span                 = positioned(mutation ^^ { Span(_) })
   //some text and then a mutation
-  lazy val sequence             = noMutation ~> positioned(mutation ^^ { Span(_) })
+  lazy val sequence             = noMutation ~> span
 
   //finds mutations by parsing the sentence
   lazy val expr                 = rep(sequence) <~ rest
@@ -184,26 +225,7 @@ class SETHNER(val strictNomenclature: Boolean = false) extends RegexParsers with
   //from http://www.ncbi.nlm.nih.gov/books/NBK21091/table/ch18.T.refseq_accession_numbers_and_mole/?report=objectonly
   lazy val AccRefs:P            = ("AC" | "NC" | "NG" | "NT" | "NW" | "NS" | "NZ" | "NP" | "NM" | "NR" | "XM" | "XR") ~ "_"
   //from http://www.ncbi.nlm.nih.gov/Sequin/acc.html
-  lazy val AccNumRefs:P         = ("BA | DF | DG | AN | CH | CM | DS | EM | EN | EP | EQ | FA | GG |" +
-      "GL | JH | KB | C | AT | AU | AV | BB | BJ | BP | BW | BY | CI |" +
-      "CJ | DA | DB | DC | DK | FS | FY | HX | HY | F | H | N | T | R |" +
-      "W | AA | AI | AW | BE | BF | BG | BI | BM | BQ | BU | CA | CB |" +
-      "CD | CF | CK | CN | CO | CV | CX | DN | DR | DT | DV | DW | DY |" +
-      "EB | EC | EE | EG | EH | EL | ES | EV | EW | EX | EY | FC | FD |" +
-      "FE | FF | FG | FK | FL | GD | GE | GH | GO | GR | GT | GW | HO |" +
-      "HS | JG | JK | JZ | D | AB | V | X | Y | Z | AJ | AM | FM | FN |" +
-      "HE | HF | HG | FO | U | AF | AY | DQ | EF | EU | FJ | GQ | GU |" +
-      "HM | HQ | JF | JN | JQ | JX | AP | BS | AL | BX | CR | CT | CU |" +
-      "FP | FQ | FR | AE | CP | CY | AG | DE | DH | FT | GA | B | AQ |" +
-      "AZ | BH | BZ | CC | CE | CG | CL | CW | CZ | DU | DX | ED | EI |" +
-      "EJ | EK | ER | ET | FH | FI | GS | HN | HR | JJ | JM | JS | JY |" +
-      "AK | AC | DP | E | BD | DD | DI | DJ | DL | DM | FU | FV | FW |" +
-      "FZ | GB | HV | HW | A | AX | CQ | CS | FB | GM | GN | HA | HB |" +
-      "HC | HD | HH | HI | JA | JB | JC | JD | JE | I | AR | DZ | EA |" +
-      "GC | GP | GV | GX | GY | GZ | HJ | HK | HL | G | BV | GF | BR |" +
-      "BN | BK | HT | HU | BL | GJ | GK | EZ | HP | JI | JL | JO | JP |" +
-      "JR | JT | JU | JV | JW | KA | FX | S | AD | AH | AS | BC | BT |" +
-      "J | K | L | M | N").r
+  lazy val AccNumRefs:P         = SETHNER.AccNumRefPattern.r
   lazy val AccNumRefRange:P     = "([A-E]|G)[A-Z][A-Z][A-Z]".r | "A[A-Z][A-Z][A-Z][A-Z]".r
 
   //Single Variations
@@ -376,49 +398,202 @@ class SETHNER(val strictNomenclature: Boolean = false) extends RegexParsers with
         case failure: NoSuccess => List()
       }
 
+  /**
+   * Cheap test whether a word can contribute to a mutation mention.
+   * Every production of `mutation` contains a digit, '>' or '?' (nucleotide and chromosomal variants, see Var and StructAbnorm),
+   * "p." (protein variants) or ")(" (translocations); none of them can be formed by joining two words with a space.
+   * A window of words without such a word cannot contain a mutation and is not parsed.
+   * @param word a whitespace-free token
+   * @return false if no mutation mention can contain this word
+   */
+  def mayContainMutation(word: String): Boolean = lastFeature(word, 0, word.length) >= 0
+
+  /**
+   * @param text text containing a whitespace-free token
+   * @param start start of the token in the text
+   * @param end end of the token in the text
+   * @return the last position in the token at which one of the features required by every mutation (see mayContainMutation)
+   *         starts, relative to the start of the token, or -1
+   */
+  private def lastFeature(text: CharSequence, start: Int, end: Int): Int = {
+    var i = end - 1
+    while (i >= start) {
+      val ch = text.charAt(i)
+      if ((ch >= '0' && ch <= '9') || ch == '>' || ch == '?')
+        return i - start
+      if (i > start && ((ch == '.' && text.charAt(i - 1) == 'p') || (ch == '(' && text.charAt(i - 1) == ')')))
+        return i - 1 - start
+      i -= 1
+    }
+    -1
+  }
+
+  /**
+   * Characters which are not matched by `any`; the parse of a window fails if it has to skip one of them
+   */
+  private def isUnparsable(ch: Char) = ch == 0x85 || ch == 0x2028 || ch == 0x2029   //NEL and the unicode line and paragraph separators
+
+  /**
+   * @return true if the reference is a number followed by ':'
+   */
+  private def isNumericRef(ref: String) = {
+    var i = 0
+    while (i < ref.length - 1 && ref.charAt(i) >= '0' && ref.charAt(i) <= '9') i += 1
+    i > 0 && i == ref.length - 1 && ref.charAt(i) == ':'
+  }
+
   def extractMutations(text: String):List[Mutation] = {
-    //tokenize the text using whitespace tokenization
-    val spacePos = 0 :: (for (i <- 0 until text.length) yield {
-      val ch = text.charAt(i).toString
-      if (ch matches ("\\s")) i+1 else 0
-    }).toList.filter(_ != 0) ++ List(text.length+1)
-
-    //calculate the offset of all words
-    @tailrec
-    def getWords(acc: List[(Int, String)], pos: List[Int]):List[(Int,String)] = pos match {
-      case Nil => acc
-      case x::Nil => acc
-      case x::y::xs => getWords(
-        //do not keep words longer than 500 characters
-        if (0 < text.substring(x,y-1).length && text.substring(x,y-1).length < 500) (x, text.substring(x,y-1)) :: acc else acc,
-        y :: xs
-      )
+    val mutations = collection.mutable.ListBuffer[Mutation]()
+    extractMutations(text, new MutationSink {
+      def add(mutation: Mutation): Unit = mutations += mutation
+    })
+    mutations.toList
+  }
+
+  /**
+   * Passes the mutations found in a text to a sink, in the order of extractMutations(text), without collecting them first
+   * @param text the text
+   * @param sink receives every mutation as soon as its window has been scanned
+   */
+  def extractMutations(text: String, sink: MutationSink): Unit = {
+    //tokenize the text using whitespace tokenization, do not keep words longer than 500 characters
+    val offsets = Tokenizer.tokenize(text, 500)
+    val words = offsets.length / 2
+    def start(k: Int) = offsets(2 * k)
+    def length(k: Int) = offsets(2 * k + 1) - offsets(2 * k)
+    val features = Array.tabulate(words)(k => lastFeature(text, start(k), start(k) + length(k)))
+
+    //unlike the regular expression based recognizers (see seth.Boundary), mentions may be adjacent to any character
+    def keep(m: Mutation) =
+      !(m.loc.isEmpty && m.ref.endsWith(":") && m.ref.length < 3) && !isNumericRef(m.ref)
+
+    //Mutations are searched in windows of four words (to account for possible whitespaces), i.e. the words are joined by a space and
+    //every window is scanned from left to right like `expr` does. A mutation starting in word k is parsed once on the input of the
+    //longest window containing it (words k to k+3); the result is reused by the other windows unless the parser looked beyond their end.
+    val inputs = new Array[String](words)
+    def input(k: Int) = {
+      if (inputs(k) == null) {
+        val sb = new java.lang.StringBuilder(inputEnd(k, math.min(k + 3, words - 1)))
+        for (w <- k until math.min(k + 4, words)) {
+          if (w > k)
+            sb.append(' ')
+          sb.append(text, start(w), start(w) + length(w))
+        }
+        inputs(k) = sb.toString
+      }
+      inputs(k)
+    }
+    //end of word w in the input of word k
+    def inputEnd(k: Int, w: Int) = {
+      var end = w - k
+      for (v <- k to w) end += length(v)
+      end
+    }
+
+    val attempts = new Array[Array[Attempt]](words)
+    val truncated = collection.mutable.HashMap[(Int, Int, Int), Attempt]()
+    val budget = new Budget(budgetLimits._1, budgetLimits._2)
+    //recognizers for the inputs of words; at most four inputs are scanned at the same time, so four memo tables are reused in turn
+    val recognizers = new Array[Recognizer](words)
+    lazy val memos = if (memoize && !referenceMode) {
+      val longest = (0 until words).map(k => inputEnd(k, math.min(k + 3, words - 1))).max
+      Array.fill(4)(Recognizer.memoFor(longest))
+    } else null
+    def recognizer(k: Int, limit: Int): Recognizer = {
+      if (limit < input(k).length)
+        new Recognizer(new TrackedPrefix(input(k), limit, null), strictNomenclature)
+      else {
+        if (recognizers(k) == null)
+          recognizers(k) = new Recognizer(input(k), strictNomenclature, if (memos != null) memos(k % 4) else null)
+        recognizers(k)
+      }
+    }
+    def parseAt(k: Int, offset: Int, limit: Int): Attempt = {
+      var reach = -1
+      if (!referenceMode) {
+        val r = recognizer(k, limit)
+        val steps = r.steps
+        val end = r.recognize(offset)
+        reach = r.lookahead
+        budget.charge(r.steps - steps)
+        if (end < 0)
+          return new Attempt(null, 0, reach)
+      }
+      val source = new TrackedPrefix(input(k), limit, budget)
+      parse(span, new CharSequenceReader(source, offset)) match {
+        case Success(result, next) =>
+          val lookahead = math.max(reach, source.maxIndex)
+          val mutation = flattenToMutation(result)
+          //map the end from the input of word k back to the text
+          var w = k
+          while (w + 1 < words && w - k < 3 && inputEnd(k, w) < mutation.end) w += 1
+          mutation.end = start(w) + mutation.end - (inputEnd(k, w) - length(w))
+          mutation.start += start(k)
+          new Attempt(mutation, next.offset - offset, lookahead)
+        case _ => new Attempt(null, 0, math.max(reach, source.maxIndex))
+      }
+    }
+    def attempt(k: Int, offset: Int, w: Int): Attempt = {
+      if (attempts(k) == null)
+        attempts(k) = new Array[Attempt](length(k) + 1)
+      if (attempts(k)(offset) == null)
+        attempts(k)(offset) = parseAt(k, offset, input(k).length)
+      val limit = inputEnd(k, w)
+      if (attempts(k)(offset).lookahead < limit) attempts(k)(offset)
+      else truncated.getOrElseUpdate((k, offset, w), parseAt(k, offset, limit))
+    }
+
+    val seen = collection.mutable.HashSet[Mutation]()
+    val windows = if (words < 4) math.min(words, 1) else words - 3
+    for (j <- 0 until windows) {
+      val w = math.min(j + 3, words - 1)
+      val found = collection.mutable.ListBuffer[Mutation]()
+      var valid = true
+      if (budget.documentExhausted) {
+        //skip the remaining windows, unless they cannot contain a mutation anyway
+        valid = false
+        if ((j to w).exists(features(_) >= 0))
+          aborted.incrementAndGet()
+      } else try {
+        budget.startWindow()
+        //position in the window: offset in word k, offset == length of the word denotes the following space
+        var k = j
+        var offset = 0
+        while (k < w || offset < length(k)) {
+          if (features(k) < offset && !(k + 1 to w).exists(features(_) >= 0)) {
+            //no mutation can start here, only check that the rest of the window can be skipped
+            valid = !(start(k) + offset until start(k) + length(k)).exists(i => isUnparsable(text.charAt(i))) &&
+              !(k + 1 to w).exists(v => (start(v) until start(v) + length(v)).exists(i => isUnparsable(text.charAt(i))))
+            k = w
+            offset = length(w)
+          } else {
+            val result = attempt(k, offset, w)
+            if (result.mutation != null) {
+              found += result.mutation
+              offset += result.length
+            } else if (offset < length(k) && isUnparsable(text.charAt(start(k) + offset))) {
+              valid = false
+              k = w
+              offset = length(w)
+            } else
+              offset += 1
+            while (k < w && offset > length(k)) {
+              offset -= length(k) + 1
+              k += 1
+            }
+          }
+        }
+      } catch {
+        case BudgetExceeded =>
+          valid = false
+          aborted.incrementAndGet()
+      }
+      if (valid)
+        for (mutation <- found if keep(mutation) && seen.add(mutation)) sink.add(mutation)
+      attempts(j) = null
+      inputs(j) = null
+      recognizers(j) = null
     }
-    val words = getWords(Nil, spacePos).reverse
-
-    //allowed chars left and right to a mutation (from MutationFinder)
-    lazy val left = """(?:^|[\s\(\[\'"/,\-])"""
-    lazy val right = """(?=([.,\s)\]\'":;\-?!/]|$))"""
-
-    //extract mutations from 4grams of words (to account for possible whitespaces)
-    (for {
-      trigram <- words.sliding(4)
-      offset = trigram.head._1
-      word = trigram.map(_._2).mkString("", " ", "")
-      parse <- this(word)
-    } yield {
-      val mutation = flattenToMutation(parse)
-      mutation.addOffset(offset)
-      mutation
-    }).filter((m:Mutation) => {
-      //only keep matches with a valid boundary
-      val lChar = (if (m.start - 1 >= 0) text.charAt(m.start - 1) else " ").toString
-      val rChar = (if (m.end < text.length) text.charAt(m.end) else " ").toString
-      !(lChar.matches(left) && rChar.matches(right))
-    }).filter((m:Mutation) => {
-      !(m.loc.isEmpty && m.ref.endsWith(":") && m.ref.length < 3) &&
-      !(m.ref matches("[0-9]+:"))
-    }).toList.distinct
   }
 
   def isValid(input: String, parser:this.Parser[Any], debug: Boolean = false): Boolean = {
@@ -438,6 +613,89 @@ class SETHNER(val strictNomenclature: Boolean = false) extends RegexParsers with
   def isValid(input:String): Boolean = isValid(input, mutation)
 }
 
+object SETHNER {
+  //default parse budgets, see setParseBudget
+  val DefaultWindowBudget = 1000000L
+  val DefaultDocumentBudget = 100000000L
+
+  //alternatives of AccNumRefs, shared with the Recognizer
+  val AccNumRefPattern = "BA | DF | DG | AN | CH | CM | DS | EM | EN | EP | EQ | FA | GG |" +
+    "GL | JH | KB | C | AT | AU | AV | BB | BJ | BP | BW | BY | CI |" +
+    "CJ | DA | DB | DC | DK | FS | FY | HX | HY | F | H | N | T | R |" +
+    "W | AA | AI | AW | BE | BF | BG | BI | BM | BQ | BU | CA | CB |" +
+    "CD | CF | CK | CN | CO | CV | CX | DN | DR | DT | DV | DW | DY |" +
+    "EB | EC | EE | EG | EH | EL | ES | EV | EW | EX | EY | FC | FD |" +
+    "FE | FF | FG | FK | FL | GD | GE | GH | GO | GR | GT | GW | HO |" +
+    "HS | JG | JK | JZ | D | AB | V | X | Y | Z | AJ | AM | FM | FN |" +
+    "HE | HF | HG | FO | U | AF | AY | DQ | EF | EU | FJ | GQ | GU |" +
+    "HM | HQ | JF | JN | JQ | JX | AP | BS | AL | BX | CR | CT | CU |" +
+    "FP | FQ | FR | AE | CP | CY | AG | DE | DH | FT | GA | B | AQ |" +
+    "AZ | BH | BZ | CC | CE | CG | CL | CW | CZ | DU | DX | ED | EI |" +
+    "EJ | EK | ER | ET | FH | FI | GS | HN | HR | JJ | JM | JS | JY |" +
+    "AK | AC | DP | E | BD | DD | DI | DJ | DL | DM | FU | FV | FW |" +
+    "FZ | GB | HV | HW | A | AX | CQ | CS | FB | GM | GN | HA | HB |" +
+    "HC | HD | HH | HI | JA | JB | JC | JD | JE | I | AR | DZ | EA |" +
+    "GC | GP | GV | GX | GY | GZ | HJ | HK | HL | G | BV | GF | BR |" +
+    "BN | BK | HT | HU | BL | GJ | GK | EZ | HP | JI | JL | JO | JP |" +
+    "JR | JT | JU | JV | JW | KA | FX | S | AD | AH | AS | BC | BT |" +
+    "J | K | L | M | N"
+}
+
+/**
+ * Result of parsing a mutation at a position
+ * @param mutation the mutation or null
+ * @param length number of consumed characters
+ * @param lookahead largest index read by the parser
+ */
+private class Attempt(val mutation: Mutation, val length: Int, val lookahead: Int)
+
+/**
+ * Number of characters the parsers may read for the current window and for the whole document (see SETHNER.setParseBudget)
+ */
+private class Budget(windowLimit: Long, documentLimit: Long) {
+  private var window = 0L
+  private var document = 0L
+  def startWindow(): Unit = window = 0
+  def documentExhausted = document > documentLimit
+  /** @throws BudgetExceeded if one of the limits is exceeded */
+  def charge(steps: Long): Unit = {
+    window += steps
+    document += steps
+    if (window > windowLimit || document > documentLimit)
+      throw BudgetExceeded
+  }
+}
+
+/**
+ * Aborts the parse of a window which exceeded its budget
+ */
+private object BudgetExceeded extends scala.util.control.ControlThrowable
+
+/**
+ * Prefix of a string which records the largest index read by a parser.
+ * A parse which did not read up to the end of a shorter prefix yields the same result on that prefix.
+ * @param budget budget charged for every read, or null
+ */
+private class TrackedPrefix(text: String, limit: Int, budget: Budget) extends CharSequence {
+  var maxIndex = -1
+  def length = limit
+  def charAt(index: Int) = {
+    if (index >= limit)
+      throw new IndexOutOfBoundsException(index.toString)
+    if (budget != null)
+      budget.charge(1)
+    if (index > maxIndex)
+      maxIndex = index
+    text.charAt(index)
+  }
+  def subSequence(start: Int, end: Int) = {
+    if (end > limit)
+      throw new IndexOutOfBoundsException(end.toString)
+    text.subSequence(start, end)
+  }
+  override def toString = text.substring(0, limit)
+}
+
 //from http://stackoverflow.com/questions/7812610/non-greedy-matching-in-scala-regexparsers
 trait NonGreedy extends Parsers {
   def nonGreedy[T, U](rep: => Parser[T], terminal: => Parser[U]) = Parser { in =>
@@ -471,50 +729,79 @@ trait FlattenToString extends Parsers {
  * Flattens a parse result to mutation mention
  */
 trait FlattenToMutation extends FlattenToString {
-  //TODO: actually, we only need a list of ParsedStrings
-  private def flatten2(any: Any): List[(String, ParsedString)] = {
-    def flatten3(any: Any): List[(String, ParsedString)] = any match {
-      case a ~ b => flatten2(a) ++ flatten2(b)
-      case xs:List[Any] => xs.foldLeft(List(("", Empty().asInstanceOf[ParsedString])))(_ ++ flatten2(_))
-      case None => List(("", Empty()))
-      case Some(a) => flatten2(a)
-      case a:String => List((a, Empty()))
-      case Span(span) => flatten2(span)
-      case s:ParsedString => List((flattenToString(s.parse), s)) ++ flatten2(s.parse)
+  /**
+   * Collects the text of a parse tree and the ParsedStrings in it in a single pass.
+   * The text is appended to one StringBuilder, the text of a ParsedString is given by its range in the text.
+   */
+  private final class Flattener {
+    val text = new java.lang.StringBuilder()
+    //ParsedStrings in pre-order with the start and end of their text
+    var attributes = new Array[ParsedString](8)
+    var starts = new Array[Int](8)
+    var ends = new Array[Int](8)
+    var size = 0
+
+    def visit(any: Any): Unit = any match {
+      case a ~ b => visit(a); visit(b)
+      case xs:List[Any] => xs.foreach(visit)
+      case None =>
+      case Some(a) => visit(a)
+      case a:String => text.append(a)
+      case Span(span) => visit(span)
+      case s:ParsedString =>
+        val i = add(s)
+        visit(s.parse)
+        ends(i) = text.length
       case _ => throw new IllegalArgumentException("could not flatten " + any)
     }
-    flatten3(any).filter(!_._1.isEmpty)
+
+    private def add(s: ParsedString): Int = {
+      if (size == attributes.length) {
+        attributes = java.util.Arrays.copyOf(attributes, 2 * size)
+        starts = java.util.Arrays.copyOf(starts, 2 * size)
+        ends = java.util.Arrays.copyOf(ends, 2 * size)
+      }
+      attributes(size) = s
+      starts(size) = text.length
+      size += 1
+      size - 1
+    }
   }
 
   def flattenToMutation(span: Span[Any]): Mutation = {
-    val text = flattenToString(span.t)
+    val flattener = new Flattener
+    flattener.visit(span.t)
+    val text = flattener.text.toString
     val start = span.pos.column - 1
     val end = start + text.length
     val mutation = new Mutation(start, end, text)
-    val attributes = flatten2(span.t).map(_._2).filter(_ != Empty())
-    for (att <- attributes) att match {
-      case loc:LocString => {
-        val temp = flattenToString(loc.parse)
-        mutation.loc = if (temp.head == '(' && temp.last == ')') temp.tail.dropRight(1) else temp
+    //attributes are assigned in pre-order, i.e. nested attributes override the enclosing ones; attributes without text are ignored
+    for (i <- 0 until flattener.size if flattener.starts(i) < flattener.ends(i)) {
+      def string = text.substring(flattener.starts(i), flattener.ends(i))
+      flattener.attributes(i) match {
+        case loc:LocString => {
+          val temp = string
+          mutation.loc = if (temp.head == '(' && temp.last == ')') temp.tail.dropRight(1) else temp
+        }
+        //TODO: map to single char representation
+        case wild:WildString => mutation.wild = abbreviate(string)
+        //TODO: map to single char representation
+        case mutated:MutatedString => mutation.mutated = abbreviate(string)
+        case ref:RefSeqString => mutation.ref = string
+        case typ:DelString => mutation.typ = DELETION
+        case typ:InsString => mutation.typ = INSERTION
+        case typ:InsDelString => mutation.typ = DELETION_INSERTION
+        case typ:SubstString => mutation.typ = SUBSTITUTION
+        case typ:DupString => mutation.typ = DUPLICATION
+        case typ:InvString => mutation.typ = INVERSION
+        case typ:ConString => mutation.typ = CONVERSION
+        case typ:TransLocString => mutation.typ = TRANSLOCATION
+        case typ:FrameShiftString => mutation.typ = FRAMESHIFT
+        case typ:SilentString => mutation.typ = SILENT
+        case typ:VariableShortSequenceRepeatString => mutation.typ = SHORT_SEQUENCE_REPEAT
+        case typ:StructAbnormString => mutation.typ = STRUCTURAL_ABNORMALITY
+        case typ:MutationType => mutation.typ = OTHER //TODO: add more types
       }
-      //TODO: map to single char representation
-      case wild:WildString => mutation.wild = abbreviate(flattenToString(wild.parse))
-      //TODO: map to single char representation
-      case mutated:MutatedString => mutation.mutated = abbreviate(flattenToString(mutated.parse))
-      case ref:RefSeqString => mutation.ref = flattenToString(ref.parse)
-      case typ:DelString => mutation.typ = DELETION
-      case typ:InsString => mutation.typ = INSERTION
-      case typ:InsDelString => mutation.typ = DELETION_INSERTION
-      case typ:SubstString => mutation.typ = SUBSTITUTION
-      case typ:DupString => mutation.typ = DUPLICATION
-      case typ:InvString => mutation.typ = INVERSION
-      case typ:ConString => mutation.typ = CONVERSION
-      case typ:TransLocString => mutation.typ = TRANSLOCATION
-      case typ:FrameShiftString => mutation.typ = FRAMESHIFT
-      case typ:SilentString => mutation.typ = SILENT
-      case typ:VariableShortSequenceRepeatString => mutation.typ = SHORT_SEQUENCE_REPEAT
-      case typ:StructAbnormString => mutation.typ = STRUCTURAL_ABNORMALITY
-      case typ:MutationType => mutation.typ = OTHER //TODO: add more types
     }
     mutation
   }
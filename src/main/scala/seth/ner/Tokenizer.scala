@@ -0,0 +1,42 @@
+package seth.ner
+
+/**
+ * Whitespace tokenization of the texts searched by SETHNER.
+ *
+ * The text is scanned once; the words are returned as pairs of offsets in a single int array, so no substring is
+ * created. Whitespace is defined as by the regular expression \s, i.e. [ \t\n\x0B\f\r], which is also used by
+ * the boundary checks of the recognized mentions.
+ */
+object Tokenizer {
+
+  /**
+   * @param ch a character
+   * @return true if the regular expression \s matches the character
+   */
+  def isWhitespace(ch: Char): Boolean = ch == ' ' || (ch >= '\t' && ch <= '\r')    //\t \n \u000B \f \r
+
+  /**
+   * Splits a text at whitespace
+   * @param text the text
+   * @param maxLength words of at least this length are dropped
+   * @return start (inclusive) and end (exclusive) of every word: word k spans offsets(2 * k) until offsets(2 * k + 1)
+   */
+  def tokenize(text: CharSequence, maxLength: Int): Array[Int] = {
+    var offsets = new Array[Int](16)
+    var size = 0
+    var i = 0
+    while (i < text.length) {
+      while (i < text.length && isWhitespace(text.charAt(i))) i += 1
+      val start = i
+      while (i < text.length && !isWhitespace(text.charAt(i))) i += 1
+      if (start < i && i - start < maxLength) {
+        if (size == offsets.length)
+          offsets = java.util.Arrays.copyOf(offsets, 2 * size)
+        offsets(size) = start
+        offsets(size + 1) = i
+        size += 2
+      }
+    }
+    java.util.Arrays.copyOf(offsets, size)
+  }
+}
@@ -0,0 +1,138 @@
+package de.hu.berlin.wbi;
+
+import edu.uchsc.ccp.nlp.ei.mutation.Mutation;
+import edu.uchsc.ccp.nlp.ei.mutation.MutationFinder;
+import edu.uchsc.ccp.nlp.ei.mutation.RegexBackend;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests that the different matching modes and regular expression backends of {@link MutationFinder} return identical results
+ */
+public class MutationFinderTest {
+
+    private static MutationFinder mf;
+
+    private static final String[] sentences = {
+            "We constructed A42G and L22G, and crystalized A42G.",
+            "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C), accounted for 72.1% and 9.8% of GJB2 disease alleles.",
+            "The Trp-64 to Phe or Tyr substitution abolished the activity, whereas Ala was substituted by Gly at residue 123.",
+            "A single nucleotide polymorphism -650A>T and the Val158Met variant were studied, as well as Arg-->Lys at 12.",
+            "Residue 45 was replaced by alanine; Lysine 12 to glutamate, and the allelic variant M/V 470.",
+            "No mutation is mentioned in this sentence at all.",
+            ""
+    };
+
+    @BeforeClass
+    public static void setUp() {
+        mf = new MutationFinder("resources/mutations.txt");
+    }
+
+    /**
+     * Converts the result of MutationFinder into a comparable representation
+     */
+    private static List<String> toStrings(Map<Mutation, Set<int[]>> mutations) {
+        List<String> result = new ArrayList<String>();
+        for (Map.Entry<Mutation, Set<int[]>> entry : mutations.entrySet()) {
+            for (int[] span : entry.getValue())
+                result.add(entry.getKey() + " " + entry.getKey().getId() + " " + span[0] + "-" + span[1]);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void testMultiPatternMode() throws Exception {
+        for (String sentence : sentences) {
+            mf.setMultiPatternMode(false);
+            List<String> expected = toStrings(mf.extractMutations(sentence));
+            mf.setMultiPatternMode(true);
+            List<String> actual = toStrings(mf.extractMutations(sentence));
+
+            Assert.assertEquals(sentence, expected, actual);
+        }
+    }
+
+    @Test
+    public void testRegexBackends() throws Exception {
+        for (RegexBackend backend : RegexBackend.values()) {
+            MutationFinder other = new MutationFinder("resources/mutations.txt", backend);
+            for (String sentence : sentences) {
+                List<String> expected = toSpans(mf.extractMutations(sentence));
+                List<String> actual = toSpans(other.extractMutations(sentence));
+
+                Assert.assertEquals(backend + ": " + sentence, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testWorkspace() throws Exception {
+        for (RegexBackend backend : RegexBackend.values()) {
+            MutationFinder other = new MutationFinder("resources/mutations.txt", backend);
+            MutationFinder.Workspace workspace = other.createWorkspace();
+            for (int round = 0; round < 2; round++) {
+                for (String sentence : sentences)
+                    Assert.assertEquals(backend + ": " + sentence, toStrings(other.extractMutations(sentence)), toStrings(other.extractMutations(sentence, workspace)));
+            }
+        }
+    }
+
+    @Test
+    public void testPatternSetCache() throws Exception {
+        File directory = Files.createTempDirectory("mutationfinder").toFile();
+        System.setProperty("mutationfinder.cache", directory.getPath());
+        try {
+            MutationFinder writer = new MutationFinder("resources/mutations.txt", RegexBackend.JAVA);
+            File[] files = directory.listFiles();
+            Assert.assertEquals(1, files.length);
+
+            MutationFinder reader = new MutationFinder("resources/mutations.txt", RegexBackend.JAVA);
+            for (String sentence : sentences) {
+                Assert.assertEquals(sentence, toSpans(writer.extractMutations(sentence)), toSpans(reader.extractMutations(sentence)));
+                Assert.assertEquals(sentence, toSpans(mf.extractMutations(sentence)), toSpans(reader.extractMutations(sentence)));
+            }
+
+            //A damaged cache file is ignored and replaced
+            Files.write(files[0].toPath(), Arrays.copyOf(Files.readAllBytes(files[0].toPath()), 1000));
+            MutationFinder recovered = new MutationFinder("resources/mutations.txt", RegexBackend.JAVA);
+            for (String sentence : sentences)
+                Assert.assertEquals(sentence, toSpans(mf.extractMutations(sentence)), toSpans(recovered.extractMutations(sentence)));
+            Assert.assertTrue(files[0].length() > 1000);
+        } finally {
+            System.clearProperty("mutationfinder.cache");
+            for (File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+    }
+
+    /**
+     * Pattern ids are not compared, as they depend on the order in which the patterns are applied
+     */
+    private static List<String> toSpans(Map<Mutation, Set<int[]>> mutations) {
+        List<String> result = new ArrayList<String>();
+        for (Map.Entry<Mutation, Set<int[]>> entry : mutations.entrySet()) {
+            for (int[] span : entry.getValue())
+                result.add(entry.getKey() + " " + span[0] + "-" + span[1]);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void testNoMutation() throws Exception {
+        Assert.assertTrue(mf.extractMutations("No mutation is mentioned in this sentence at all.").isEmpty());
+        Assert.assertFalse(mf.extractMutations("We constructed A42G and L22G.").isEmpty());
+    }
+}
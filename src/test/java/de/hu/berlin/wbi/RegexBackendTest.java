@@ -0,0 +1,68 @@
+package de.hu.berlin.wbi;
+
+import edu.uchsc.ccp.nlp.ei.mutation.CompiledRegex;
+import edu.uchsc.ccp.nlp.ei.mutation.RegexBackend;
+import edu.uchsc.ccp.nlp.ei.mutation.RegexMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the matches and groups of the {@link RegexBackend}s with {@link RegexBackend#JAVA}
+ */
+public class RegexBackendTest {
+
+    private static final String[][] cases = {
+            {"(?:^|[\\s\\(\\[\\'\"/,;\\-])([A-Z])([1-9][0-9]*)([A-Z])(?=([.,\\s)\\]\\'\":;\\-?!/]|$))", "We constructed A42G and L22G, and crystalized A42G."},
+            {"(ala|alanine|al)(nine)?", "alanine alnine"},
+            {"a(b*?)(b*)c", "abbbc ac"},
+            {"([0-9]{1,3})(-[0-9]{0,2})?x", "1234-56x 12-x"},
+            {"(a|ab)(c|bcd)(d*)", "abcd"},
+            {"[^a-c\\s]+", "abc def\tghi"},
+            {"(x)?y$", "xy\n"},
+            {"", "ab"},
+    };
+
+    private static List<String> matches(CompiledRegex regex, String text, int groups) {
+        List<String> result = new ArrayList<String>();
+        RegexMatcher matcher = regex.matcher(text);
+        while (matcher.find()) {
+            StringBuilder sb = new StringBuilder();
+            for (int group = 0; group <= groups; group++)
+                sb.append(matcher.start(group)).append('-').append(matcher.end(group)).append(':').append(matcher.group(group)).append(' ');
+            result.add(sb.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void testBackends() {
+        for (String[] c : cases) {
+            int groups = Pattern.compile(c[0]).matcher("").groupCount();
+            for (boolean caseSensitive : new boolean[]{true, false}) {
+                List<String> expected = matches(RegexBackend.JAVA.compile(c[0], caseSensitive), c[1], groups);
+                Assert.assertEquals(c[0], expected, matches(RegexBackend.LINEAR.compile(c[0], caseSensitive), c[1], groups));
+                Assert.assertEquals(c[0], expected, matches(RegexBackend.ORO.compile(c[0], caseSensitive), c[1], groups));
+            }
+        }
+    }
+
+    /**
+     * Nested quantifiers need exponential time in a backtracking engine, but not in {@link RegexBackend#LINEAR}
+     */
+    @Test(timeout = 1000)
+    public void testLinearTime() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            text.append('a');
+        Assert.assertFalse(RegexBackend.LINEAR.compile("(a+)+b", true).matcher(text).find());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedSyntax() {
+        RegexBackend.LINEAR.compile("(a)\\1", true);
+    }
+}
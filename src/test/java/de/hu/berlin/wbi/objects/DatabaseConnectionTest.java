@@ -0,0 +1,195 @@
+package de.hu.berlin.wbi.objects;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DatabaseConnectionTest {
+
+    /**
+     * Database connection with stub connections, whose statements return no results
+     */
+    private static class StubConnection extends DatabaseConnection {
+
+        final AtomicInteger opened = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        final AtomicInteger prepared = new AtomicInteger();
+        final List<String> queries = new ArrayList<String>();
+
+        /** Whether the stub supports array parameters */
+        private final boolean arrays;
+
+        StubConnection(int poolSize) {
+            this(poolSize, true);
+        }
+
+        StubConnection(int poolSize, boolean arrays) {
+            super("user", "password", "database", "host");
+            setPoolSize(poolSize);
+            this.arrays = arrays;
+        }
+
+        @Override
+        protected Connection newConnection() {
+            opened.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, new InvocationHandler() {
+                private boolean isClosed = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                    if (method.getName().equals("prepareStatement")) {
+                        prepared.incrementAndGet();
+                        synchronized (queries) {
+                            queries.add((String) args[0]);
+                        }
+                        return statement();
+                    } else if (method.getName().equals("createArrayOf")) {
+                        if (!arrays)
+                            throw new SQLFeatureNotSupportedException();
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Array.class}, this);
+                    } else if (method.getName().equals("close")) {
+                        isClosed = true;
+                        closed.incrementAndGet();
+                    } else if (method.getName().equals("isClosed"))
+                        return isClosed;
+                    return null;
+                }
+            });
+        }
+
+        private PreparedStatement statement() {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                }
+            });
+        }
+    }
+
+    @After
+    public void reset() {
+        dbSNP.init((dbSNPStore) null);
+    }
+
+    @Test
+    public void testLease() throws Exception {
+        StubConnection connection = new StubConnection(2);
+
+        DatabaseConnection.Lease lease = connection.lease();
+        PreparedStatement statement = lease.prepare("SELECT 1");
+        Assert.assertSame(statement, lease.prepare("SELECT 1"));
+        lease.release();
+
+        lease = connection.lease();                         //the idle connection is reused with its statements
+        Assert.assertSame(statement, lease.prepare("SELECT 1"));
+        DatabaseConnection.Lease second = connection.lease();
+        second.prepare("SELECT 1");
+        Assert.assertEquals(2, connection.opened.get());
+        Assert.assertEquals(2, connection.prepared.get());
+
+        second.release();
+        connection.disconnect();                            //closes the idle connection
+        Assert.assertEquals(1, connection.closed.get());
+        lease.release();                                    //closes the leased connection
+        Assert.assertEquals(2, connection.closed.get());
+    }
+
+    @Test
+    public void testPoolSize() throws Exception {
+        final StubConnection connection = new StubConnection(1);
+        final DatabaseConnection.Lease lease = connection.lease();
+
+        final CountDownLatch leased = new CountDownLatch(1);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    connection.lease().release();
+                    leased.countDown();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        thread.start();
+        Assert.assertFalse(leased.await(100, TimeUnit.MILLISECONDS));   //waits for the leased connection
+
+        lease.release();
+        Assert.assertTrue(leased.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, connection.opened.get());
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        final StubConnection connection = new StubConnection(2);
+        dbSNP.init(connection, "PSM", "hgvs");
+        dbSNP.init(connection, "PSM", "hgvs");              //may be initialized again
+
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final int geneID = i;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 100; j++)
+                            Assert.assertTrue(dbSNP.getSNP(geneID).isEmpty());
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertTrue(connection.opened.get() <= 2);
+        Assert.assertEquals(2 * connection.opened.get(), connection.prepared.get());   //two statements per connection
+    }
+
+    @Test
+    public void testBatchLookups() throws Exception {
+        for (boolean arrays : new boolean[]{true, false}) {
+            StubConnection connection = new StubConnection(1, arrays);
+            dbSNP.init(connection, "PSM", "hgvs");
+            UniprotFeature.init(connection, "uniprot");
+            Gene.init(connection, "genes", "gene2pubmed");
+            connection.queries.clear();
+
+            Map<Integer, List<dbSNP>> snps = dbSNP.getSNPs(Arrays.asList(1, 2, 3, 2));
+            Assert.assertEquals(3, snps.size());
+            Assert.assertTrue(snps.get(2).isEmpty());
+            Assert.assertEquals(3, UniprotFeature.getFeatures(Arrays.asList(1, 2, 3)).size());
+            Assert.assertEquals(2, Gene.queryGenesForArticles(Arrays.asList(10, 11)).size());
+            Assert.assertTrue(Gene.queryGenesForArticle(10).isEmpty());
+
+            //Without array parameters, the statements for single genes and articles are used
+            for (String query : connection.queries)
+                Assert.assertEquals(query, arrays, query.contains("ANY(?)"));
+            Assert.assertEquals(arrays ? 5 : 0, connection.queries.size());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.hu.berlin.wbi.objects;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class GeneCacheTest {
+
+    private static final GeneCache.Weigher<List<Integer>> SIZE = new GeneCache.Weigher<List<Integer>>() {
+        @Override
+        public long weigh(List<Integer> value) {
+            return value.size();
+        }
+    };
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        GeneCache<List<Integer>> cache = new GeneCache<List<Integer>>(5, SIZE);
+        cache.put(1, Arrays.asList(1, 1));
+        cache.put(2, Arrays.asList(2, 2));
+        Assert.assertNotNull(cache.get(1));     //gene 2 is now least recently used
+
+        cache.put(3, Arrays.asList(3, 3));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(4, cache.getWeight());
+        Assert.assertNull(cache.get(2));
+        Assert.assertEquals(Arrays.asList(1, 1), cache.get(1));
+        Assert.assertEquals(Arrays.asList(3, 3), cache.get(3));
+
+        Assert.assertEquals(3, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testWeights() {
+        GeneCache<List<Integer>> cache = new GeneCache<List<Integer>>(5, SIZE);
+        cache.put(1, Arrays.asList(1, 2, 3, 4, 5, 6));      //heavier than the cache
+        Assert.assertNull(cache.get(1));
+        Assert.assertEquals(0, cache.getWeight());
+
+        cache.put(2, Arrays.asList(1));
+        cache.put(2, Arrays.asList(1, 2, 3));               //replaces the previous value
+        Assert.assertEquals(3, cache.getWeight());
+        cache.put(3, Collections.<Integer>emptyList());
+        cache.put(4, Arrays.asList(1, 2, 3, 4, 5));         //evicts gene 2, the empty gene 3 still fits
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(5, cache.getWeight());
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertNull(cache.get(2));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getWeight());
+    }
+}
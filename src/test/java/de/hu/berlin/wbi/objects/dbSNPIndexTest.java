@@ -0,0 +1,87 @@
+package de.hu.berlin.wbi.objects;
+
+import org.junit.Assert;
+import org.junit.Test;
+import seth.ner.wrapper.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class dbSNPIndexTest {
+
+    private static dbSNP psm(int rsID, int aaPosition, String wildtype, String... residues) {
+        return new dbSNP(rsID, 2706, new HashSet<String>(Arrays.asList(residues)), aaPosition, wildtype);
+    }
+
+    private static dbSNP hgvs(int rsID, String... hgvs) {
+        dbSNP snp = new dbSNP();
+        snp.setRsID(rsID);
+        snp.setGeneID(2706);
+        Set<HGVS> set = new HashSet<HGVS>();
+        for (String string : hgvs)
+            set.add(new HGVS(string));
+        snp.setHgvs(set);
+        return snp;
+    }
+
+    private static MutationMention mention(String position, String wildtype, String mutated) {
+        return new MutationMention(0, 1, "", null, position, wildtype, mutated, Type.SUBSTITUTION, MutationMention.Tool.SETH);
+    }
+
+    private static List<Integer> rsIDs(List<dbSNPNormalized> normalized) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (dbSNPNormalized snp : normalized)
+            result.add(snp.getRsID());
+        return result;
+    }
+
+    private final List<dbSNP> snps = Arrays.asList(
+            psm(1, 90, "L", "P"),                   //exact
+            psm(2, 91, "L", "P"),                   //leading methionine
+            psm(3, 90, "P", "L"),                   //swapped
+            psm(4, 90, "L", "R"),                   //other mutated residue
+            psm(5, 110, "L", "P"),                  //UniProt feature
+            psm(6, 500, "L", "P"),
+            hgvs(7, "p.Leu89Pro"),                  //leading methionine
+            hgvs(8, "c.90T>C", "c.90T>G"),
+            hgvs(9, "c.90C>T"),                     //reverse
+            hgvs(10, "g.90+1T>C", "c.10"));
+
+    @Test
+    public void testSameResults() {
+        dbSNPIndex index = new dbSNPIndex(snps);
+        Assert.assertEquals(snps.size(), index.size());
+        List<UniprotFeature> features = Collections.singletonList(new UniprotFeature(2706, "signal peptide", 1, 20));
+
+        for (MutationMention[] mentions : new MutationMention[][]{
+                {mention("90", "L", "P"), mention("90", "L", "P")},
+                {mention("90", "T", "C"), mention("90", "T", "C")},
+                {mention("90+1", "T", "C"), mention("90+1", "T", "C")},
+                {mention("+90", "L", "P"), mention("+90", "L", "P")},
+                {mention("1", "A", "G"), mention("1", "A", "G")}}) {
+            mentions[0].normalizeSNP(snps, features, false);
+            mentions[1].normalizeSNP(index, features, false);
+            Assert.assertEquals(rsIDs(mentions[0].getNormalized()), rsIDs(mentions[1].getNormalized()));
+        }
+    }
+
+    @Test
+    public void testCandidates() {
+        dbSNPIndex index = new dbSNPIndex(snps);
+        List<UniprotFeature> features = Collections.singletonList(new UniprotFeature(2706, "signal peptide", 1, 20));
+
+        //PSM entries with wildtype L or P at 90+/-1 and 90+20, HGVS entries at 89 and 90; in the order of the list
+        Assert.assertEquals(Arrays.asList(snps.get(0), snps.get(1), snps.get(2), snps.get(3), snps.get(4), snps.get(6), snps.get(7), snps.get(8)),
+                index.getCandidates("90", "L", "P", features));
+        Assert.assertEquals(Arrays.asList(snps.get(9)), index.getCandidates("90+1", "T", "C", features));
+        Assert.assertTrue(index.getCandidates("200", "L", "P", features).isEmpty());
+
+        MutationMention mention = mention("90", "L", "P");
+        mention.normalizeSNP(index, features, false);
+        Assert.assertEquals(Arrays.asList(1), rsIDs(mention.getNormalized()));
+    }
+}
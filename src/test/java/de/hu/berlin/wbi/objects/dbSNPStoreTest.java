@@ -0,0 +1,115 @@
+package de.hu.berlin.wbi.objects;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import seth.SETH;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class dbSNPStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private dbSNPStore build(int segmentShift) throws IOException {
+        File psm = write("PSM.tsv",
+                "80338945\t2706\t90\tP\tL",
+                "80338945\t2706\t90\tP\tL",     //duplicate
+                "111\t2706\t12\tT|S\tA",
+                "111\t2706\t13\tG\tA",
+                "222\t672\t1\tV\tM");
+        File hgvs = write("hgvs.tsv",
+                "2706\t80338945\tc.269T>C\tNM_004004.5",
+                "2706\t80338945\tp.Leu90Pro\tNP_003995.2",
+                "2706\t80338939\tc.35delG\tNM_004004.5",
+                "2706\t80338939\tc.35delG\tNG_008358.1",  //same HGVS, other sequence
+                "2706\t333\tc.10\tNM_004004.5",          //erroneous HGVS
+                "7157\t444\tg.5A>T\tNG_017013.2");
+        File store = new File(folder.getRoot(), "dbSNP.store");
+        dbSNPStore.build(psm, hgvs, store);
+        return dbSNPStore.open(store, segmentShift);
+    }
+
+    private File write(String name, String... lines) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            for (String line : lines)
+                writer.write(line + "\n");
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static dbSNP snp(int rsID, int geneID, Set<String> residues, int aaPosition, String wildtype, String... hgvs) {
+        dbSNP snp = residues == null ? new dbSNP() : new dbSNP(rsID, geneID, residues, aaPosition, wildtype);
+        snp.setRsID(rsID);
+        snp.setGeneID(geneID);
+        if (hgvs.length > 0) {
+            Set<HGVS> set = new HashSet<HGVS>();
+            for (String string : hgvs)
+                set.add(new HGVS(string));
+            snp.setHgvs(set);
+        }
+        return snp;
+    }
+
+    @Test
+    public void testGetSNP() throws Exception {
+        for (int segmentShift : new int[]{30, 6}) {
+            dbSNPStore store = build(segmentShift);
+            Assert.assertEquals(3, store.size());
+
+            List<dbSNP> snps = store.getSNP(2706);
+            Assert.assertEquals(5, snps.size());
+            Set<dbSNP> expected = new HashSet<dbSNP>(Arrays.asList(
+                    snp(80338945, 2706, new HashSet<String>(Arrays.asList("P")), 90, "L", "c.269T>C", "p.Leu90Pro"),
+                    snp(111, 2706, new HashSet<String>(Arrays.asList("T", "S")), 12, "A"),
+                    snp(111, 2706, new HashSet<String>(Arrays.asList("G")), 13, "A"),
+                    snp(80338939, 2706, null, 0, null, "c.35delG"),
+                    snp(333, 2706, null, 0, null, "c.10")));
+            Assert.assertEquals(expected, new HashSet<dbSNP>(snps));
+            for (dbSNP snp : snps) {
+                if (snp.getRsID() == 80338939)   //parsed when the store was built
+                    Assert.assertEquals("c.35delG", snp.getHgvs().iterator().next().toString());
+            }
+
+            Assert.assertEquals(Arrays.asList(snp(222, 672, new HashSet<String>(Arrays.asList("V")), 1, "M")), store.getSNP(672));
+            Assert.assertEquals(Arrays.asList(snp(444, 7157, null, 0, null, "g.5A>T")), store.getSNP(7157));
+            Assert.assertTrue(store.getSNP(1).isEmpty());
+        }
+    }
+
+    @Test
+    public void testNormalization() throws Exception {
+        dbSNPStore store = build(30);
+        SETH seth = new SETH(getClass().getResource("/resources/mutations.txt").getPath(), false, true);
+        List<MutationMention> mentions = seth.findMutations("The mutations L90P (c.269T>C) and c.50A>G were found.");
+        Assert.assertEquals(3, mentions.size());
+
+        List<dbSNP> candidates = store.getSNP(2706);
+        for (MutationMention mention : mentions)
+            mention.normalizeSNP(candidates, new ArrayList<UniprotFeature>(), false);
+        Assert.assertEquals(80338945, mentions.get(0).getNormalized().get(0).getRsID());  //PSM entry
+        Assert.assertEquals(80338945, mentions.get(1).getNormalized().get(0).getRsID());  //HGVS entry
+        Assert.assertTrue(mentions.get(2).getNormalized().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedInput() throws Exception {
+        dbSNPStore.build(write("PSM.tsv", "rs1\t2706\t90\tP\tL"), write("hgvs.tsv"), new File(folder.getRoot(), "dbSNP.store"));
+    }
+}
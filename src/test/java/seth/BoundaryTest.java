@@ -0,0 +1,43 @@
+package seth;
+
+import de.hu.berlin.wbi.objects.MutationMention;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class BoundaryTest {
+
+    @Test
+    public void testLookupTableAgreesWithRegex() {
+        Boundary boundary = new Boundary("()['\"/,-:_");
+        Pattern prefix = Pattern.compile(boundary.prefix() + "x");
+        Pattern suffix = Pattern.compile("x" + boundary.suffix());
+        for (char ch = 0; ch < 0x3000; ch++) {
+            Assert.assertEquals("prefix " + (int) ch, prefix.matcher(ch + "x").matches(), boundary.contains(ch));
+            Assert.assertEquals("suffix " + (int) ch, suffix.matcher("x" + ch + "y").lookingAt(), boundary.contains(ch));
+        }
+    }
+
+    @Test
+    public void testTextBorders() {
+        Boundary boundary = new Boundary("(");
+        Assert.assertTrue(boundary.precedes("rs123", 0));
+        Assert.assertTrue(boundary.follows("rs123", 5));
+        Assert.assertTrue(boundary.precedes("(rs123", 1));
+        Assert.assertFalse(boundary.precedes("xrs123", 1));
+        Assert.assertFalse(boundary.follows("rs123x", 5));
+    }
+
+    @Test
+    public void testAdjacentDbSNPMentions() {
+        String text = "rs123,rs456 (rs789) xrs111 rs0123 rs12,345A>G";
+        List<MutationMention> mentions = new dbSNPRecognizer().extractMutations(text);
+        Assert.assertEquals(4, mentions.size());
+        Assert.assertEquals("rs123", mentions.get(0).getText());
+        Assert.assertEquals("rs456", mentions.get(1).getText());
+        Assert.assertEquals("rs789", mentions.get(2).getText());
+        Assert.assertEquals("rs12,345A>G", mentions.get(3).getText());
+    }
+}
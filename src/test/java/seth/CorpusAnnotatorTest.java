@@ -0,0 +1,141 @@
+package seth;
+
+import de.hu.berlin.wbi.objects.MutationMention;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CorpusAnnotatorTest {
+
+    private static final String[] sentences = {
+            "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C), accounted for 72.1% and 9.8% of GJB2 disease alleles.",
+            "We constructed A42G and L22G, and crystalized A42G.",
+            "The Trp-64 to Phe or Tyr substitution abolished the activity.",
+            "The remaining variants c.905T>C (rs121965091) and c.2251-37C>A (rs2470353) were rare.",
+            "No mutation is mentioned in this sentence at all.",
+            "p.Ala123Tyr and Val158Met as well as g.12345_12347delinsTT were found."
+    };
+
+    private static SETH seth;
+
+    @BeforeClass
+    public static void setUp() {
+        seth = new SETH("resources/mutations.txt", false, true);
+    }
+
+    /**
+     * 50 documents with non-unique identifiers
+     */
+    private static List<String[]> corpus() {
+        List<String[]> documents = new ArrayList<String[]>();
+        for (int i = 0; i < 50; i++)
+            documents.add(new String[]{String.valueOf(i % 7), sentences[i % sentences.length]});
+        return documents;
+    }
+
+    private static String expectedTSV(List<String[]> documents) {
+        StringBuilder sb = new StringBuilder();
+        for (String[] document : documents) {
+            for (MutationMention mention : seth.findMutations(document[1]))
+                sb.append(document[0]).append('\t').append(mention.getStart()).append('\t').append(mention.getEnd())
+                        .append('\t').append(mention.getText()).append('\t').append(mention.getTool()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static CorpusAnnotator annotator(int threads) {
+        CorpusAnnotator annotator = new CorpusAnnotator(seth);
+        annotator.setThreads(threads);
+        annotator.setBatchSize(3);
+        annotator.setQueueCapacity(2);
+        return annotator;
+    }
+
+    @Test
+    public void testTSV() throws IOException {
+        List<String[]> documents = corpus();
+        StringBuilder input = new StringBuilder();
+        for (String[] document : documents)
+            input.append(document[0]).append('\t').append(document[1]).append('\n');
+
+        for (int threads : new int[]{1, 4}) {
+            StringWriter output = new StringWriter();
+            long count = annotator(threads).annotate(new BufferedReader(new StringReader(input.toString())), CorpusAnnotator.Format.TSV,
+                    output, CorpusAnnotator.Format.TSV);
+            Assert.assertEquals(documents.size(), count);
+            Assert.assertEquals(expectedTSV(documents), output.toString());
+        }
+    }
+
+    @Test
+    public void testGzippedJSONL() throws IOException {
+        List<String[]> documents = corpus();
+        File input = File.createTempFile("corpus", ".jsonl.gz");
+        File output = File.createTempFile("annotations", ".jsonl.gz");
+        input.deleteOnExit();
+        output.deleteOnExit();
+
+        Writer writer = new OutputStreamWriter(CorpusAnnotator.openOutput(input.getPath()), StandardCharsets.UTF_8);
+        for (String[] document : documents) {
+            JSONObject json = new JSONObject();
+            json.put("id", document[0]);
+            json.put("text", document[1]);
+            writer.write(json.toJSONString() + "\n");
+        }
+        writer.close();
+
+        Assert.assertEquals(documents.size(), annotator(4).annotate(input.getPath(), output.getPath()));
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(CorpusAnnotator.openInput(output.getPath()), StandardCharsets.UTF_8));
+        try {
+            for (String[] document : documents) {
+                JSONObject json = (JSONObject) JSONValue.parse(reader.readLine());
+                Assert.assertEquals(document[0], json.get("id"));
+
+                List<MutationMention> expected = seth.findMutations(document[1]);
+                JSONArray mutations = (JSONArray) json.get("mutations");
+                Assert.assertEquals(expected.size(), mutations.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    JSONObject mutation = (JSONObject) mutations.get(i);
+                    Assert.assertEquals((long) expected.get(i).getStart(), mutation.get("start"));
+                    Assert.assertEquals(expected.get(i).getText(), mutation.get("text"));
+                    Assert.assertEquals(expected.get(i).toNormalized(), mutation.get("normalized"));
+                }
+            }
+            Assert.assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testMalformedInput() {
+        StringBuilder input = new StringBuilder();
+        for (String[] document : corpus())
+            input.append(document[0]).append('\t').append(document[1]).append('\n');
+        input.append("missing tab\n");
+
+        try {
+            annotator(2).annotate(new BufferedReader(new StringReader(input.toString())), CorpusAnnotator.Format.TSV,
+                    new StringWriter(), CorpusAnnotator.Format.TSV);
+            Assert.fail("Malformed line has not been reported");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Line 51"));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package seth;
+
+import de.hu.berlin.wbi.objects.MutationMention;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stress test for the concurrency contract of {@link SETH}: one shared instance used by many threads
+ * has to return exactly the same mentions as sequential processing. The same holds for the concurrent execution of the recognizers.
+ */
+public class SETHConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 25;
+
+    private static final String[] sentences = {
+            "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C), accounted for 72.1% and 9.8% of GJB2 disease alleles.",
+            "We constructed A42G and L22G, and crystalized A42G.",
+            "The Trp-64 to Phe or Tyr substitution abolished the activity, whereas Ala was substituted by Gly at residue 123.",
+            "The remaining four variants, namely c.905T>C (rs121965091), c.1177C>T (rs1211965090), c.*156G>A (rs121965092) and c.2251-37C>A (rs2470353), were rare.",
+            "Deletions such as 852delA, deltaF508 and IVS2+1G->A as well as the frameshift A123fsX1 were described in the old nomenclature.",
+            "p.Ala123Tyr and Val158Met as well as g.12345_12347delinsTT were found.",
+            "No mutation is mentioned in this sentence at all."
+    };
+
+    private static SETH seth;
+
+    @BeforeClass
+    public static void setUp() {
+        seth = new SETH("resources/mutations.txt", false, true);
+    }
+
+    private static List<String> toStrings(List<MutationMention> mentions) {
+        List<String> result = new ArrayList<String>();
+        for (MutationMention mention : mentions)
+            result.add(mention.toString() + " " + mention.getPatternId());
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void testSharedInstance() throws Exception {
+        final List<List<String>> expected = new ArrayList<List<String>>();
+        for (String sentence : sentences)
+            expected.add(toStrings(seth.findMutations(sentence)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        int checked = 0;
+                        for (int round = 0; round < ROUNDS; round++) {
+                            for (int i = 0; i < sentences.length; i++) {
+                                int index = (i + offset + round) % sentences.length;   //Threads process the sentences in different order
+                                Assert.assertEquals(sentences[index], expected.get(index), toStrings(seth.findMutations(sentences[index])));
+                                checked++;
+                            }
+                        }
+                        return checked;
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (Future<Integer> future : futures)
+                Assert.assertEquals(ROUNDS * sentences.length, (int) future.get(5, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelRecognizers() throws Exception {
+        SETH parallel = new SETH("resources/mutations.txt", false, true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (String sentence : sentences) {
+                parallel.setExecutor(null);
+                List<String> expected = toStrings(parallel.findMutations(sentence));
+                parallel.setExecutor(executor);
+                Assert.assertEquals(sentence, expected, toStrings(parallel.findMutations(sentence)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Callers running inside the executor of SETH must not deadlock, even if the executor has no idle thread left
+     */
+    @Test
+    public void testParallelRecognizersInsideExecutor() throws Exception {
+        final SETH parallel = new SETH("resources/mutations.txt", false, true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<String> expected = toStrings(parallel.findMutations(sentences[0]));
+            parallel.setExecutor(executor);
+            Future<List<String>> result = executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                    return toStrings(parallel.findMutations(sentences[0]));
+                }
+            });
+            Assert.assertEquals(expected, result.get(5, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentConstruction() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SETH> other = executor.submit(new Callable<SETH>() {
+                @Override
+                public SETH call() {
+                    return new SETH("resources/mutations.txt", false, true);
+                }
+            });
+            Future<List<String>> result = executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                    return toStrings(seth.findMutations(sentences[1]));
+                }
+            });
+
+            Assert.assertEquals(toStrings(seth.findMutations(sentences[1])), result.get(5, TimeUnit.MINUTES));
+            Assert.assertEquals(toStrings(seth.findMutations(sentences[1])).size(), other.get(5, TimeUnit.MINUTES).findMutations(sentences[1]).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
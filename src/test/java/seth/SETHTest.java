@@ -1,17 +1,23 @@
 package seth;
 
 import de.hu.berlin.wbi.objects.MutationMention;
-import junit.framework.Assert;
 import junit.framework.TestCase;
 import org.junit.Test;
 import seth.ner.wrapper.Type;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
 
 public class SETHTest {
 
@@ -51,4 +57,141 @@ public class SETHTest {
         assertEquals(mentions.get(1).getPosition(), "90");
         assertEquals(mentions.get(2).getPosition(), "269");
     }
+
+    @Test
+    public void testResolveOverlaps() throws Exception {
+        MutationMention longMF = new MutationMention(10, 20, "IVS2 + 1G>A", null, "2+1", "G", "A", Type.SUBSTITUTION, MutationMention.Tool.REGEX);
+        MutationMention shortMF = new MutationMention(13, 20, "2 + 1G>A", null, "2+1", "G", "A", Type.SUBSTITUTION, MutationMention.Tool.MUTATIONFINDER);
+        MutationMention other = new MutationMention(13, 20, "2 + 1G>T", null, "2+1", "G", "T", Type.SUBSTITUTION, MutationMention.Tool.MUTATIONFINDER);
+        MutationMention dbSNP = new MutationMention(30, 39, "rs123:A>T", null, null, "A", "T", Type.DBSNP_MENTION, MutationMention.Tool.DBSNP);
+        MutationMention seth = new MutationMention(30, 39, "rs123:A>T", "rs123:", null, "A", "T", Type.SUBSTITUTION, MutationMention.Tool.SETH);
+
+        List<MutationMention> input = new ArrayList<MutationMention>(Arrays.asList(dbSNP, shortMF, seth, other, longMF));
+        List<MutationMention> expected = Arrays.asList(longMF, other, dbSNP);
+        for (int i = 0; i < input.size(); i++) {
+            Collections.rotate(input, 1);   //The result must not depend on the order of the input
+            assertEquals(expected, SETH.resolveOverlaps(input));
+        }
+    }
+
+    @Test
+    public void testFindMutationsBatch() throws Exception {
+        SETH seth = new SETH(getClass().getResource("/resources/mutations.txt").getPath(), false, true);
+        Map<String, String> documents = new LinkedHashMap<String, String>();
+        documents.put("1", "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C), accounted for 72.1% and 9.8% of GJB2 disease alleles.");
+        documents.put("2", "No mutation is mentioned in this sentence at all.");
+        documents.put("3", "We constructed A42G and L22G, and crystalized A42G; rs334 is common.");
+
+        Map<String, List<MutationMention>> result = seth.findMutations(documents);
+        assertEquals(new ArrayList<String>(documents.keySet()), new ArrayList<String>(result.keySet()));
+        for (Map.Entry<String, String> document : documents.entrySet())
+            assertEquals(seth.findMutations(document.getValue()), result.get(document.getKey()));
+    }
+
+    @Test
+    public void testChunking() throws Exception {
+        SETH seth = new SETH(getClass().getResource("/resources/mutations.txt").getPath(), false, true);
+        String[] sentences = {
+                "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C), accounted for 72.1% and 9.8% of GJB2 disease alleles.",
+                "We constructed A42G and L22G, and crystalized A42G; rs334 is common.",
+                "The Trp-64 to Phe or Tyr substitution abolished the activity.\n",
+                "Deletions such as 852delA, deltaF508 and IVS2+1G->A were described."
+        };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++)
+            sb.append(sentences[i % sentences.length]).append(i % 3 == 0 ? "  " : " ");
+        String text = sb.toString();
+
+        List<MutationMention> expected = seth.findMutations(text);
+        seth.setChunking(300, 120);
+        assertEquals(expected, seth.findMutations(text));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            seth.setExecutor(executor);
+            assertEquals(expected, seth.findMutations(text));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParseBudget() throws Exception {
+        SETH seth = new SETH(getClass().getResource("/resources/mutations.txt").getPath(), false, true);
+        String sentence = "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C), accounted for 72.1% and 9.8% of GJB2 disease alleles.";
+        List<MutationMention> expected = seth.findMutations(sentence);
+        assertEquals(0, seth.getAbortedWindows());
+
+        //a pathological table only affects SETH-NER, and only the windows exceeding the budget
+        StringBuilder sb = new StringBuilder(sentence);
+        for (int i = 0; i < 20; i++) {
+            sb.append(' ');
+            for (int j = 0; j < 100; j++)
+                sb.append("A1");
+        }
+        seth.setParseBudget(30000, Long.MAX_VALUE);
+        List<MutationMention> mentions = seth.findMutations(sb.toString());
+        assertTrue(seth.getAbortedWindows() > 0);
+        assertTrue(mentions.containsAll(expected));
+    }
+
+    @Test
+    public void testSETHNERSink() throws Exception {
+        seth.ner.wrapper.SETHNER ner = new seth.ner.wrapper.SETHNER(false);
+        String sentence = "Causative GJB2 mutations were identified, c.35delG and L90P (c.269T>C) and p.Ala12_Gly15del accounted for 72.1%.";
+        List<MutationMention> expected = ner.extractMutations(sentence);
+        assertEquals(3, expected.size());
+
+        List<MutationMention> collected = new ArrayList<MutationMention>();
+        ner.extractMutations(sentence, collected);
+        assertEquals(expected, collected);
+
+        final List<MutationMention> sunk = new ArrayList<MutationMention>();
+        ner.extractMutations(sentence, new seth.ner.wrapper.SETHNER.Sink() {
+            @Override
+            public void add(MutationMention mention) {
+                sunk.add(mention);
+            }
+        });
+        assertEquals(expected, sunk);
+    }
+
+    @Test
+    public void testUpdateMutations() throws Exception {
+        SETH seth = new SETH(getClass().getResource("/resources/mutations.txt").getPath(), false, true);
+        String[] sentences = {
+                "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C), accounted for 72.1% and 9.8% of GJB2 disease alleles.",
+                "We constructed A42G and L22G, and crystalized A42G; rs334 is common.",
+                "Deletions such as 852delA, deltaF508 and IVS2+1G->A were described."
+        };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 30; i++)
+            sb.append(sentences[i % sentences.length]).append(' ');
+        String text = sb.toString();
+        List<MutationMention> mentions = seth.findMutations(text);
+
+        //insertion, deletion of a mention, edit inside a mention, edits at both ends of the text
+        int middle = text.indexOf("rs334", text.length() / 2);
+        Object[][] edits = {
+                {middle, middle, "p.Ala123Thr and "},
+                {middle, middle + 17, ""},
+                {text.indexOf("c.35delG") + 4, text.indexOf("c.35delG") + 7, "dup"},
+                {0, 0, "c.76A>C "},
+                {text.length(), text.length(), " L90P"}
+        };
+        for (Object[] edit : edits) {
+            int start = (Integer) edit[0];
+            int end = (Integer) edit[1];
+            String replacement = (String) edit[2];
+            String edited = text.substring(0, start) + replacement + text.substring(end);
+            List<MutationMention> expected = seth.findMutations(edited);
+
+            List<MutationMention> previous = mentions;
+            String before = previous.toString();
+            mentions = seth.updateMutations(text, mentions, start, end, replacement);
+            assertEquals(expected, mentions);
+            assertEquals(before, previous.toString());
+            text = edited;
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package seth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TextChunkerTest {
+
+    private static void assertValid(String text, List<TextChunker.Chunk> chunks, int overlap) {
+        int start = 0;
+        for (TextChunker.Chunk chunk : chunks) {
+            Assert.assertEquals(chunk.toString(), start, chunk.start);
+            Assert.assertTrue(chunk.toString(), chunk.start < chunk.end);
+            Assert.assertTrue(chunk.toString(), chunk.contextStart == 0 || (chunk.start - chunk.contextStart >= overlap && Character.isWhitespace(text.charAt(chunk.contextStart - 1))));
+            Assert.assertTrue(chunk.toString(), chunk.contextEnd == text.length() || (chunk.contextEnd - chunk.end >= overlap && Character.isWhitespace(text.charAt(chunk.contextEnd))));
+            start = chunk.end;
+        }
+        Assert.assertEquals(text.length(), start);
+    }
+
+    @Test
+    public void testBorders() {
+        String text = "First sentence with A123T. Second sentence\nwith c.35delG and more words here. Third one without end";
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 40, 10);
+        assertValid(text, chunks, 10);
+
+        //Sentence ends are preferred over other word borders
+        Assert.assertEquals("Second", text.substring(chunks.get(1).start, chunks.get(1).start + 6));
+    }
+
+    @Test
+    public void testLongWord() {
+        StringBuilder sb = new StringBuilder("short words ");
+        for (int i = 0; i < 200; i++)
+            sb.append('x');
+        sb.append(" and again some short words");
+        String text = sb.toString();
+
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 50, 5);
+        assertValid(text, chunks, 5);
+        for (TextChunker.Chunk chunk : chunks)
+            Assert.assertTrue(chunk.toString(), chunk.start == 0 || Character.isWhitespace(text.charAt(chunk.start - 1)));
+    }
+
+    @Test
+    public void testShortText() {
+        List<TextChunker.Chunk> chunks = TextChunker.split("A123T", 100, 10);
+        Assert.assertEquals(1, chunks.size());
+        assertValid("A123T", chunks, 10);
+    }
+
+    @Test
+    public void testAroundEdit() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            sb.append("word").append(i).append(' ');
+        String text = sb.toString();
+        int start = text.indexOf("word50");
+
+        TextChunker.Chunk chunk = TextChunker.around(text, start, start + 3, 20);
+        Assert.assertTrue(chunk.toString(), start - chunk.start >= 20 && chunk.end - (start + 3) >= 20);
+        Assert.assertTrue(chunk.toString(), chunk.start - chunk.contextStart >= 20 && chunk.contextEnd - chunk.end >= 20);
+        Assert.assertTrue(chunk.toString(), Character.isWhitespace(text.charAt(chunk.start - 1)) && Character.isWhitespace(text.charAt(chunk.end)));
+        Assert.assertTrue(chunk.toString(), chunk.contextEnd - chunk.contextStart < text.length() / 2);
+
+        chunk = TextChunker.around(text, 2, 2, 20);
+        Assert.assertEquals(0, chunk.start);
+        Assert.assertEquals(0, chunk.contextStart);
+    }
+}
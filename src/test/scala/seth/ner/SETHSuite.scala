@@ -5,6 +5,8 @@ import org.scalatest.funspec.AnyFunSpec
 import org.scalatest.funsuite.AnyFunSuite
 import org.scalatest.matchers.should.Matchers
 
+import scala.util.parsing.input.CharSequenceReader
+
 
 
 
@@ -17,11 +19,36 @@ import org.scalatest.matchers.should.Matchers
 class SETHSuite extends AnyFunSpec with Matchers with GivenWhenThen{
   val SETH = new SETHNER()
 
+  val strictSETH = new SETHNER(true)
+  //small table shared by all inputs, so entries are replaced and reused
+  val memo = Recognizer.memoFor(16)
+
   def isValid(input: String, parser: SETH.Parser[Any]) = SETH.isValid(input, parser)
-  def accept(input: String)(implicit parser: SETH.Parser[Any]) =
+  def accept(input: String)(implicit parser: SETH.Parser[Any]) = {
     assert(isValid(input, parser) === true, "should accept " + input)
-  def reject(input: String)(implicit parser: SETH.Parser[Any]) =
+    conforms(input)
+  }
+  def reject(input: String)(implicit parser: SETH.Parser[Any]) = {
     assert(isValid(input, parser) === false, "should reject " + input)
+    conforms(input)
+  }
+
+  //the Recognizer has to agree with the parser combinators at every offset of every example
+  def conforms(input: String) = {
+    for (parser <- List(SETH, strictSETH); offset <- 0 until input.length) {
+      val expected = parser.parse(parser.mutation, new CharSequenceReader(input, offset)) match {
+        case parser.Success(_, next) => next.offset
+        case _ => -1
+      }
+      assert(new Recognizer(input, parser eq strictSETH).mutation(offset) === expected, "at " + offset + " of " + input + " (strict: " + (parser eq strictSETH) + ")")
+    }
+    val plain = new Recognizer(input, false)
+    val memoized = new Recognizer(input, false, memo)
+    for (offset <- 0 until input.length) {
+      assert(memoized.recognize(offset) === plain.recognize(offset), "at " + offset + " of " + input)
+      assert(memoized.lookahead === plain.lookahead, "at " + offset + " of " + input)
+    }
+  }
 
   describe("Mutation parser should accept") {
     describe("Basic lexemes") {
@@ -650,6 +677,112 @@ class SETHSuite extends AnyFunSpec with Matchers with GivenWhenThen{
       }
     }
   }
+
+  describe("Candidate gate") {
+    it ("should pass words of mutation mentions") {
+      for (mention <- List("c.35delG", "p.(Trp26*)", "c.?del", "r.(123A>C)", "der(X)t(X;6)(q22;p23)", "p. W177R", "c.A > G", "chrX:1-2"))
+        assert(mention.split(" ").exists(SETH.mayContainMutation), mention)
+    }
+    it ("should skip ordinary words") {
+      for (word <- List("mutations", "were", "identified", "(p", "pp", "(Fig)", "A/G"))
+        assert(!SETH.mayContainMutation(word), word)
+    }
+  }
+
+  describe("Mutation attributes") {
+    def attributes(text: String) = {
+      val m = SETH.extractMutations(text).head
+      (m.text, m.loc, m.ref, m.wild, m.mutated, m.typ)
+    }
+    it ("should be taken from the parse tree") {
+      assert(attributes("NM_004006.1:c.3G>T") === ("NM_004006.1:c.3G>T", "3", "NM_004006.1:c.", "G", "T", wrapper.Type.SUBSTITUTION))
+      assert(attributes("c.(123A>C)") === ("c.(123A>C)", "123", "c.", "A", "C", wrapper.Type.SUBSTITUTION))
+      assert(attributes("c.(301_305)delins12") === ("c.(301_305)delins12", "301_305", "c.", "", "", wrapper.Type.DELETION_INSERTION))
+      assert(attributes("p.Arg12fsX34") === ("p.Arg12fsX34", "12", "p.", "R", "", wrapper.Type.FRAMESHIFT))
+    }
+    it ("should be overridden by nested attributes") {
+      //the location of the range is overridden by the locations of its ends
+      assert(attributes("p.Ala12_Gly15del") === ("p.Ala12_Gly15del", "15", "p.", "G", "", wrapper.Type.DELETION))
+    }
+  }
+
+  describe("Window scanning") {
+    it ("should report a mention found in several windows once") {
+      val mutations = SETH.extractMutations("The variants c.35delG and c.269T>C were found")
+      assert(mutations.map(_.text) === List("c.35delG", "c.269T>C"))
+      assert(mutations.map(_.start) === List(13, 26))
+    }
+    it ("should use offsets in the text if words are separated by several whitespaces") {
+      val text = "Both\n\n  c.35delG and  c.A  > G"
+      val mutations = SETH.extractMutations(text)
+      assert(mutations.map(_.text) === List("c.35delG", "c.A > G"))
+      assert(mutations.map(_.start) === List(8, 22))
+      for (mutation <- mutations)
+        assert(text.substring(mutation.start, mutation.end).replaceAll("\\s+", " ") === mutation.text)
+    }
+    it ("should split words like the regular expression \\s and skip long words") {
+      val long = "c." + "1" * 500 + "A>G"
+      for (text <- List("", " \t", "c.35delG", " a\u000Bb\fc\r\n d e f  ", "x " + long + " c.35delG")) {
+        val offsets = Tokenizer.tokenize(text, 500)
+        val words = offsets.grouped(2).map(o => text.substring(o(0), o(1))).toList
+        assert(words === text.split("\\s").filter(w => w.nonEmpty && w.length < 500).toList, text)
+      }
+    }
+  }
+
+  describe("Parse budget") {
+    val text = "Causative GJB2 mutations were identified in 31 (15.2%) patients, and two common mutations, c.35delG and L90P (c.269T>C)."
+    it ("should not change the result of regular texts") {
+      val ner = new SETHNER(false)
+      assert(ner.extractMutations(text).map(_.toString) === SETH.extractMutations(text).map(_.toString))
+      assert(ner.abortedWindows === 0)
+    }
+    it ("should drop the windows exceeding the window budget") {
+      val ner = new SETHNER(false)
+      ner.setParseBudget(10, Long.MaxValue)
+      assert(ner.extractMutations(text) === Nil)
+      assert(ner.abortedWindows > 0)
+    }
+    it ("should skip the remaining windows if the document budget is exceeded") {
+      val all = SETH.extractMutations(text + " " + text).map(_.toString)
+      for (budget <- List(1L, 1000L, 10000L, 100000L)) {
+        val ner = new SETHNER(false)
+        ner.setParseBudget(Long.MaxValue, budget)
+        val mutations = ner.extractMutations(text + " " + text).map(_.toString)
+        //windows are processed from left to right, so the mentions found so far are kept
+        assert(all.startsWith(mutations), budget)
+        if (mutations.length < all.length)
+          assert(ner.abortedWindows > 0, budget)
+      }
+      val ner = new SETHNER(false)
+      ner.setParseBudget(Long.MaxValue, 1)
+      assert(ner.extractMutations(text) === Nil)
+      assert(ner.abortedWindows > 0)
+    }
+  }
+
+  //the examples of the tests above are checked by accept and reject
+  describe("Recognizer") {
+    val sentences = List(
+      "The remaining four variants, namely c.905T>C (rs121965091), c.1177C>T (rs1211965090), c.*156G>A (rs121965092) and c.2251-37C>A (rs2470353), were rare.",
+      "46,X,der(X)t(X;6)(q22;p23) and 46,X,idic(Y)(p11.31) as well as der(Y)t(Y;1)(q12:q21)",
+      "NT_007592.15:g.12940923_(?_12940924)insA, NP_001106653.1:p.Glu500Ter and p.(Trp26*) or r.(123A>C)",
+      "chr1:12,345-67,890 or chrX:1,2-3,4+ and AF177763.1:g.203A>C with p.Met1extMet-SerValfs and p.Arg12fsX34")
+
+    it ("should agree with the parser combinators on sentences") {
+      sentences.foreach(conforms)
+    }
+    it ("should not change with memoization") {
+      val memoizing = new SETHNER(false, false, true)
+      for (sentence <- sentences)
+        assert(memoizing.extractMutations(sentence).map(_.toString) === SETH.extractMutations(sentence).map(_.toString))
+    }
+    it ("should yield the same mutations as the reference mode") {
+      val reference = new SETHNER(false, true)
+      for (sentence <- sentences)
+        assert(SETH.extractMutations(sentence).map(_.toString) === reference.extractMutations(sentence).map(_.toString))
+    }
+  }
 }
 
 class SingleTest extends AnyFunSuite {